@@ -0,0 +1,26 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Tells the scheduler when each attendee can be booked at all, apart from their events.
+ */
+public interface AttendeeAvailability {
+  /**
+   * Returns the minutes of the day {@code attendee} can be booked (set minutes), or null if they
+   * can be booked at any time. Callers must not modify the returned mask.
+   */
+  MinuteMask availability(String attendee);
+}
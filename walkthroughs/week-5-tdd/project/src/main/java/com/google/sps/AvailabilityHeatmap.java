@@ -0,0 +1,171 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class used to find how many of a group of people are free at each minute of the day, so that
+ * times where most (rather than all) of them can come are easy to spot.
+ */
+public final class AvailabilityHeatmap {
+  /**
+   * Counts the free attendees at every minute of {@code horizon}. Each attendee's events are
+   * merged first so that an attendee with overlapping events is only counted as busy once. The
+   * curve is then built with a difference array: +1 where an attendee's busy period starts, -1
+   * where it ends, and a running sum over the minutes. Events are put in order with a bucket per
+   * minute rather than sorted, so this takes time proportional to the number of events plus the
+   * number of minutes.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param attendees the people to count
+   * @param horizon the minutes to cover, usually {@code TimeRange.WHOLE_DAY}
+   * @return the free counts as runs of consecutive minutes with the same count, in order
+   */
+  public List<Run> freeCounts(
+      Collection<Event> events, Collection<String> attendees, TimeRange horizon) {
+    Set<String> requestedAttendees = new HashSet<>(attendees);
+    int start = horizon.start();
+    int[] busyDelta = new int[horizon.duration() + 1];
+
+    // Bucket the relevant events by their start minute within the horizon. Visiting the buckets
+    // in order visits the events in start order without a comparison sort.
+    List<Event> relevant = new ArrayList<>();
+    int[] bucketStarts = new int[horizon.duration() + 1];
+    for (Event event : events) {
+      if (event.getWhen().overlaps(horizon)
+          && !Collections.disjoint(event.getAttendees(), requestedAttendees)) {
+        relevant.add(event);
+        bucketStarts[clippedStart(event.getWhen(), horizon) + 1]++;
+      }
+    }
+    for (int minute = 0; minute < horizon.duration(); minute++) {
+      bucketStarts[minute + 1] += bucketStarts[minute];
+    }
+    Event[] byStart = new Event[relevant.size()];
+    for (Event event : relevant) {
+      byStart[bucketStarts[clippedStart(event.getWhen(), horizon)]++] = event;
+    }
+
+    // Merge each attendee's busy periods as they come, marking in the difference array where each
+    // merged period begins and ends. Each entry is {merged start, merged end}.
+    Map<String, int[]> openPeriods = new HashMap<>();
+    for (Event event : byStart) {
+      int busyStart = clippedStart(event.getWhen(), horizon);
+      int busyEnd = Math.min(event.getWhen().end(), horizon.end()) - start;
+      for (String attendee : event.getAttendees()) {
+        if (!requestedAttendees.contains(attendee)) {
+          continue;
+        }
+        int[] period = openPeriods.get(attendee);
+        if (period == null) {
+          openPeriods.put(attendee, new int[] {busyStart, busyEnd});
+        } else if (busyStart > period[1]) {
+          markBusy(busyDelta, period);
+          period[0] = busyStart;
+          period[1] = busyEnd;
+        } else {
+          period[1] = Math.max(period[1], busyEnd);
+        }
+      }
+    }
+    for (int[] period : openPeriods.values()) {
+      markBusy(busyDelta, period);
+    }
+
+    // Sum the differences into busy counts and emit a run whenever the count changes.
+    List<Run> runs = new ArrayList<>();
+    int total = requestedAttendees.size();
+    int busy = 0;
+    int runStart = 0;
+    int runFree = total;
+    for (int minute = 0; minute < horizon.duration(); minute++) {
+      busy += busyDelta[minute];
+      if (total - busy != runFree) {
+        if (minute > runStart) {
+          runs.add(new Run(
+              TimeRange.fromStartEnd(start + runStart, start + minute, false), runFree));
+        }
+        runStart = minute;
+        runFree = total - busy;
+      }
+    }
+    if (horizon.duration() > runStart) {
+      runs.add(new Run(TimeRange.fromStartEnd(start + runStart, horizon.end(), false), runFree));
+    }
+    return runs;
+  }
+
+  /**
+   * Returns where {@code when} starts, in minutes from the start of {@code horizon}.
+   */
+  private static int clippedStart(TimeRange when, TimeRange horizon) {
+    return Math.max(when.start(), horizon.start()) - horizon.start();
+  }
+
+  private static void markBusy(int[] busyDelta, int[] period) {
+    busyDelta[period[0]]++;
+    busyDelta[period[1]]--;
+  }
+
+  /**
+   * A span of consecutive minutes during which the same number of attendees are free.
+   */
+  public static final class Run {
+    private final TimeRange when;
+    private final int free;
+
+    public Run(TimeRange when, int free) {
+      this.when = when;
+      this.free = free;
+    }
+
+    /**
+     * Returns the minutes this run covers.
+     */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    /**
+     * Returns the number of attendees free throughout this run.
+     */
+    public int getFree() {
+      return free;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Run && when.equals(((Run) other).when) && free == ((Run) other).free;
+    }
+
+    @Override
+    public int hashCode() {
+      return when.hashCode() * 31 + free;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d free", when, free);
+    }
+  }
+}
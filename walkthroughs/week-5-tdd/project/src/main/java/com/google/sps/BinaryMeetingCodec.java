@@ -0,0 +1,254 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of batches of meeting requests and their answers, for callers that
+ * don't want to pay for JSON. All integers are {@code Varints}.
+ *
+ * <p>A request batch is a version byte and a dictionary of attendee and group names, followed by
+ * the requests, which refer to names by their index in the dictionary so that each name is sent
+ * once per batch:
+ *
+ * <pre>
+ * format version, as a single byte
+ * dictionary size, then each name as a length-prefixed UTF-8 string
+ * request count, then for each request:
+ *   duration in minutes
+ *   required attendee count, then their dictionary indexes
+ *   optional attendee count, then their dictionary indexes
+ *   granularity in minutes, 1 if the meeting can start on any minute
+ *   required group count, then their dictionary indexes
+ *   optional group count, then their dictionary indexes
+ * </pre>
+ *
+ * <p>Requests read from a payload with any other version are rejected rather than guessed at, so
+ * a field that an older or newer writer knows about is never silently dropped.
+ *
+ * <p>An answer batch has one answer per request, in the same order:
+ *
+ * <pre>
+ * answer count, then for each answer:
+ *   next cursor + 1, or 0 if there are no more windows
+ *   window count, then for each window:
+ *     minutes since the end of the previous window (or the start of the day)
+ *     duration in minutes
+ * </pre>
+ */
+public final class BinaryMeetingCodec {
+  /** The content type used for both requests and answers. */
+  public static final String CONTENT_TYPE = "application/x-sps-meeting";
+
+  // Version 0 had no granularity or groups.
+  private static final int VERSION = 1;
+
+  // Limits that stop a malformed or hostile payload from allocating without bound.
+  private static final int MAX_ATTENDEES = 100_000;
+  private static final int MAX_NAME_BYTES = 1024;
+  private static final int MAX_REQUESTS = 10_000;
+  private static final int MAX_WINDOWS = TimeRange.WHOLE_DAY.duration();
+
+  private BinaryMeetingCodec() {
+    // Disallow instances.
+  }
+
+  /**
+   * Writes a batch of meeting requests.
+   */
+  public static void writeRequests(OutputStream out, List<MeetingRequest> requests)
+      throws IOException {
+    // Give every distinct attendee in the batch an index.
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    for (MeetingRequest request : requests) {
+      for (String attendee : request.getAttendees()) {
+        addToDictionary(attendee, dictionary, names);
+      }
+      for (String attendee : request.getOptionalAttendees()) {
+        addToDictionary(attendee, dictionary, names);
+      }
+      for (String group : request.getGroups()) {
+        addToDictionary(group, dictionary, names);
+      }
+      for (String group : request.getOptionalGroups()) {
+        addToDictionary(group, dictionary, names);
+      }
+    }
+
+    out.write(VERSION);
+    Varints.write(out, names.size());
+    for (String name : names) {
+      Varints.writeString(out, name);
+    }
+
+    Varints.write(out, requests.size());
+    for (MeetingRequest request : requests) {
+      Varints.write(out, request.getDuration());
+      writeAttendees(out, request.getAttendees(), dictionary);
+      writeAttendees(out, request.getOptionalAttendees(), dictionary);
+      Varints.write(out, request.getGranularity());
+      writeAttendees(out, request.getGroups(), dictionary);
+      writeAttendees(out, request.getOptionalGroups(), dictionary);
+    }
+  }
+
+  /**
+   * Reads a batch of meeting requests written by {@code writeRequests}.
+   *
+   * @throws IOException if the input is truncated or malformed
+   */
+  public static List<MeetingRequest> readRequests(InputStream in) throws IOException {
+    int version = in.read();
+    if (version != VERSION) {
+      throw new IOException("Unsupported request format version " + version);
+    }
+
+    int dictionarySize = Varints.readInt(in, MAX_ATTENDEES);
+    String[] names = new String[dictionarySize];
+    for (int i = 0; i < dictionarySize; i++) {
+      names[i] = Varints.readString(in, MAX_NAME_BYTES);
+    }
+
+    int requestCount = Varints.readInt(in, MAX_REQUESTS);
+    List<MeetingRequest> requests = new ArrayList<>(requestCount);
+    for (int i = 0; i < requestCount; i++) {
+      long duration = Varints.read(in);
+      MeetingRequest request = new MeetingRequest(readAttendees(in, names), duration);
+      for (String attendee : readAttendees(in, names)) {
+        request.addOptionalAttendee(attendee);
+      }
+      int granularity = Varints.readInt(in, MAX_WINDOWS);
+      if (granularity != 1) {
+        try {
+          request.setGranularity(granularity);
+        } catch (IllegalArgumentException e) {
+          throw new IOException("Invalid granularity " + granularity, e);
+        }
+      }
+      for (String group : readAttendees(in, names)) {
+        request.addGroup(group);
+      }
+      for (String group : readAttendees(in, names)) {
+        request.addOptionalGroup(group);
+      }
+      requests.add(request);
+    }
+    return requests;
+  }
+
+  /**
+   * Writes one answer per request.
+   */
+  public static void writeAnswers(OutputStream out, List<Answer> answers) throws IOException {
+    Varints.write(out, answers.size());
+    for (Answer answer : answers) {
+      Varints.write(out, answer.nextCursor + 1L);
+      Varints.write(out, answer.times.size());
+
+      // Windows are sorted and don't overlap, so gaps between them are never negative.
+      int previousEnd = TimeRange.START_OF_DAY;
+      for (TimeRange time : answer.times) {
+        Varints.write(out, time.start() - previousEnd);
+        Varints.write(out, time.duration());
+        previousEnd = time.end();
+      }
+    }
+  }
+
+  /**
+   * Reads answers written by {@code writeAnswers}.
+   *
+   * @throws IOException if the input is truncated or malformed
+   */
+  public static List<Answer> readAnswers(InputStream in) throws IOException {
+    int answerCount = Varints.readInt(in, MAX_REQUESTS);
+    List<Answer> answers = new ArrayList<>(answerCount);
+    for (int i = 0; i < answerCount; i++) {
+      int nextCursor = Varints.readInt(in, Integer.MAX_VALUE) - 1;
+      int windowCount = Varints.readInt(in, MAX_WINDOWS);
+      List<TimeRange> times = new ArrayList<>(windowCount);
+      int previousEnd = TimeRange.START_OF_DAY;
+      for (int j = 0; j < windowCount; j++) {
+        int start = previousEnd + Varints.readInt(in, MAX_WINDOWS);
+        TimeRange time = TimeRange.fromStartDuration(start, Varints.readInt(in, MAX_WINDOWS));
+        times.add(time);
+        previousEnd = time.end();
+      }
+      answers.add(new Answer(times, nextCursor));
+    }
+    return answers;
+  }
+
+  private static void addToDictionary(
+      String attendee, Map<String, Integer> dictionary, List<String> names) {
+    if (!dictionary.containsKey(attendee)) {
+      dictionary.put(attendee, names.size());
+      names.add(attendee);
+    }
+  }
+
+  private static void writeAttendees(
+      OutputStream out, Collection<String> attendees, Map<String, Integer> dictionary)
+      throws IOException {
+    Varints.write(out, attendees.size());
+    for (String attendee : attendees) {
+      Varints.write(out, dictionary.get(attendee));
+    }
+  }
+
+  private static List<String> readAttendees(InputStream in, String[] names) throws IOException {
+    int count = Varints.readInt(in, names.length);
+    List<String> attendees = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      attendees.add(names[Varints.readInt(in, names.length - 1)]);
+    }
+    return attendees;
+  }
+
+  /**
+   * The windows found for one request, plus where to resume if the answer was cut short.
+   */
+  public static final class Answer {
+    private final List<TimeRange> times;
+    private final int nextCursor;
+
+    /**
+     * @param times the available windows, sorted and non-overlapping
+     * @param nextCursor the minute to resume from, or -1 if there are no more windows
+     */
+    public Answer(List<TimeRange> times, int nextCursor) {
+      this.times = Collections.unmodifiableList(new ArrayList<>(times));
+      this.nextCursor = nextCursor;
+    }
+
+    public List<TimeRange> getTimes() {
+      return times;
+    }
+
+    public int getNextCursor() {
+      return nextCursor;
+    }
+  }
+}
@@ -0,0 +1,276 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class used to place many meetings at once so that none of them conflict with existing events or
+ * with each other. Only required attendees are considered.
+ *
+ * <p>The search is a backtracking search that always places the most constrained meeting next
+ * (the one with the fewest possible start times left) and gives up on a branch as soon as some
+ * unplaced meeting has nowhere left to go. Each attendee has a busy mask that is updated in place
+ * as meetings are placed and removed, so checking a start time only touches the masks of that
+ * meeting's attendees. Requests that can't fit even on their own are left out up front. If the
+ * time budget runs out, the best partial schedule found so far is returned.
+ *
+ * <p>The masks are kept on the coarsest grid that every request's granularity is a multiple of,
+ * with one bit per slot rather than per minute. With 15-minute requests that makes the masks, and
+ * the number of start times to try, 15 times smaller.
+ */
+public final class BulkMeetingScheduler {
+  private final long timeBudgetMillis;
+
+  /**
+   * @param timeBudgetMillis how long {@code schedule} may search before returning the best
+   *     schedule it has found
+   */
+  public BulkMeetingScheduler(long timeBudgetMillis) {
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /**
+   * Finds a time for each request.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param requests the meetings to place
+   * @return a schedule with one entry per request, in the same order
+   */
+  public Schedule schedule(Collection<Event> events, List<MeetingRequest> requests) {
+    Search search = new Search(events, requests, System.currentTimeMillis() + timeBudgetMillis);
+    search.run();
+    return new Schedule(Arrays.asList(search.best), search.bestPlaced == requests.size());
+  }
+
+  /**
+   * The times chosen for a list of requests.
+   */
+  public static final class Schedule {
+    private final List<TimeRange> times;
+    private final boolean complete;
+
+    private Schedule(List<TimeRange> times, boolean complete) {
+      this.times = Collections.unmodifiableList(new ArrayList<>(times));
+      this.complete = complete;
+    }
+
+    /**
+     * Returns the time chosen for each request, in request order. A request that couldn't be
+     * placed has a null entry.
+     */
+    public List<TimeRange> getTimes() {
+      return times;
+    }
+
+    /**
+     * Returns whether every request was placed.
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+  }
+
+  /**
+   * The state of one call to {@code schedule}.
+   */
+  private static final class Search {
+    private final List<MeetingRequest> requests;
+    private final long deadline;
+
+    // The busy mask of every attendee of every request, updated as meetings are placed.
+    private final Map<String, MinuteMask> busy = new HashMap<>();
+
+    // The masks of each request's attendees, so placing a meeting doesn't need map lookups.
+    private final MinuteMask[][] attendeeMasks;
+
+    private final TimeRange[] placed;
+    private int placedCount = 0;
+
+    // The length of a slot in minutes, and each request's duration and granularity in slots.
+    private final int slotMinutes;
+    private final int[] durationSlots;
+    private final int[] stepSlots;
+
+    // Requests that can't be placed even on their own. The search leaves them out.
+    private final boolean[] impossible;
+    private int placeableCount;
+
+    private final TimeRange[] best;
+    private int bestPlaced = -1;
+
+    private boolean outOfTime = false;
+
+    Search(Collection<Event> events, List<MeetingRequest> requests, long deadline) {
+      this.requests = requests;
+      this.deadline = deadline;
+      this.placed = new TimeRange[requests.size()];
+      this.best = new TimeRange[requests.size()];
+
+      int grid = 0;
+      for (MeetingRequest request : requests) {
+        grid = gcd(grid, request.getGranularity());
+      }
+      slotMinutes = Math.max(grid, 1);
+      int daySlots = TimeRange.WHOLE_DAY.duration() / slotMinutes;
+
+      durationSlots = new int[requests.size()];
+      stepSlots = new int[requests.size()];
+      attendeeMasks = new MinuteMask[requests.size()][];
+      for (int i = 0; i < requests.size(); i++) {
+        MeetingRequest request = requests.get(i);
+        durationSlots[i] = (int) Math.min(
+            (request.getDuration() + slotMinutes - 1) / slotMinutes, daySlots + 1);
+        stepSlots[i] = request.getGranularity() / slotMinutes;
+        List<MinuteMask> masks = new ArrayList<>();
+        for (String attendee : request.getAttendees()) {
+          masks.add(busy.computeIfAbsent(attendee, key -> new MinuteMask(daySlots)));
+        }
+        attendeeMasks[i] = masks.toArray(new MinuteMask[0]);
+      }
+
+      // Busy times are rounded outward to whole slots, so a clear slot is free for all of it.
+      for (Event event : events) {
+        for (String attendee : event.getAttendees()) {
+          MinuteMask mask = busy.get(attendee);
+          if (mask != null) {
+            mask.set(event.getWhen().start() / slotMinutes,
+                (event.getWhen().end() + slotMinutes - 1) / slotMinutes);
+          }
+        }
+      }
+
+      impossible = new boolean[requests.size()];
+      placeableCount = requests.size();
+      for (int i = 0; i < requests.size(); i++) {
+        if (candidateStarts(i).isEmpty()) {
+          impossible[i] = true;
+          placeableCount--;
+        }
+      }
+    }
+
+    /**
+     * Places the remaining requests.
+     *
+     * @return true if every request has been placed
+     */
+    boolean run() {
+      if (placedCount > bestPlaced) {
+        bestPlaced = placedCount;
+        System.arraycopy(placed, 0, best, 0, placed.length);
+      }
+      if (placedCount == placeableCount) {
+        return true;
+      }
+      if (outOfTime || System.currentTimeMillis() > deadline) {
+        outOfTime = true;
+        return false;
+      }
+
+      // Pick the unplaced request with the fewest possible start times.
+      int next = -1;
+      List<Integer> nextCandidates = null;
+      for (int i = 0; i < requests.size(); i++) {
+        if (placed[i] != null || impossible[i]) {
+          continue;
+        }
+        List<Integer> candidates = candidateStarts(i);
+        if (nextCandidates == null || candidates.size() < nextCandidates.size()) {
+          next = i;
+          nextCandidates = candidates;
+        }
+      }
+
+      if (nextCandidates.isEmpty()) {
+        // The meetings placed so far leave nowhere for this one, so this branch is a dead end.
+        return false;
+      }
+
+      for (int start : nextCandidates) {
+        place(next, start);
+        boolean done = run();
+        if (done) {
+          return true;
+        }
+        unplace(next, start);
+        if (outOfTime) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Returns the start slots worth trying for a request, earliest first. Within each free run
+     * those are the first start on the request's grid, the starts that pack back-to-back copies of
+     * the meeting from there, and the latest start on the grid. That keeps the branching small
+     * while leaving room either side of each placement for other meetings.
+     */
+    private List<Integer> candidateStarts(int request) {
+      int duration = durationSlots[request];
+      int step = stepSlots[request];
+      MinuteMask combined = MinuteMask.union(
+          TimeRange.WHOLE_DAY.duration() / slotMinutes, Arrays.asList(attendeeMasks[request]));
+
+      List<Integer> starts = new ArrayList<>();
+      if (duration <= 0) {
+        return starts;
+      }
+      // Packed starts stay on the grid if they are a whole number of grid steps apart.
+      int stride = (duration + step - 1) / step * step;
+      for (TimeRange free : combined.clearRanges(duration)) {
+        int first = (free.start() + step - 1) / step * step;
+        int latest = (free.end() - duration) / step * step;
+        for (int start = first; start <= latest; start += stride) {
+          starts.add(start);
+        }
+        if (latest >= first && (latest - first) % stride != 0) {
+          starts.add(latest);
+        }
+      }
+      return starts;
+    }
+
+    private void place(int request, int start) {
+      for (MinuteMask mask : attendeeMasks[request]) {
+        mask.set(start, start + durationSlots[request]);
+      }
+      int duration = (int) requests.get(request).getDuration();
+      placed[request] = TimeRange.fromStartDuration(start * slotMinutes, duration);
+      placedCount++;
+    }
+
+    private void unplace(int request, int start) {
+      // The candidate was clear for every attendee before it was placed, so clearing it restores
+      // the masks exactly.
+      for (MinuteMask mask : attendeeMasks[request]) {
+        mask.clear(start, start + durationSlots[request]);
+      }
+      placed[request] = null;
+      placedCount--;
+    }
+
+    private static int gcd(int a, int b) {
+      return b == 0 ? a : gcd(b, a % b);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Helpers for lists of busy times.
+ */
+final class BusyTimes {
+  // A counting sort costs a pass over the times plus a pass over the range of start minutes, so
+  // it is used when that range is at most this many times the number of times. A day holds 1441
+  // start minutes, so any day with a few hundred matching events qualifies.
+  private static final int MAX_DOMAIN_PER_TIME = 4;
+
+  private BusyTimes() {
+    // Disallow instances.
+  }
+
+  /**
+   * Sorts {@code times} in place and returns them merged: sorted, with overlapping and touching
+   * times combined and empty times dropped.
+   */
+  static List<TimeRange> merge(List<TimeRange> times) {
+    sortByStart(times);
+    List<TimeRange> merged = new ArrayList<>();
+    for (TimeRange time : times) {
+      TimeRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && time.start() <= last.end()) {
+        if (time.end() > last.end()) {
+          merged.set(merged.size() - 1, TimeRange.fromStartEnd(last.start(), time.end(), false));
+        }
+      } else if (time.duration() > 0) {
+        merged.add(time);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Sorts {@code times} in place by start, keeping times with the same start in their original
+   * order, as {@code times.sort(TimeRange.ORDER_BY_START)} would. Starts are whole minutes, so
+   * when they span a small enough range this uses a counting sort, which takes linear time and
+   * makes no comparisons. Wider ranges, such as multi-day horizons with few events, fall back to
+   * the comparison sort.
+   */
+  static void sortByStart(List<TimeRange> times) {
+    int size = times.size();
+    if (size < 2) {
+      return;
+    }
+
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (TimeRange time : times) {
+      min = Math.min(min, time.start());
+      max = Math.max(max, time.start());
+    }
+    long domain = (long) max - min + 1;
+    if (domain > (long) size * MAX_DOMAIN_PER_TIME) {
+      times.sort(TimeRange.ORDER_BY_START);
+      return;
+    }
+
+    // Count the times per start minute, turn the counts into each minute's first slot, then place
+    // the times in their slots in their original order.
+    int[] slots = new int[(int) domain + 1];
+    for (TimeRange time : times) {
+      slots[time.start() - min + 1]++;
+    }
+    for (int minute = 1; minute < slots.length; minute++) {
+      slots[minute] += slots[minute - 1];
+    }
+    TimeRange[] sorted = new TimeRange[size];
+    for (TimeRange time : times) {
+      sorted[slots[time.start() - min]++] = time;
+    }
+    for (int i = 0; i < size; i++) {
+      times.set(i, sorted[i]);
+    }
+  }
+
+  /**
+   * Returns the times of every list in {@code lists}, each of which must be sorted by start, in
+   * order of start. The lists are combined lazily with a binary heap of the lists' next times, so
+   * reading all n times takes O(n log k) for k lists and nothing is sorted.
+   */
+  static Iterator<TimeRange> mergeSorted(List<List<TimeRange>> lists) {
+    return new MergeIterator(lists);
+  }
+
+  private static final class MergeIterator implements Iterator<TimeRange> {
+    private final List<List<TimeRange>> lists;
+
+    // How far into each list the merge has read.
+    private final int[] positions;
+
+    // The lists that have times left, as a min-heap on the start of each list's next time.
+    private final int[] heap;
+    private int heapSize = 0;
+
+    MergeIterator(List<List<TimeRange>> lists) {
+      this.lists = lists;
+      this.positions = new int[lists.size()];
+      this.heap = new int[lists.size()];
+      for (int list = 0; list < lists.size(); list++) {
+        if (!lists.get(list).isEmpty()) {
+          heap[heapSize++] = list;
+        }
+      }
+      for (int node = heapSize / 2 - 1; node >= 0; node--) {
+        siftDown(node);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return heapSize > 0;
+    }
+
+    @Override
+    public TimeRange next() {
+      if (heapSize == 0) {
+        throw new NoSuchElementException();
+      }
+      int list = heap[0];
+      TimeRange time = lists.get(list).get(positions[list]++);
+      if (positions[list] == lists.get(list).size()) {
+        heap[0] = heap[--heapSize];
+      }
+      siftDown(0);
+      return time;
+    }
+
+    private int nextStart(int list) {
+      return lists.get(list).get(positions[list]).start();
+    }
+
+    private void siftDown(int node) {
+      while (true) {
+        int smallest = node;
+        int left = 2 * node + 1;
+        int right = left + 1;
+        if (left < heapSize && nextStart(heap[left]) < nextStart(heap[smallest])) {
+          smallest = left;
+        }
+        if (right < heapSize && nextStart(heap[right]) < nextStart(heap[smallest])) {
+          smallest = right;
+        }
+        if (smallest == node) {
+          return;
+        }
+        int swap = heap[node];
+        heap[node] = heap[smallest];
+        heap[smallest] = swap;
+        node = smallest;
+      }
+    }
+  }
+}
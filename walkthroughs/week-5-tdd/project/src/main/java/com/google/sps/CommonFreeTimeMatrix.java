@@ -0,0 +1,269 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * How much free time every pair of people in a group has in common, for team formation and
+ * on-call planning.
+ *
+ * <p>Each person's free minutes are a bitmap, and the bitmaps sit back to back in one array. The
+ * common free time of a pair is the popcount of the AND of their bitmaps, so all pairs together
+ * take one pass over the events plus a few dozen word operations per pair, instead of a full
+ * event scan per pair. The pairs are worked through in square tiles of {@code BLOCK} people by
+ * {@code BLOCK} people, so the bitmaps of both sides of a tile stay in cache while it is
+ * computed, and the tiles are spread across cores.
+ */
+public final class CommonFreeTimeMatrix {
+  // People per side of a tile. Both sides' bitmaps together take about 23 KB, which fits in a
+  // typical L1 or L2 cache.
+  private static final int BLOCK = 64;
+
+  private static final int WORDS =
+      new MinuteMask(TimeRange.WHOLE_DAY.duration()).words().length;
+
+  private final List<String> attendees;
+
+  // The free minutes of attendee i are words [i * WORDS, (i + 1) * WORDS).
+  private final long[] free;
+
+  /**
+   * Builds the free-time bitmaps.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param attendees the people to compare. Duplicates are dropped.
+   * @param availability when each attendee can be booked at all, or null if everyone can be
+   *     booked all day. Time outside it doesn't count as free.
+   */
+  public CommonFreeTimeMatrix(
+      Collection<Event> events, Collection<String> attendees, AttendeeAvailability availability) {
+    this.attendees = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(attendees)));
+
+    Map<String, MinuteMask> masks = new HashMap<>();
+    for (String attendee : this.attendees) {
+      masks.put(attendee, MinuteMask.forDay());
+    }
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        MinuteMask mask = masks.get(attendee);
+        if (mask != null) {
+          mask.set(event.getWhen().start(), event.getWhen().end());
+        }
+      }
+    }
+
+    free = new long[this.attendees.size() * WORDS];
+    for (int i = 0; i < this.attendees.size(); i++) {
+      String attendee = this.attendees.get(i);
+      MinuteMask mask = masks.get(attendee);
+      mask.invert();
+      MinuteMask bookable = availability == null ? null : availability.availability(attendee);
+      if (bookable != null) {
+        mask.and(bookable);
+      }
+      System.arraycopy(mask.words(), 0, free, i * WORDS, WORDS);
+    }
+  }
+
+  /**
+   * Returns the people being compared. Pairs are reported by index into this list.
+   */
+  public List<String> getAttendees() {
+    return attendees;
+  }
+
+  /**
+   * Returns the number of minutes both {@code first} and {@code second} are free.
+   */
+  public int commonFreeMinutes(int first, int second) {
+    return countCommon(first * WORDS, second * WORDS);
+  }
+
+  private int countCommon(int firstOffset, int secondOffset) {
+    int count = 0;
+    for (int w = 0; w < WORDS; w++) {
+      count += Long.bitCount(free[firstOffset + w] & free[secondOffset + w]);
+    }
+    return count;
+  }
+
+  /**
+   * Hands every pair of different people with at least {@code threshold} common free minutes to
+   * {@code consumer}. The tiles are computed in parallel and each tile's pairs are handed over as
+   * soon as it is done, so only one tile's worth of pairs is held at a time per thread. Calls to
+   * {@code consumer} never overlap, but pairs arrive in no particular order.
+   */
+  public void forEachPair(int threshold, PairConsumer consumer) {
+    forEachPair(threshold, true, consumer);
+  }
+
+  /**
+   * Like {@code forEachPair(threshold, consumer)}, but if {@code parallel} is false every tile is
+   * computed on the calling thread, in order, instead of in the common fork-join pool. Servers
+   * use this to keep the work on their own bounded worker threads. Between tiles a sequential run
+   * stops with a {@code CancellationException} if the calling thread has been interrupted.
+   */
+  public void forEachPair(int threshold, boolean parallel, PairConsumer consumer) {
+    int blocks = (attendees.size() + BLOCK - 1) / BLOCK;
+    // The tiles on and above the diagonal, numbered row by row.
+    int[] tileRows = new int[blocks * (blocks + 1) / 2];
+    int[] tileColumns = new int[tileRows.length];
+    int tile = 0;
+    for (int row = 0; row < blocks; row++) {
+      for (int column = row; column < blocks; column++) {
+        tileRows[tile] = row;
+        tileColumns[tile] = column;
+        tile++;
+      }
+    }
+
+    Object lock = new Object();
+    IntStream tiles = IntStream.range(0, tileRows.length);
+    (parallel ? tiles.parallel() : tiles).forEach(t -> {
+      if (!parallel && Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Interrupted");
+      }
+      int rowStart = tileRows[t] * BLOCK;
+      int rowEnd = Math.min(rowStart + BLOCK, attendees.size());
+      int columnStart = tileColumns[t] * BLOCK;
+      int columnEnd = Math.min(columnStart + BLOCK, attendees.size());
+
+      // Triples of (first, second, minutes) for the pairs that pass the threshold.
+      int[] found = new int[3 * BLOCK * BLOCK];
+      int foundCount = 0;
+      for (int i = rowStart; i < rowEnd; i++) {
+        for (int j = Math.max(columnStart, i + 1); j < columnEnd; j++) {
+          int minutes = countCommon(i * WORDS, j * WORDS);
+          if (minutes >= threshold) {
+            found[foundCount++] = i;
+            found[foundCount++] = j;
+            found[foundCount++] = minutes;
+          }
+        }
+      }
+
+      if (foundCount > 0) {
+        synchronized (lock) {
+          for (int k = 0; k < foundCount; k += 3) {
+            consumer.accept(found[k], found[k + 1], found[k + 2]);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Writes every pair with at least {@code threshold} common free minutes to {@code out}, one
+   * {@code name<TAB>name<TAB>minutes} line per pair.
+   */
+  public void writePairs(int threshold, Writer out) throws IOException {
+    try {
+      forEachPair(threshold, (first, second, minutes) -> {
+        try {
+          out.write(attendees.get(first));
+          out.write('\t');
+          out.write(attendees.get(second));
+          out.write('\t');
+          out.write(Integer.toString(minutes));
+          out.write('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    out.flush();
+  }
+
+  /**
+   * Receives one pair of people and their common free time.
+   */
+  public interface PairConsumer {
+    /**
+     * @param first the index of one person in {@code getAttendees()}
+     * @param second the index of the other, always greater than {@code first}
+     * @param minutes the number of minutes both are free
+     */
+    void accept(int first, int second, int minutes);
+  }
+
+  /**
+   * Batch job that writes the pairs with enough common free time to standard output, and how
+   * long that took to standard error.
+   *
+   * <p>Arguments: the threshold in minutes (default 60) and, optionally, a number of people to
+   * generate random calendars for instead of using the attendees of {@code Events.events}.
+   */
+  public static void main(String[] args) throws IOException {
+    int threshold = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+
+    List<Event> events;
+    Set<String> people = new LinkedHashSet<>();
+    if (args.length > 1) {
+      events = randomEvents(Integer.parseInt(args[1]), new Random(0));
+    } else {
+      events = Arrays.asList(Events.events);
+    }
+    for (Event event : events) {
+      people.addAll(event.getAttendees());
+    }
+
+    long started = System.nanoTime();
+    CommonFreeTimeMatrix matrix = new CommonFreeTimeMatrix(events, people, null);
+    long built = System.nanoTime();
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    matrix.writePairs(threshold, out);
+    long finished = System.nanoTime();
+
+    System.err.printf("%d people, %d events: bitmaps %d ms, pairs %d ms%n", people.size(),
+        events.size(), (built - started) / 1_000_000, (finished - built) / 1_000_000);
+  }
+
+  /**
+   * Returns a working day of random half-hour and hour-long meetings for {@code count} people.
+   */
+  private static List<Event> randomEvents(int count, Random random) {
+    List<Event> events = new ArrayList<>();
+    for (int person = 0; person < count; person++) {
+      String attendee = "Person " + person;
+      for (int meeting = 0; meeting < 6; meeting++) {
+        int start = TimeRange.getTimeInMinutes(8 + random.nextInt(10), 30 * random.nextInt(2));
+        int duration = 30 + 30 * random.nextInt(2);
+        events.add(new Event("Meeting", TimeRange.fromStartDuration(start, duration),
+            Collections.singletonList(attendee)));
+      }
+    }
+    return events;
+  }
+}
@@ -0,0 +1,257 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class used to find every double booking in a calendar, for hygiene reports.
+ */
+public final class ConflictDetector {
+  /**
+   * Finds every attendee with overlapping events. Each attendee's events are sorted by start and
+   * swept in that order, keeping the events that are still running. A new event is checked
+   * against only those, and each one it meets either overlaps it or has ended and is dropped. That
+   * takes O(n log n) time for n events, plus the time to list the overlapping pairs.
+   *
+   * <p>The sweep works on packed primitive arrays rather than on the events, and each attendee's
+   * events sit next to each other, so calendars with millions of events stay cache friendly.
+   *
+   * @param events the calendar to check
+   * @return the conflicts of every attendee who has any, ordered by attendee
+   */
+  public List<AttendeeConflicts> detect(Collection<Event> events) {
+    Event[] byIndex = events.toArray(new Event[0]);
+
+    // Number the attendees and list every (attendee, event) pair, in one pass over the events.
+    Map<String, Integer> ids = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    int[] eventCounts = new int[16];
+    int[] pairAttendees = new int[Math.max(byIndex.length, 16)];
+    int[] pairEvents = new int[pairAttendees.length];
+    int pairs = 0;
+    for (int i = 0; i < byIndex.length; i++) {
+      if (byIndex[i].getWhen().duration() == 0) {
+        continue;
+      }
+      for (String attendee : byIndex[i].getAttendees()) {
+        Integer id = ids.get(attendee);
+        if (id == null) {
+          id = names.size();
+          ids.put(attendee, id);
+          names.add(attendee);
+          if (id == eventCounts.length) {
+            eventCounts = Arrays.copyOf(eventCounts, id * 2);
+          }
+        }
+        eventCounts[id]++;
+        if (pairs == pairAttendees.length) {
+          pairAttendees = Arrays.copyOf(pairAttendees, pairs * 2);
+          pairEvents = Arrays.copyOf(pairEvents, pairs * 2);
+        }
+        pairAttendees[pairs] = id;
+        pairEvents[pairs] = i;
+        pairs++;
+      }
+    }
+
+    // Group the pairs by attendee with a counting sort. Within a group each entry is the event's
+    // start and index packed into a long, so sorting the longs sorts the group by start.
+    int[] groupStarts = new int[names.size() + 1];
+    for (int id = 0; id < names.size(); id++) {
+      groupStarts[id + 1] = groupStarts[id] + eventCounts[id];
+    }
+    int[] fill = Arrays.copyOf(groupStarts, names.size());
+    long[] keys = new long[pairs];
+    for (int p = 0; p < pairs; p++) {
+      int event = pairEvents[p];
+      keys[fill[pairAttendees[p]]++] = ((long) byIndex[event].getWhen().start() << 32) | event;
+    }
+
+    List<AttendeeConflicts> conflicts = new ArrayList<>();
+    int[] active = new int[16];
+    for (int id = 0; id < names.size(); id++) {
+      Arrays.sort(keys, groupStarts[id], groupStarts[id + 1]);
+
+      List<Overlap> overlaps = new ArrayList<>();
+      int activeCount = 0;
+      // The latest end of any event so far, and the end of the conflicted time counted so far.
+      int busyUntil = TimeRange.START_OF_DAY;
+      int countedUntil = TimeRange.START_OF_DAY;
+      int conflictedMinutes = 0;
+      for (int k = groupStarts[id]; k < groupStarts[id + 1]; k++) {
+        int index = (int) keys[k];
+        TimeRange when = byIndex[index].getWhen();
+        for (int a = activeCount - 1; a >= 0; a--) {
+          TimeRange other = byIndex[active[a]].getWhen();
+          if (other.end() <= when.start()) {
+            // Ended. Later events start later still, so it can't overlap them either.
+            active[a] = active[--activeCount];
+            continue;
+          }
+          overlaps.add(new Overlap(byIndex[active[a]], byIndex[index],
+              TimeRange.fromStartEnd(when.start(), Math.min(when.end(), other.end()), false)));
+        }
+
+        // Every earlier event started no later than this one, so the time this event shares with
+        // any of them is [start, min(end, busyUntil)). Conflicted time only grows forward, so the
+        // part of it not counted yet is a single range.
+        int conflictEnd = Math.min(when.end(), busyUntil);
+        int countFrom = Math.max(when.start(), countedUntil);
+        if (conflictEnd > countFrom) {
+          conflictedMinutes += conflictEnd - countFrom;
+          countedUntil = conflictEnd;
+        }
+        busyUntil = Math.max(busyUntil, when.end());
+
+        if (activeCount == active.length) {
+          active = Arrays.copyOf(active, activeCount * 2);
+        }
+        active[activeCount++] = index;
+      }
+
+      if (!overlaps.isEmpty()) {
+        conflicts.add(new AttendeeConflicts(names.get(id), overlaps, conflictedMinutes));
+      }
+    }
+    conflicts.sort((a, b) -> a.attendee.compareTo(b.attendee));
+    return conflicts;
+  }
+
+  /**
+   * Everything one attendee is double booked for.
+   */
+  public static final class AttendeeConflicts {
+    private final String attendee;
+    private final List<Overlap> overlaps;
+    private final int conflictedMinutes;
+
+    public AttendeeConflicts(String attendee, List<Overlap> overlaps, int conflictedMinutes) {
+      this.attendee = attendee;
+      this.overlaps = Collections.unmodifiableList(new ArrayList<>(overlaps));
+      this.conflictedMinutes = conflictedMinutes;
+    }
+
+    /**
+     * Returns the attendee.
+     */
+    public String getAttendee() {
+      return attendee;
+    }
+
+    /**
+     * Returns every pair of the attendee's events that overlap, ordered by the start of the later
+     * event.
+     */
+    public List<Overlap> getOverlaps() {
+      return overlaps;
+    }
+
+    /**
+     * Returns the number of minutes in which the attendee has two or more events.
+     */
+    public int getConflictedMinutes() {
+      return conflictedMinutes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof AttendeeConflicts)) {
+        return false;
+      }
+      AttendeeConflicts conflicts = (AttendeeConflicts) other;
+      return attendee.equals(conflicts.attendee) && overlaps.equals(conflicts.overlaps)
+          && conflictedMinutes == conflicts.conflictedMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+      return (attendee.hashCode() * 31 + overlaps.hashCode()) * 31 + conflictedMinutes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s: %d minutes double booked in %s", attendee, conflictedMinutes, overlaps);
+    }
+  }
+
+  /**
+   * Two events that overlap, and the time they share.
+   */
+  public static final class Overlap {
+    private final Event first;
+    private final Event second;
+    private final TimeRange when;
+
+    /**
+     * @param first the event that starts first
+     * @param second the event that starts no earlier than {@code first}
+     * @param when the time both events take up
+     */
+    public Overlap(Event first, Event second, TimeRange when) {
+      this.first = first;
+      this.second = second;
+      this.when = when;
+    }
+
+    /**
+     * Returns the event that starts first.
+     */
+    public Event getFirst() {
+      return first;
+    }
+
+    /**
+     * Returns the event that starts no earlier than {@code getFirst()}.
+     */
+    public Event getSecond() {
+      return second;
+    }
+
+    /**
+     * Returns the time both events take up.
+     */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Overlap)) {
+        return false;
+      }
+      Overlap overlap = (Overlap) other;
+      return first.equals(overlap.first) && second.equals(overlap.second)
+          && when.equals(overlap.when);
+    }
+
+    @Override
+    public int hashCode() {
+      return (first.hashCode() * 31 + second.hashCode()) * 31 + when.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s and %s during %s", first.getTitle(), second.getTitle(), when);
+    }
+  }
+}
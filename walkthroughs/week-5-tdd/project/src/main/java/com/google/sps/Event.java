@@ -26,16 +26,33 @@ import java.util.Set;
 public final class Event {
   private final String title;
   private final TimeRange when;
-  private final Set<String> attendees = new HashSet<>();
+  private final Set<String> attendees;
+
+  // What it costs to book over this event, or 0 if it can't be booked over.
+  private final int overrideCost;
 
   /**
-   * Creates a new event.
+   * Creates a new event that can't be booked over.
    *
    * @param title The human-readable name for the event. Must be non-null.
    * @param when The time when the event takes place. Must be non-null.
    * @param attendees The collection of people attending the event. Must be non-null.
    */
   public Event(String title, TimeRange when, Collection<String> attendees) {
+    this(title, when, attendees, 0);
+  }
+
+  /**
+   * Creates a new event.
+   *
+   * @param title The human-readable name for the event. Must be non-null.
+   * @param when The time when the event takes place. Must be non-null.
+   * @param attendees The collection of people attending the event. Must be non-null.
+   * @param overrideCost What it costs to book another meeting over this one, for tentative or
+   *     low-priority events such as focus time. 0 means it can't be booked over. Must not be
+   *     negative.
+   */
+  public Event(String title, TimeRange when, Collection<String> attendees, int overrideCost) {
     if (title == null) {
       throw new IllegalArgumentException("title cannot be null");
     }
@@ -48,9 +65,34 @@ public final class Event {
       throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
     }
 
+    if (overrideCost < 0) {
+      throw new IllegalArgumentException("overrideCost cannot be negative");
+    }
+
     this.title = title;
     this.when = when;
-    this.attendees.addAll(attendees);
+    this.attendees = new HashSet<>(attendees);
+    this.overrideCost = overrideCost;
+  }
+
+  /**
+   * Creates an event that uses {@code attendees} directly instead of copying it, so that events
+   * with the same attendees can share one set. The set must never be changed afterwards.
+   */
+  private Event(String title, TimeRange when, Set<String> attendees, int overrideCost) {
+    this.title = title;
+    this.when = when;
+    this.attendees = attendees;
+    this.overrideCost = overrideCost;
+  }
+
+  /**
+   * Returns an event sharing {@code attendees}, which must be read-only. Used by
+   * {@code EventInterner}.
+   */
+  static Event withSharedAttendees(
+      String title, TimeRange when, Set<String> attendees, int overrideCost) {
+    return new Event(title, when, attendees, overrideCost);
   }
 
   /**
@@ -76,6 +118,27 @@ public final class Event {
     return Collections.unmodifiableSet(attendees);
   }
 
+  /**
+   * Returns whether {@code attendee} is attending this event.
+   */
+  public boolean hasAttendee(String attendee) {
+    return attendees.contains(attendee);
+  }
+
+  /**
+   * Returns whether another meeting may be booked over this event.
+   */
+  public boolean isOverridable() {
+    return overrideCost > 0;
+  }
+
+  /**
+   * Returns what it costs to book another meeting over this event, or 0 if it can't be.
+   */
+  public int getOverrideCost() {
+    return overrideCost;
+  }
+
   @Override
   public int hashCode() {
     // For the hash code, just use the title. Most events "should" have different names and will
@@ -91,6 +154,7 @@ public final class Event {
   private static boolean equals(Event a, Event b) {
     // {@code attendees} must be a set for equals to work as expected. According to the {@code Set}
     // interface documentation, equals will check for set-equality across all set implementations.
-    return a.title.equals(b.title) && a.when.equals(b.when) && a.attendees.equals(b.attendees);
+    return a.title.equals(b.title) && a.when.equals(b.when) && a.attendees.equals(b.attendees)
+        && a.overrideCost == b.overrideCost;
   }
 }
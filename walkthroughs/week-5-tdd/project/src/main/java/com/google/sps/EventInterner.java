@@ -0,0 +1,373 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes equal events, titles, times and attendee sets share one instance. Calendars repeat the
+ * same titles ("Team Sync") and the same groups of people over and over, so sharing them saves
+ * most of the memory the events take.
+ *
+ * <p>{@code Event.hashCode} only looks at the title, {@code TimeRange.hashCode} is
+ * {@code start ^ duration} and {@code Set.hashCode} is the plain sum of its elements' hashes, so
+ * all three collide heavily on real calendars. The tables here hash events, times and attendee
+ * sets with a mix of all of their parts instead.
+ *
+ * <p>Every entry is reference counted: events by their live copies, and titles, names, times and
+ * attendee sets by the distinct events and sets that use them. An entry is dropped as soon as
+ * nothing uses it. The bytes saved are those that duplicate copies of what is held right now would
+ * take, less what the tables themselves take, so releasing an event takes back what interning it
+ * saved, and a calendar of mostly unique events shows a loss.
+ */
+public final class EventInterner {
+  // Rough sizes, in bytes, of the objects that sharing saves, on a 64-bit JVM with compressed
+  // pointers. Strings are counted as Latin-1.
+  private static final int STRING_BYTES = 24 + 16;
+  private static final int TIME_RANGE_BYTES = 16;
+  private static final int EVENT_BYTES = 24;
+  private static final int HASH_SET_BYTES = 16 + 48 + 16;
+  private static final int HASH_SET_ENTRY_BYTES = 32 + 8;
+
+  // Rough sizes of what each table entry costs: the map's node and slot and the Counted, plus the
+  // key object for every table but the strings.
+  private static final int STRING_ENTRY_BYTES = 32 + 8 + 24;
+  private static final int KEYED_ENTRY_BYTES = STRING_ENTRY_BYTES + 24;
+
+  private final Map<String, Counted<String>> strings = new HashMap<>();
+  private final Map<TimeKey, Counted<TimeRange>> times = new HashMap<>();
+  private final Map<SetKey, Counted<Set<String>>> attendeeSets = new HashMap<>();
+  private final Map<EventKey, Counted<Event>> events = new HashMap<>();
+
+  private long interned = 0;
+  // What duplicates would take, before taking off the cost of the tables.
+  private long grossBytesSaved = 0;
+  private long tableBytes = 0;
+
+  /**
+   * Returns the shared instance equal to {@code event}, creating it from shared parts if this is
+   * the first copy. Every call should be matched by a call to {@code release} once the event is
+   * no longer in use.
+   */
+  public synchronized Event intern(Event event) {
+    interned++;
+    Counted<Event> counted = events.get(new EventKey(event));
+    if (counted != null) {
+      counted.count++;
+      grossBytesSaved += sizeOf(event);
+      return counted.value;
+    }
+
+    String title = acquire(strings, event.getTitle(), event.getTitle(), sizeOf(event.getTitle()),
+        STRING_ENTRY_BYTES);
+    TimeRange when = acquire(times, new TimeKey(event.getWhen()), event.getWhen(),
+        TIME_RANGE_BYTES, KEYED_ENTRY_BYTES);
+    Set<String> attendees = acquireAttendees(event.getAttendees());
+    Event shared = Event.withSharedAttendees(title, when, attendees, event.getOverrideCost());
+    events.put(new EventKey(shared), new Counted<>(shared));
+    tableBytes += KEYED_ENTRY_BYTES;
+    return shared;
+  }
+
+  /**
+   * Drops one use of {@code event}. Once every use has been dropped the event is forgotten, along
+   * with any title, name, time or attendee set no other event uses.
+   */
+  public synchronized void release(Event event) {
+    EventKey key = new EventKey(event);
+    Counted<Event> counted = events.get(key);
+    if (counted == null) {
+      return;
+    }
+    if (--counted.count > 0) {
+      grossBytesSaved -= sizeOf(counted.value);
+      return;
+    }
+
+    events.remove(key);
+    tableBytes -= KEYED_ENTRY_BYTES;
+    Event shared = counted.value;
+    drop(strings, shared.getTitle(), sizeOf(shared.getTitle()), STRING_ENTRY_BYTES);
+    drop(times, new TimeKey(shared.getWhen()), TIME_RANGE_BYTES, KEYED_ENTRY_BYTES);
+    if (drop(attendeeSets, new SetKey(shared.getAttendees()), sizeOf(shared.getAttendees()),
+        KEYED_ENTRY_BYTES)) {
+      for (String attendee : shared.getAttendees()) {
+        drop(strings, attendee, sizeOf(attendee), STRING_ENTRY_BYTES);
+      }
+    }
+  }
+
+  /**
+   * Returns what the interner holds and how much sharing saves right now.
+   */
+  public synchronized Stats getStats() {
+    return new Stats(interned, events.size(), strings.size(), times.size(), attendeeSets.size(),
+        grossBytesSaved - tableBytes, tableBytes);
+  }
+
+  private Set<String> acquireAttendees(Set<String> attendees) {
+    SetKey key = new SetKey(attendees);
+    Counted<Set<String>> counted = attendeeSets.get(key);
+    if (counted != null) {
+      counted.count++;
+      grossBytesSaved += sizeOf(attendees);
+      return counted.value;
+    }
+
+    Set<String> names = new HashSet<>();
+    for (String attendee : attendees) {
+      names.add(acquire(strings, attendee, attendee, sizeOf(attendee), STRING_ENTRY_BYTES));
+    }
+    Set<String> shared = Collections.unmodifiableSet(names);
+    attendeeSets.put(new SetKey(shared), new Counted<>(shared));
+    tableBytes += KEYED_ENTRY_BYTES;
+    return shared;
+  }
+
+  /**
+   * Returns the shared instance for {@code key}, adding {@code value} as that instance if there
+   * is none yet, and counts one more use of it.
+   *
+   * @param size what a duplicate of {@code value} takes
+   * @param entryBytes what an entry in {@code table} takes
+   */
+  private <K, V> V acquire(Map<K, Counted<V>> table, K key, V value, int size, int entryBytes) {
+    Counted<V> counted = table.get(key);
+    if (counted == null) {
+      table.put(key, new Counted<>(value));
+      tableBytes += entryBytes;
+      return value;
+    }
+    counted.count++;
+    grossBytesSaved += size;
+    return counted.value;
+  }
+
+  /**
+   * Counts one less use of the instance for {@code key}, dropping it once it is unused.
+   *
+   * @return true if it was dropped
+   */
+  private <K, V> boolean drop(Map<K, Counted<V>> table, K key, int size, int entryBytes) {
+    Counted<V> counted = table.get(key);
+    if (--counted.count > 0) {
+      grossBytesSaved -= size;
+      return false;
+    }
+    table.remove(key);
+    tableBytes -= entryBytes;
+    return true;
+  }
+
+  private static int sizeOf(String value) {
+    return STRING_BYTES + value.length();
+  }
+
+  private static int sizeOf(Set<String> attendees) {
+    return HASH_SET_BYTES + HASH_SET_ENTRY_BYTES * attendees.size();
+  }
+
+  private static int sizeOf(Event event) {
+    return EVENT_BYTES + TIME_RANGE_BYTES + sizeOf(event.getTitle())
+        + sizeOf(event.getAttendees());
+  }
+
+  /**
+   * Spreads every bit of {@code value} over the whole hash (the MurmurHash3 finalizer).
+   */
+  private static int mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return (int) value;
+  }
+
+  private static int hashOf(TimeRange time) {
+    return mix(((long) time.start() << 32) | (time.duration() & 0xffffffffL));
+  }
+
+  private static int hashOf(Set<String> attendees) {
+    // Sets have no order, so the mixed element hashes are summed, then mixed again.
+    long sum = 0;
+    for (String attendee : attendees) {
+      sum += mix(attendee.hashCode());
+    }
+    return mix(sum);
+  }
+
+  /**
+   * A time, hashed on both fields together.
+   */
+  private static final class TimeKey {
+    private final TimeRange time;
+    private final int hash;
+
+    TimeKey(TimeRange time) {
+      this.time = time;
+      this.hash = hashOf(time);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof TimeKey && time.equals(((TimeKey) other).time);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * An attendee set, hashed on a mix of every name.
+   */
+  private static final class SetKey {
+    private final Set<String> attendees;
+    private final int hash;
+
+    SetKey(Set<String> attendees) {
+      this.attendees = attendees;
+      this.hash = hashOf(attendees);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof SetKey && attendees.equals(((SetKey) other).attendees);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * An event, hashed on its title, time and attendees together.
+   */
+  private static final class EventKey {
+    private final Event event;
+    private final int hash;
+
+    EventKey(Event event) {
+      this.event = event;
+      long combined = event.getTitle().hashCode();
+      combined = combined * 0x9e3779b97f4a7c15L + hashOf(event.getWhen());
+      combined = combined * 0x9e3779b97f4a7c15L + hashOf(event.getAttendees());
+      this.hash = mix(combined);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof EventKey && event.equals(((EventKey) other).event);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * A shared instance and the number of uses it has.
+   */
+  private static final class Counted<V> {
+    private final V value;
+    private int count = 1;
+
+    Counted(V value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * A summary of what an interner holds and saves.
+   */
+  public static final class Stats {
+    private final long interned;
+    private final int distinctEvents;
+    private final int distinctStrings;
+    private final int distinctTimes;
+    private final int distinctAttendeeSets;
+    private final long bytesSaved;
+    private final long tableBytes;
+
+    private Stats(long interned, int distinctEvents, int distinctStrings, int distinctTimes,
+        int distinctAttendeeSets, long bytesSaved, long tableBytes) {
+      this.interned = interned;
+      this.distinctEvents = distinctEvents;
+      this.distinctStrings = distinctStrings;
+      this.distinctTimes = distinctTimes;
+      this.distinctAttendeeSets = distinctAttendeeSets;
+      this.bytesSaved = bytesSaved;
+      this.tableBytes = tableBytes;
+    }
+
+    /**
+     * Returns how many events have been interned, counting every copy.
+     */
+    public long getInterned() {
+      return interned;
+    }
+
+    /**
+     * Returns how many distinct events are currently held.
+     */
+    public int getDistinctEvents() {
+      return distinctEvents;
+    }
+
+    /**
+     * Returns how many distinct titles and attendee names are held.
+     */
+    public int getDistinctStrings() {
+      return distinctStrings;
+    }
+
+    /**
+     * Returns how many distinct times are held.
+     */
+    public int getDistinctTimes() {
+      return distinctTimes;
+    }
+
+    /**
+     * Returns how many distinct attendee sets are held.
+     */
+    public int getDistinctAttendeeSets() {
+      return distinctAttendeeSets;
+    }
+
+    /**
+     * Returns an estimate of the bytes that duplicate copies of the events held now would take,
+     * less {@code getTableBytes}. Negative if interning costs more than it saves.
+     */
+    public long getBytesSaved() {
+      return bytesSaved;
+    }
+
+    /**
+     * Returns an estimate of the bytes the interner's own tables take.
+     */
+    public long getTableBytes() {
+      return tableBytes;
+    }
+  }
+}
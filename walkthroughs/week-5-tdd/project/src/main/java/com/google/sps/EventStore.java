@@ -0,0 +1,504 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The set of events the servlets schedule around. Every change produces a new read-only snapshot
+ * with a higher version number, so readers never see a half-applied change and can cheaply tell
+ * whether anything changed since they last looked. The most recent changes are also kept in a log
+ * so that clients can catch up with a delta instead of a full copy.
+ *
+ * <p>Events are interned as they come in, so repeated titles, times and attendee groups are
+ * stored once.
+ *
+ * <p>The store also holds named groups of attendees, such as distribution lists. Each group's
+ * merged busy times are updated along with the events and published in every snapshot, so
+ * scheduling around a group costs about as much as scheduling around one person.
+ *
+ * <p>Each attendee's events and merged busy times are kept the same way. A change only rebuilds
+ * and re-merges the lists of the attendees in the events it touches, and every other attendee's
+ * lists are carried over from the previous snapshot, so queries never index or merge.
+ *
+ * <p>Snapshots are plain copies, not persistent structures, so every write still costs
+ * O(events + attendees): the event list and the maps from attendee to lists are copied whole, a
+ * pointer per entry, before the touched entries are replaced. That suits calendars that are read
+ * far more often than written.
+ */
+public final class EventStore {
+  private static final EventStore INSTANCE = new EventStore(Arrays.asList(Events.events));
+
+  // How many changes to remember. Clients further behind than this must refetch everything.
+  private static final int MAX_LOGGED_CHANGES = 4096;
+
+  private final EventInterner interner = new EventInterner();
+
+  // Picked at random per store, so that versions handed out before a restart, or by another
+  // store, are never mistaken for versions of this one.
+  private final String epoch = Long.toHexString(new SecureRandom().nextLong());
+
+  private final AttendeeGroups groups = new AttendeeGroups();
+
+  private volatile Snapshot current;
+
+  // Changes in version order. The change at index i produced version firstLoggedVersion + i.
+  private final Deque<Change> log = new ArrayDeque<>();
+  private long firstLoggedVersion = 1;
+
+  /**
+   * Creates a store holding {@code events} at version 0.
+   */
+  public EventStore(Collection<Event> events) {
+    List<Event> interned = new ArrayList<>(events.size());
+    for (Event event : events) {
+      interned.add(interner.intern(event));
+    }
+    current = new Snapshot(0, Collections.unmodifiableList(interned), Collections.emptyMap(),
+        Attendees.EMPTY.apply(new Change(interned, Collections.emptyList())));
+  }
+
+  /**
+   * Returns the store shared by the servlets, which starts out holding {@code Events.events}.
+   */
+  public static EventStore getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the current events and the version they belong to.
+   */
+  public Snapshot getSnapshot() {
+    return current;
+  }
+
+  /**
+   * Returns the current version. Increases every time the set of events changes.
+   */
+  public long getVersion() {
+    return current.version;
+  }
+
+  /**
+   * Returns how much memory interning has saved in this store.
+   */
+  public EventInterner.Stats getInterningStats() {
+    return interner.getStats();
+  }
+
+  /**
+   * Adds an event to the store.
+   */
+  public synchronized void add(Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    event = interner.intern(event);
+    List<Event> events = new ArrayList<>(current.events);
+    events.add(event);
+    groups.add(event);
+    publish(Collections.unmodifiableList(events),
+        new Change(Collections.singletonList(event), Collections.emptyList()));
+  }
+
+  /**
+   * Removes one occurrence of an event from the store.
+   *
+   * @return true if the event was present
+   */
+  public synchronized boolean remove(Event event) {
+    List<Event> events = new ArrayList<>(current.events);
+    int index = events.indexOf(event);
+    if (index < 0) {
+      return false;
+    }
+    Event removed = events.remove(index);
+    interner.release(removed);
+    groups.remove(removed);
+    publish(Collections.unmodifiableList(events),
+        new Change(Collections.emptyList(), Collections.singletonList(removed)));
+    return true;
+  }
+
+  /**
+   * Replaces one occurrence of an event with another as a single change. Events have no identity
+   * beyond their contents, so this is how an event is moved or renamed.
+   *
+   * @return true if {@code oldEvent} was present
+   */
+  public synchronized boolean replace(Event oldEvent, Event newEvent) {
+    if (newEvent == null) {
+      throw new IllegalArgumentException("newEvent cannot be null");
+    }
+
+    List<Event> events = new ArrayList<>(current.events);
+    int index = events.indexOf(oldEvent);
+    if (index < 0) {
+      return false;
+    }
+    Event removed = events.set(index, interner.intern(newEvent));
+    interner.release(removed);
+    groups.remove(removed);
+    groups.add(events.get(index));
+    publish(Collections.unmodifiableList(events), new Change(
+        Collections.singletonList(events.get(index)), Collections.singletonList(removed)));
+    return true;
+  }
+
+  /**
+   * Creates or replaces the attendee group {@code group}. Meeting requests can then name the group
+   * instead of listing its members. Changing a group doesn't change any events, so the new
+   * version's delta is empty.
+   *
+   * @param group the name of the group
+   * @param members the people in the group
+   */
+  public synchronized void setGroup(String group, Collection<String> members) {
+    if (group == null) {
+      throw new IllegalArgumentException("group cannot be null");
+    }
+    if (members == null) {
+      throw new IllegalArgumentException("members cannot be null");
+    }
+
+    groups.define(group, members, current.events);
+    publish(current.events, new Change(Collections.emptyList(), Collections.emptyList()));
+  }
+
+  /**
+   * Deletes the attendee group {@code group}.
+   *
+   * @return true if the group existed
+   */
+  public synchronized boolean removeGroup(String group) {
+    if (!groups.undefine(group)) {
+      return false;
+    }
+    publish(current.events, new Change(Collections.emptyList(), Collections.emptyList()));
+    return true;
+  }
+
+  /**
+   * Returns a token for {@code version} of this store, for clients to hand back to
+   * {@code changesSince(String)}. Unlike the bare version, it also names this store instance.
+   */
+  public String versionToken(long version) {
+    return epoch + "." + version;
+  }
+
+  /**
+   * Like {@code changesSince(long)}, but takes a token from {@code versionToken}.
+   *
+   * @return the changes, or null if the token is malformed, came from another store instance
+   *     (such as this one before a restart), or names a version that isn't available. The client
+   *     must then fetch everything again.
+   */
+  public Delta changesSince(String token) {
+    int dot = token.lastIndexOf('.');
+    if (dot < 0 || !token.substring(0, dot).equals(epoch)) {
+      return null;
+    }
+    try {
+      return changesSince(Long.parseLong(token.substring(dot + 1)));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the net changes between {@code version} and the current version. An event that was
+   * added and then removed again in that span appears in neither list.
+   *
+   * @return the changes, or null if {@code version} is too old to be in the log or is newer than
+   *     the current version
+   */
+  public synchronized Delta changesSince(long version) {
+    long currentVersion = current.version;
+    if (version > currentVersion || version < firstLoggedVersion - 1) {
+      return null;
+    }
+
+    // Count how many copies of each event were added (positive) or removed (negative).
+    Map<Event, Integer> netChanges = new LinkedHashMap<>();
+    long changeVersion = firstLoggedVersion;
+    for (Change change : log) {
+      if (changeVersion > version) {
+        for (Event event : change.added) {
+          netChanges.merge(event, 1, Integer::sum);
+        }
+        for (Event event : change.removed) {
+          netChanges.merge(event, -1, Integer::sum);
+        }
+      }
+      changeVersion++;
+    }
+
+    List<Event> added = new ArrayList<>();
+    List<Event> removed = new ArrayList<>();
+    for (Map.Entry<Event, Integer> entry : netChanges.entrySet()) {
+      int count = entry.getValue();
+      for (int i = 0; i < Math.abs(count); i++) {
+        (count > 0 ? added : removed).add(entry.getKey());
+      }
+    }
+    return new Delta(version, currentVersion, added, removed);
+  }
+
+  /**
+   * Publishes the next snapshot.
+   *
+   * @param events the events at the new version, already read-only. Passed on as they are, so
+   *     that republishing the current events doesn't wrap them again.
+   */
+  private void publish(List<Event> events, Change change) {
+    current = new Snapshot(current.version + 1, events, groups.publish(current.groups),
+        current.attendees.apply(change));
+    log.addLast(change);
+    if (log.size() > MAX_LOGGED_CHANGES) {
+      log.removeFirst();
+      firstLoggedVersion++;
+    }
+  }
+
+  /**
+   * One logged change to the store.
+   */
+  private static final class Change {
+    private final List<Event> added;
+    private final List<Event> removed;
+
+    Change(List<Event> added, List<Event> removed) {
+      this.added = added;
+      this.removed = removed;
+    }
+  }
+
+  /**
+   * Each attendee's events and merged busy times at one version. Never modified once published.
+   */
+  private static final class Attendees {
+    static final Attendees EMPTY = new Attendees(Collections.emptyMap(), Collections.emptyMap());
+
+    final Map<String, List<Event>> events;
+    final Map<String, List<TimeRange>> busyTimes;
+
+    private Attendees(Map<String, List<Event>> events, Map<String, List<TimeRange>> busyTimes) {
+      this.events = events;
+      this.busyTimes = busyTimes;
+    }
+
+    /**
+     * Returns these lists with {@code change} applied. Only the attendees of the added and removed
+     * events get new lists, and if there are none, these lists themselves are returned.
+     */
+    Attendees apply(Change change) {
+      if (change.added.isEmpty() && change.removed.isEmpty()) {
+        return this;
+      }
+
+      Map<String, List<Event>> changedEvents = new HashMap<>();
+      for (Event event : change.removed) {
+        for (String attendee : event.getAttendees()) {
+          eventsOf(attendee, changedEvents).remove(event);
+        }
+      }
+      for (Event event : change.added) {
+        for (String attendee : event.getAttendees()) {
+          eventsOf(attendee, changedEvents).add(event);
+        }
+      }
+
+      Map<String, List<Event>> newEvents = new HashMap<>(events);
+      Map<String, List<TimeRange>> newBusyTimes = new HashMap<>(busyTimes);
+      for (Map.Entry<String, List<Event>> entry : changedEvents.entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          newEvents.remove(entry.getKey());
+          newBusyTimes.remove(entry.getKey());
+        } else {
+          newEvents.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+          newBusyTimes.put(entry.getKey(), Collections.unmodifiableList(merge(entry.getValue())));
+        }
+      }
+      return new Attendees(newEvents, newBusyTimes);
+    }
+
+    // Returns a copy of the attendee's events to change, made the first time it is needed.
+    private List<Event> eventsOf(String attendee, Map<String, List<Event>> changedEvents) {
+      return changedEvents.computeIfAbsent(attendee, key -> {
+        List<Event> previous = events.get(key);
+        return previous == null ? new ArrayList<>() : new ArrayList<>(previous);
+      });
+    }
+
+    private static List<TimeRange> merge(List<Event> events) {
+      List<TimeRange> times = new ArrayList<>(events.size());
+      for (Event event : events) {
+        times.add(event.getWhen());
+      }
+      return BusyTimes.merge(times);
+    }
+  }
+
+  /**
+   * A read-only view of the store at one version.
+   */
+  public static final class Snapshot {
+    private final long version;
+    private final List<Event> events;
+    private final Map<String, AttendeeGroups.Group> groups;
+    private final Attendees attendees;
+
+    private Snapshot(long version, List<Event> events, Map<String, AttendeeGroups.Group> groups,
+        Attendees attendees) {
+      this.version = version;
+      this.events = events;
+      this.groups = groups;
+      this.attendees = attendees;
+    }
+
+    /**
+     * Returns the version of the store this snapshot was taken at.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns a read-only list of the events at this version.
+     */
+    public List<Event> getEvents() {
+      return events;
+    }
+
+    /**
+     * Returns a read-only list of the events {@code attendee} is in at this version.
+     */
+    public List<Event> getEventsOf(String attendee) {
+      return attendees.events.getOrDefault(attendee, Collections.emptyList());
+    }
+
+    /**
+     * Returns the times {@code attendee} is busy at this version, sorted, with overlapping and
+     * touching events merged. These are kept up to date as events change, so this is a lookup.
+     */
+    public List<TimeRange> getBusyTimes(String attendee) {
+      return attendees.busyTimes.getOrDefault(attendee, Collections.emptyList());
+    }
+
+    /**
+     * Returns the names of the attendee groups at this version.
+     */
+    public Set<String> getGroups() {
+      return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    /**
+     * Returns the members of {@code group} at this version.
+     *
+     * @throws IllegalArgumentException if there is no such group
+     */
+    public Set<String> getGroupMembers(String group) {
+      return getGroup(group).members;
+    }
+
+    /**
+     * Returns the times any member of {@code group} is busy at this version, in the same form as
+     * {@code getBusyTimes}. These are kept up to date as events change, so this is a lookup.
+     *
+     * @throws IllegalArgumentException if there is no such group
+     */
+    public List<TimeRange> getGroupBusyTimes(String group) {
+      return getGroup(group).busyTimes;
+    }
+
+    /**
+     * Returns {@code request} with its groups replaced by their members at this version, for
+     * queries that work from individual attendees.
+     *
+     * @throws IllegalArgumentException if the request names a group that doesn't exist
+     */
+    public MeetingRequest expandGroups(MeetingRequest request) {
+      if (request.getGroups().isEmpty() && request.getOptionalGroups().isEmpty()) {
+        return request;
+      }
+      return request.expandGroups(this::getGroupMembers);
+    }
+
+    private AttendeeGroups.Group getGroup(String group) {
+      AttendeeGroups.Group found = groups.get(group);
+      if (found == null) {
+        throw new IllegalArgumentException("Unknown group: " + group);
+      }
+      return found;
+    }
+  }
+
+  /**
+   * The net difference between two versions of the store.
+   */
+  public static final class Delta {
+    private final long fromVersion;
+    private final long toVersion;
+    private final List<Event> added;
+    private final List<Event> removed;
+
+    private Delta(long fromVersion, long toVersion, List<Event> added, List<Event> removed) {
+      this.fromVersion = fromVersion;
+      this.toVersion = toVersion;
+      this.added = Collections.unmodifiableList(added);
+      this.removed = Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * Returns the version the client already had.
+     */
+    public long getFromVersion() {
+      return fromVersion;
+    }
+
+    /**
+     * Returns the version the client will have after applying this delta.
+     */
+    public long getToVersion() {
+      return toVersion;
+    }
+
+    /**
+     * Returns the events added since {@code getFromVersion()}.
+     */
+    public List<Event> getAdded() {
+      return added;
+    }
+
+    /**
+     * Returns the events removed since {@code getFromVersion()}.
+     */
+    public List<Event> getRemoved() {
+      return removed;
+    }
+  }
+}
@@ -29,6 +29,9 @@ public final class Events {
   private static final String PERSON_OLIVER = "Oliver";
   private static final String PERSON_OLIVIA = "Olivia";
 
+  // What booking over someone's focus time costs. Other events can't be booked over.
+  private static final int FOCUS_TIME_COST = 1;
+
   private static final int TIME_0800 = TimeRange.getTimeInMinutes(8, 0);
   private static final int TIME_0830 = TimeRange.getTimeInMinutes(8, 30);
   private static final int TIME_0900 = TimeRange.getTimeInMinutes(9, 0);
@@ -69,7 +72,7 @@ public final class Events {
       new Event("Company Year-end Review", TimeRange.fromStartEnd(TIME_1000, TIME_1100, false),
           Arrays.asList(PERSON_EMMA)),
       new Event("Head-down work", TimeRange.fromStartEnd(TIME_1430, TIME_1600, false),
-          Arrays.asList(PERSON_ISABELLA)),
+          Arrays.asList(PERSON_ISABELLA), FOCUS_TIME_COST),
       new Event("Hiring Meeting", TimeRange.fromStartEnd(TIME_1100, TIME_1200, false),
           Arrays.asList(PERSON_JAMES, PERSON_OLIVIA)),
       new Event("Hiring Review", TimeRange.fromStartEnd(TIME_0900, TIME_1000, false),
@@ -105,7 +108,7 @@ public final class Events {
       new Event("Release Planning", TimeRange.fromStartEnd(TIME_1030, TIME_1100, false),
           Arrays.asList(PERSON_LOGAN)),
       new Event("Self-study", TimeRange.fromStartEnd(TIME_1400, TIME_1430, false),
-          Arrays.asList(PERSON_OLIVIA)),
+          Arrays.asList(PERSON_OLIVIA), FOCUS_TIME_COST),
       new Event("Team Outing - Pick-up Tickets",
           TimeRange.fromStartEnd(TIME_1130, TIME_1330, false), Arrays.asList(PERSON_OLIVER)),
       new Event("Team Outing", TimeRange.fromStartEnd(TIME_1130, TIME_1400, false),
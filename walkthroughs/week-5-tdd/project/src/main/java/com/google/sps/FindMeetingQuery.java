@@ -15,15 +15,45 @@
 package com.google.sps;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 /**
  * Class used to find optimal times for a meeting to be scheduled given a list of pre-existing events
+ *
+ * <p>Queries check for interrupts as they gather and merge busy times, and stop with a
+ * {@code CancellationException} if the thread running them is interrupted, so that a query whose
+ * deadline has passed gives its worker back.
  */
 public final class FindMeetingQuery {
+  // When each attendee can be booked at all, or null if everyone can be booked all day.
+  private final AttendeeAvailability availability;
+
+  /**
+   * Creates a query that treats the whole day as bookable for everyone.
+   */
+  public FindMeetingQuery() {
+    this(null);
+  }
+
+  /**
+   * Creates a query that only suggests times inside every attendee's availability, such as their
+   * working hours.
+   */
+  public FindMeetingQuery(AttendeeAvailability availability) {
+    this.availability = availability;
+  }
+
   /**
    * Check what times, if any exist, a meeting can be scheduled so all attendees can come Will first
    * find a time that accommodates optional attendees, then if none exist, find times that work when
@@ -74,11 +104,96 @@ public final class FindMeetingQuery {
     List<TimeRange> eventTimes = eventsToSortedTimes(events, attendees);
 
     // Merge the event times into a sorted list of non-overlapping events
-    List<TimeRange> availableTimes = generateSuggestedTimes(eventTimes, request.getDuration());
+    List<TimeRange> availableTimes = new ArrayList<>();
+    Iterator<TimeRange> windows = windows(eventTimes, attendees, request, TimeRange.START_OF_DAY);
+    while (windows.hasNext()) {
+      availableTimes.add(windows.next());
+    }
 
     return availableTimes;
   }
 
+  /**
+   * Answers {@code query} for every one of the request's durations at once. The free windows are
+   * found once, for the shortest duration, and each window is then put in the bucket of every
+   * duration it is long enough for, rather than filtering, sorting and merging the events again
+   * for each length. Optional attendees are accommodated per duration, as {@code query} would.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param request a request listing the durations to try, as from
+   *     {@code MeetingRequest(Collection, Collection)}
+   * @return the times for each duration, keyed by duration from shortest to longest
+   */
+  public Map<Long, List<TimeRange>> queryDurations(
+      Collection<Event> events, MeetingRequest request) {
+    List<Long> durations = request.getDurations();
+    Set<String> everyone = attendeesOf(request, false);
+    List<TimeRange> withOptional = freeWindows(events, everyone, request, durations.get(0));
+    List<TimeRange> withoutOptional = null;
+
+    Map<Long, List<TimeRange>> times =
+        bucketByDuration(withOptional, durations, bookableMinutes(everyone) != null);
+    if (request.getAttendees().size() > 0) {
+      Set<String> required = null;
+      for (Map.Entry<Long, List<TimeRange>> entry : times.entrySet()) {
+        if (!entry.getValue().isEmpty()) {
+          continue;
+        }
+        if (withoutOptional == null) {
+          // Only merged if some duration needs it, and then only once.
+          required = attendeesOf(request, true);
+          withoutOptional = freeWindows(events, required, request, durations.get(0));
+        }
+        entry.setValue(bucketByDuration(withoutOptional, Collections.singletonList(entry.getKey()),
+            bookableMinutes(required) != null).get(entry.getKey()));
+      }
+    }
+    return times;
+  }
+
+  private static Set<String> attendeesOf(MeetingRequest request, boolean ignoreOptional) {
+    HashSet<String> attendees = new HashSet<>(request.getAttendees());
+    if (!ignoreOptional) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+    return attendees;
+  }
+
+  private List<TimeRange> freeWindows(Collection<Event> events, Set<String> attendees,
+      MeetingRequest request, long shortest) {
+    List<TimeRange> windows = new ArrayList<>();
+    windows(eventsToSortedTimes(events, attendees), attendees, request, shortest,
+        TimeRange.START_OF_DAY).forEachRemaining(windows::add);
+    return windows;
+  }
+
+  /**
+   * Puts each window in the bucket of every duration it can hold. {@code durations} must be
+   * sorted from shortest to longest, so each window stops at the first duration it can't hold.
+   * Unless the windows were {@code clipped} to working hours, the window that runs to the end of
+   * the day is held to the same rule as in {@code AvailableTimesIterator}, which measures it to
+   * {@code TimeRange.END_OF_DAY}, so that each bucket matches what {@code query} returns.
+   */
+  private static Map<Long, List<TimeRange>> bucketByDuration(
+      List<TimeRange> windows, List<Long> durations, boolean clipped) {
+    Map<Long, List<TimeRange>> buckets = new LinkedHashMap<>();
+    for (long duration : durations) {
+      buckets.put(duration, new ArrayList<>());
+    }
+    for (TimeRange window : windows) {
+      long length = !clipped && window.end() > TimeRange.END_OF_DAY
+          ? TimeRange.END_OF_DAY - window.start()
+          : window.duration();
+      for (long duration : durations) {
+        if (length < duration) {
+          break;
+        }
+        buckets.get(duration).add(window);
+      }
+    }
+    return buckets;
+  }
+
   /**
    * Converts a list of events to a sorted list of time ranges for the events. Will remove events
    * that are irrelevant (i.e. the event attendees don't match the requestedAttendees, or the event
@@ -92,7 +207,7 @@ public final class FindMeetingQuery {
    */
   private List<TimeRange> eventsToSortedTimes(
       Collection<Event> events, Collection<String> requestedAttendees) {
-    return events.stream()
+    List<TimeRange> times = events.stream()
         .filter(
             e -> {
               HashSet<String> sharedAttendees = new HashSet<>(e.getAttendees());
@@ -100,104 +215,710 @@ public final class FindMeetingQuery {
               return sharedAttendees.size() != 0;
             })
         .map(Event::getWhen)
-        .sorted(TimeRange.ORDER_BY_START)
         .collect(Collectors.toList());
+
+    // Starts are minutes of the day, so dense days are sorted with a counting sort.
+    BusyTimes.sortByStart(times);
+    return times;
   }
 
   /**
-   * Takes in a list of all events and outputs a list of available time ranges that can accommodate
-   * the requested meeting duration
+   * Lazily finds the times a meeting can be scheduled so all attendees can come, in order from
+   * earliest to latest. Follows the same rules as {@code query}: optional attendees are
+   * accommodated if that leaves at least one window anywhere in the day, and are ignored otherwise.
+   * Windows are only computed as the caller advances the iterator, so a caller that wants the first
+   * few slots stops the merge early.
    *
-   * @param eventTimes a sorted list of event time ranges (from earliest start time to latest start
-   *     time)
-   * @param requestedDurationMinutes a length of time given in minutes for the requested meeting.
-   *     Must be > 0.
-   * @return a sorted list of non-overlapping time ranges (from earliest start time to latest start
-   *     time)
-   */
-  private List<TimeRange> generateSuggestedTimes(List<TimeRange> eventTimes, long requestedDurationMinutes) {
-    List<TimeRange> availableTimes = new ArrayList<>();
+   * @param events a collection of events that attendees have already committed to
+   * @param request a request for a new meeting that must not conflict with any existing events
+   * @param cursor the minute of the day to resume from. Windows that end before this minute are
+   *     skipped, and a window that contains it is cut to start at it. Use
+   *     {@code TimeRange.START_OF_DAY} to start from the beginning of the day.
+   * @return an iterator over the available windows starting at or after {@code cursor}
+   */
+  public Iterator<TimeRange> availableTimes(
+      Collection<Event> events, MeetingRequest request, int cursor) {
+    // Only the first window is needed to decide whether the optional attendees can be
+    // accommodated, so this check exits as soon as one is found.
+    boolean ignoreOptional = request.getAttendees().size() > 0
+        && !availableTimesToggleOptional(events, request, false, TimeRange.START_OF_DAY).hasNext();
+
+    return availableTimesToggleOptional(events, request, ignoreOptional, cursor);
+  }
+
+  /**
+   * Like {@code availableTimes}, but for callers that already have the attendees' busy times
+   * rather than their events, such as a coordinator that gathered them from other nodes.
+   *
+   * @param requiredBusy the busy times of the required attendees, sorted by start
+   * @param optionalBusy the busy times of the optional attendees, sorted by start
+   * @param request the meeting to find times for
+   * @param cursor the minute of the day to resume from
+   * @return an iterator over the available windows starting at or after {@code cursor}
+   */
+  public Iterator<TimeRange> availableTimes(List<TimeRange> requiredBusy,
+      List<TimeRange> optionalBusy, MeetingRequest request, int cursor) {
+    HashSet<String> attendees = new HashSet<>(request.getAttendees());
+    attendees.addAll(request.getOptionalAttendees());
+    List<List<TimeRange>> allBusy = Arrays.asList(requiredBusy, optionalBusy);
+
+    if (request.getAttendees().size() > 0
+        && !windows(BusyTimes.mergeSorted(allBusy), attendees, request, request.getDuration(),
+            TimeRange.START_OF_DAY).hasNext()) {
+      return windows(requiredBusy, request.getAttendees(), request, cursor);
+    }
+    return windows(
+        BusyTimes.mergeSorted(allBusy), attendees, request, request.getDuration(), cursor);
+  }
+
+  /**
+   * Like {@code availableTimes}, but reads the events from a store snapshot. Each attendee's busy
+   * times are already merged and sorted there, so the attendees' lists are combined with a k-way
+   * merge as the windows are read, and nothing is filtered or sorted per query. The request may
+   * name attendee groups, whose merged busy times the snapshot also keeps, so a group is merged in
+   * as a single list however many members it has.
+   *
+   * @param snapshot the events that attendees have already committed to
+   * @param request a request for a new meeting that must not conflict with any existing events
+   * @param cursor the minute of the day to resume from
+   * @return an iterator over the available windows starting at or after {@code cursor}
+   */
+  public Iterator<TimeRange> availableTimes(
+      EventStore.Snapshot snapshot, MeetingRequest request, int cursor) {
+    boolean ignoreOptional = hasRequired(request)
+        && !availableTimesToggleOptional(snapshot, request, false, TimeRange.START_OF_DAY)
+            .hasNext();
+
+    return availableTimesToggleOptional(snapshot, request, ignoreOptional, cursor);
+  }
+
+  private Iterator<TimeRange> availableTimesToggleOptional(
+      EventStore.Snapshot snapshot, MeetingRequest request, boolean ignoreOptional, int cursor) {
+    HashSet<String> attendees = new HashSet<>(request.getAttendees());
+    if (!ignoreOptional) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+
+    List<List<TimeRange>> busyTimes = new ArrayList<>(attendees.size());
+    for (String attendee : attendees) {
+      busyTimes.add(snapshot.getBusyTimes(attendee));
+    }
+    List<String> groups = new ArrayList<>(request.getGroups());
+    if (!ignoreOptional) {
+      groups.addAll(request.getOptionalGroups());
+    }
+    for (String group : groups) {
+      busyTimes.add(snapshot.getGroupBusyTimes(group));
+      if (availability != null) {
+        // Availability is per person, so only then do the members matter.
+        attendees.addAll(snapshot.getGroupMembers(group));
+      }
+    }
+    return windows(BusyTimes.mergeSorted(busyTimes), attendees, request, request.getDuration(),
+        cursor);
+  }
+
+  private static boolean hasRequired(MeetingRequest request) {
+    return !request.getAttendees().isEmpty() || !request.getGroups().isEmpty();
+  }
+
+  /**
+   * Like {@code availableTimes}, but works entirely in {@code context}'s reusable arrays: no
+   * attendee sets, streams, iterators or interval lists are built. Once the context has grown to
+   * fit, the only allocations are the returned list and its time ranges.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param request a request for a new meeting that must not conflict with any existing events
+   * @param cursor the minute of the day to resume from
+   * @param limit the most windows to return
+   * @param context scratch space, such as {@code QueryContext.forCurrentThread()}
+   * @return up to {@code limit} windows starting at or after {@code cursor}, earliest first
+   */
+  public List<TimeRange> availableTimes(Collection<Event> events, MeetingRequest request,
+      int cursor, int limit, QueryContext context) {
+    context.reset();
+    for (String attendee : request.getAttendees()) {
+      context.addRequired(attendee);
+    }
+    for (String attendee : request.getOptionalAttendees()) {
+      context.addOptional(attendee);
+    }
+    for (Event event : events) {
+      checkCancelled();
+      int flags = 0;
+      for (int i = 0; i < context.requiredCount && flags == 0; i++) {
+        if (event.hasAttendee(context.required[i])) {
+          flags = QueryContext.REQUIRED;
+        }
+      }
+      for (int i = 0; i < context.optionalCount && flags == 0; i++) {
+        if (event.hasAttendee(context.optional[i])) {
+          flags = QueryContext.OPTIONAL;
+        }
+      }
+      if (flags != 0) {
+        context.addInterval(event.getWhen().start(), event.getWhen().end(), flags);
+      }
+    }
+    return answer(request, cursor, limit, context);
+  }
+
+  /**
+   * Like {@code availableTimes(Collection, MeetingRequest, int, int, QueryContext)}, but reads
+   * each attendee's and each group's merged busy times from a store snapshot instead of scanning
+   * every event.
+   */
+  public List<TimeRange> availableTimes(EventStore.Snapshot snapshot, MeetingRequest request,
+      int cursor, int limit, QueryContext context) {
+    context.reset();
+    for (String attendee : request.getAttendees()) {
+      checkCancelled();
+      context.addRequired(attendee);
+      addBusyTimes(context, snapshot.getBusyTimes(attendee), QueryContext.REQUIRED);
+    }
+    for (String attendee : request.getOptionalAttendees()) {
+      checkCancelled();
+      context.addOptional(attendee);
+      addBusyTimes(context, snapshot.getBusyTimes(attendee), QueryContext.OPTIONAL);
+    }
+    for (String group : request.getGroups()) {
+      addBusyTimes(context, snapshot.getGroupBusyTimes(group), QueryContext.REQUIRED);
+      if (availability != null) {
+        for (String member : snapshot.getGroupMembers(group)) {
+          context.addRequired(member);
+        }
+      }
+    }
+    for (String group : request.getOptionalGroups()) {
+      addBusyTimes(context, snapshot.getGroupBusyTimes(group), QueryContext.OPTIONAL);
+      if (availability != null) {
+        for (String member : snapshot.getGroupMembers(group)) {
+          context.addOptional(member);
+        }
+      }
+    }
+    return answer(request, cursor, limit, context);
+  }
+
+  /**
+   * Like {@code availableTimes(EventStore.Snapshot, MeetingRequest, int, int, QueryContext)}, but
+   * copies each attendee's merged busy times straight out of an off-heap calendar's buffers, so
+   * no events or time ranges are built on the way.
+   *
+   * @throws IllegalArgumentException if the request names attendee groups, which off-heap
+   *     calendars don't have. Expand them with {@code EventStore.Snapshot.expandGroups} first.
+   */
+  public List<TimeRange> availableTimes(OffHeapCalendar calendar, MeetingRequest request,
+      int cursor, int limit, QueryContext context) {
+    if (!request.getGroups().isEmpty() || !request.getOptionalGroups().isEmpty()) {
+      throw new IllegalArgumentException("Off-heap calendars have no attendee groups");
+    }
+
+    context.reset();
+    for (String attendee : request.getAttendees()) {
+      checkCancelled();
+      context.addRequired(attendee);
+      addBusyTimes(context, calendar, attendee, QueryContext.REQUIRED);
+    }
+    for (String attendee : request.getOptionalAttendees()) {
+      checkCancelled();
+      context.addOptional(attendee);
+      addBusyTimes(context, calendar, attendee, QueryContext.OPTIONAL);
+    }
+    return answer(request, cursor, limit, context);
+  }
+
+  private static void addBusyTimes(
+      QueryContext context, OffHeapCalendar calendar, String attendee, int flag) {
+    int id = calendar.attendeeId(attendee);
+    if (id < 0) {
+      return;
+    }
+    int end = calendar.busyFirst(id) + calendar.busyCount(id);
+    for (int position = calendar.busyFirst(id); position < end; position++) {
+      context.addInterval(calendar.busyStart(position), calendar.busyEnd(position), flag);
+    }
+  }
+
+  private static void addBusyTimes(QueryContext context, List<TimeRange> busy, int flag) {
+    for (int i = 0; i < busy.size(); i++) {
+      context.addInterval(busy.get(i).start(), busy.get(i).end(), flag);
+    }
+  }
+
+  /**
+   * Finds the windows for the intervals gathered in {@code context}, following the same rules as
+   * {@code availableTimes}, and copies them out as the answer.
+   */
+  private List<TimeRange> answer(
+      MeetingRequest request, int cursor, int limit, QueryContext context) {
+    boolean ignoreOptional = hasRequired(request)
+        && sweep(request, QueryContext.REQUIRED | QueryContext.OPTIONAL, TimeRange.START_OF_DAY,
+            1, context) == 0;
+    int wanted = ignoreOptional
+        ? QueryContext.REQUIRED : QueryContext.REQUIRED | QueryContext.OPTIONAL;
+
+    int count = sweep(request, wanted, cursor, limit, context);
+    List<TimeRange> times = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      times.add(TimeRange.fromStartEnd(context.windowStarts[i], context.windowEnds[i], false));
+    }
+    return times;
+  }
+
+  /**
+   * The array version of {@code windows}: merges the gathered intervals with any of the
+   * {@code wanted} flags and records up to {@code limit} windows in {@code context}. The intervals
+   * are put in order with a counting sort on their start minute.
+   *
+   * @return the number of windows found
+   */
+  private int sweep(
+      MeetingRequest request, int wanted, int cursor, int limit, QueryContext context) {
+    int granularity = request.getGranularity();
+    long duration = request.getDuration();
+    int day = TimeRange.WHOLE_DAY.duration();
+    if (granularity > 1) {
+      cursor = roundUp(cursor, granularity);
+    }
+
+    // Counting sort the wanted intervals by start, rounding them outward to the grid first.
+    int[] slots = context.slots;
+    Arrays.fill(slots, 0);
+    int count = 0;
+    for (int i = 0; i < context.intervalCount; i++) {
+      if ((context.flags[i] & wanted) != 0) {
+        slots[clampedStart(context.starts[i], granularity) + 1]++;
+        count++;
+      }
+    }
+    for (int minute = 1; minute < slots.length; minute++) {
+      slots[minute] += slots[minute - 1];
+    }
+    for (int i = 0; i < context.intervalCount; i++) {
+      if ((context.flags[i] & wanted) != 0) {
+        int start = clampedStart(context.starts[i], granularity);
+        int slot = slots[start]++;
+        context.sortedStarts[slot] = start;
+        context.sortedEnds[slot] =
+            granularity > 1 ? roundUp(context.ends[i], granularity) : context.ends[i];
+      }
+    }
+
+    boolean clipped = bookableMinutes(wanted, context);
+    context.windowCount = 0;
+
+    // The same merge as AvailableTimesIterator, over the sorted arrays.
+    int availableStartTime = Math.max(cursor, TimeRange.START_OF_DAY);
+    int index = 0;
+    while (index < count && context.windowCount < limit) {
+      checkCancelled();
+      int startTime = context.sortedStarts[index];
+      int endTime = context.sortedEnds[index];
+      index++;
+      while (index < count && context.sortedStarts[index] <= endTime) {
+        endTime = Math.max(endTime, context.sortedEnds[index]);
+        index++;
+      }
+
+      int windowStart = availableStartTime;
+      availableStartTime = Math.max(availableStartTime, endTime);
+      addWindow(windowStart, startTime, duration, clipped, granularity, limit, context);
+    }
+    if (context.windowCount < limit) {
+      if (clipped) {
+        addWindow(availableStartTime, day, duration, true, granularity, limit, context);
+      } else if (TimeRange.END_OF_DAY - availableStartTime >= duration) {
+        // Matches the last window of AvailableTimesIterator.
+        context.addWindow(availableStartTime, day);
+      }
+    }
+    return context.windowCount;
+  }
+
+  /**
+   * Stops the query if the thread running it has been interrupted. The interrupt is left set.
+   */
+  private static void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Query interrupted");
+    }
+  }
+
+  private static int clampedStart(int start, int granularity) {
+    start = Math.min(Math.max(start, 0), TimeRange.WHOLE_DAY.duration());
+    return start - Math.floorMod(start, granularity);
+  }
+
+  /**
+   * Records the gap {@code [start, end)} as a window, or as the bookable pieces of it if
+   * {@code clipped}, as {@code ClippedTimesIterator} does.
+   */
+  private static void addWindow(int start, int end, long duration, boolean clipped,
+      int granularity, int limit, QueryContext context) {
+    if (!clipped) {
+      if (end - start >= duration) {
+        context.addWindow(start, end);
+      }
+      return;
+    }
+
+    int position = start;
+    while (context.windowCount < limit) {
+      int runStart = context.bookable.nextSetMinute(position);
+      if (runStart < 0 || runStart >= end) {
+        return;
+      }
+      int runEnd = Math.min(context.bookable.nextClearMinute(runStart), end);
+      position = runEnd;
+      runStart = roundUp(runStart, granularity);
+      if (runEnd - runStart >= duration) {
+        context.addWindow(runStart, runEnd);
+      }
+    }
+  }
+
+  /**
+   * Fills {@code context.bookable} with the minutes every attendee in {@code context} with any of
+   * the {@code wanted} flags can be booked.
+   *
+   * @return false if they can all be booked at any time, in which case the mask is unused
+   */
+  private boolean bookableMinutes(int wanted, QueryContext context) {
+    if (availability == null) {
+      return false;
+    }
+
+    boolean restricted =
+        restrictBookable(context.required, context.requiredCount, false, context);
+    if ((wanted & QueryContext.OPTIONAL) != 0) {
+      restricted =
+          restrictBookable(context.optional, context.optionalCount, restricted, context);
+    }
+    return restricted;
+  }
+
+  private boolean restrictBookable(
+      String[] attendees, int count, boolean restricted, QueryContext context) {
+    for (int i = 0; i < count; i++) {
+      MinuteMask mask = availability.availability(attendees[i]);
+      if (mask == null) {
+        continue;
+      }
+      if (!restricted) {
+        context.bookable.set(0, context.bookable.length());
+        restricted = true;
+      }
+      context.bookable.and(mask);
+    }
+    return restricted;
+  }
+
+  private Iterator<TimeRange> availableTimesToggleOptional(
+      Collection<Event> events, MeetingRequest request, boolean ignoreOptional, int cursor) {
+    HashSet<String> attendees = new HashSet<>(request.getAttendees());
+    if (!ignoreOptional) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+
+    return windows(eventsToSortedTimes(events, attendees), attendees, request, cursor);
+  }
+
+  /**
+   * Returns the windows between {@code eventTimes} that are also inside every attendee's
+   * availability. The availability masks are applied to the merged windows directly rather than
+   * being turned into extra busy events, so time outside working hours costs nothing to merge.
+   *
+   * <p>If the request has a granularity, event times are first rounded outward to the grid. Every
+   * window then starts on the grid, and events a few minutes apart merge into one.
+   */
+  private Iterator<TimeRange> windows(List<TimeRange> eventTimes, Collection<String> attendees,
+      MeetingRequest request, int cursor) {
+    return windows(eventTimes.iterator(), attendees, request, request.getDuration(), cursor);
+  }
+
+  private Iterator<TimeRange> windows(List<TimeRange> eventTimes, Collection<String> attendees,
+      MeetingRequest request, long duration, int cursor) {
+    return windows(eventTimes.iterator(), attendees, request, duration, cursor);
+  }
+
+  private Iterator<TimeRange> windows(Iterator<TimeRange> eventTimes,
+      Collection<String> attendees, MeetingRequest request, long duration, int cursor) {
+    int granularity = request.getGranularity();
+    if (granularity > 1) {
+      eventTimes = quantize(eventTimes, granularity);
+      cursor = roundUp(cursor, granularity);
+    }
+
+    MinuteMask bookable = bookableMinutes(attendees);
+    if (bookable == null) {
+      return new AvailableTimesIterator(eventTimes, duration, cursor);
+    }
+
+    // A window that is too short overall can still hold nothing once clipped, but one that is
+    // long enough may shrink, so every gap is clipped first and filtered by length afterwards.
+    return new ClippedTimesIterator(new AvailableTimesIterator(eventTimes, 0, cursor), bookable,
+        duration, granularity);
+  }
+
+  /**
+   * Rounds each time outward to multiples of {@code granularity}, as the times are read. Rounding
+   * keeps the times in order of start.
+   */
+  private static Iterator<TimeRange> quantize(Iterator<TimeRange> eventTimes, int granularity) {
+    return new Iterator<TimeRange>() {
+      @Override
+      public boolean hasNext() {
+        return eventTimes.hasNext();
+      }
+
+      @Override
+      public TimeRange next() {
+        TimeRange time = eventTimes.next();
+        int start = time.start() - Math.floorMod(time.start(), granularity);
+        return TimeRange.fromStartEnd(start, roundUp(time.end(), granularity), false);
+      }
+    };
+  }
+
+  private static int roundUp(int minute, int granularity) {
+    return minute + Math.floorMod(-minute, granularity);
+  }
+
+  /**
+   * Returns the minutes every one of {@code attendees} can be booked, or null if they can all be
+   * booked at any time.
+   */
+  private MinuteMask bookableMinutes(Collection<String> attendees) {
+    if (availability == null) {
+      return null;
+    }
+
+    MinuteMask bookable = null;
+    for (String attendee : attendees) {
+      MinuteMask mask = availability.availability(attendee);
+      if (mask == null) {
+        continue;
+      }
+      if (bookable == null) {
+        bookable = mask.copy();
+      } else {
+        bookable.and(mask);
+      }
+    }
+    return bookable;
+  }
+
+  /**
+   * Walks a sorted list of event times, merging overlapping events and producing the windows of
+   * availability between them one at a time.
+   */
+  private static final class AvailableTimesIterator implements Iterator<TimeRange> {
+    private final Iterator<TimeRange> eventTimes;
+    private final long requestedDurationMinutes;
 
     // Store the startTime of the next availability window.
-    // First window of time will start at the beginning of the day
-    int availableStartTime = TimeRange.START_OF_DAY;
-
-    // Iterate through all of the events
-    // merge overlapping events into one larger event
-    // And then create available time windows that work around the merged events
-    int currentEventIndex = 0;
-    while (currentEventIndex < eventTimes.size()) {
-      // The shortest the merged unavailable window can be is the length of the current window.
-      int startTime = eventTimes.get(currentEventIndex).start();
-      int endTime = eventTimes.get(currentEventIndex).end();
-
-      // Then, continue iterating through the list (if possible)
-      while (currentEventIndex < eventTimes.size() - 1) {
-        // This event is guaranteed to start later than the current startTime, since the
-        // event list is sorted
-        TimeRange compare = eventTimes.get(currentEventIndex + 1);
-
-        // Two Cases:
-        // Case 1: If the next event contains the end time of the previous,
-        // or starts when the previous one ends, the events are overlapping
-        // and the merged event should grow to the endTime of the second event
-        //
-        // Prev. Event(s) : |------|
-        // Next Event     :       |---|
-        // Merged Event   : |---------|
-        //
-        // Prev. Event(s) : |-----------------|
-        // Next Event     :      |--|
-        // Merged Event   : |-----------------|
-        //
-        // Case 2: If the next event starts later than the previous one ends,
-        // a gap of availability is identified. Merging can now stop
+    private int availableStartTime;
+
+    // The next event time, read from eventTimes but not merged yet, or null if none is pending.
+    private TimeRange pendingEvent;
+
+    // The next window to hand out, or null if it hasn't been computed yet.
+    private TimeRange nextWindow;
+
+    // True once the last window of the day has been considered.
+    private boolean finished = false;
+
+    /**
+     * @param eventTimes event time ranges in order of start (from earliest start time to latest
+     *     start time). They are only read as far as the windows asked for.
+     * @param requestedDurationMinutes a length of time given in minutes for the requested meeting.
+     *     If 0, every gap between events is returned, even empty ones.
+     * @param cursor the earliest minute a window may start at
+     */
+    AvailableTimesIterator(
+        Iterator<TimeRange> eventTimes, long requestedDurationMinutes, int cursor) {
+      this.eventTimes = eventTimes;
+      this.requestedDurationMinutes = requestedDurationMinutes;
+      this.availableStartTime = Math.max(cursor, TimeRange.START_OF_DAY);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextWindow == null) {
+        nextWindow = computeNext();
+      }
+      return nextWindow != null;
+    }
+
+    @Override
+    public TimeRange next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      TimeRange window = nextWindow;
+      nextWindow = null;
+      return window;
+    }
+
+    /**
+     * Runs the merge loop until the next window that fits the requested duration is found.
+     *
+     * @return the next window, or null if there are none left in the day
+     */
+    private TimeRange computeNext() {
+      // Iterate through the remaining events
+      // merge overlapping events into one larger event
+      // And then create available time windows that work around the merged events
+      while (peekEvent() != null) {
+        checkCancelled();
+        // The shortest the merged unavailable window can be is the length of the current window.
+        TimeRange current = takeEvent();
+        int startTime = current.start();
+        int endTime = current.end();
+
+        // Then, continue iterating through the list (if possible)
+        while (peekEvent() != null) {
+          // This event is guaranteed to start later than the current startTime, since the
+          // event list is sorted
+          TimeRange compare = peekEvent();
+
+          // Two Cases:
+          // Case 1: If the next event contains the end time of the previous,
+          // or starts when the previous one ends, the events are overlapping
+          // and the merged event should grow to the endTime of the second event
+          //
+          // Prev. Event(s) : |------|
+          // Next Event     :       |---|
+          // Merged Event   : |---------|
+          //
+          // Prev. Event(s) : |-----------------|
+          // Next Event     :      |--|
+          // Merged Event   : |-----------------|
+          //
+          // Case 2: If the next event starts later than the previous one ends,
+          // a gap of availability is identified. Merging can now stop
+          //
+          // Prev. Event(s) : |------|
+          // Next Event     :          |-----|
+          // No merge. Move on.
+          //
+          if (compare.start() <= endTime) {
+            endTime = Math.max(compare.end(), endTime);
+            takeEvent();
+          } else {
+            break;
+          }
+        }
+
+        // Using the start time of the next window that has been saved and
+        // the start time of this merged event, check if a window of availability
+        // that can fit the requested meeting duration is available. Then, update
+        // the start time of the next window, and continue the loop.
         //
-        // Prev. Event(s) : |------|
-        // Next Event     :          |-----|
-        // No merge. Move on.
+        // Previous Start Time  :     |
+        // Current Merged Event :           |--------|
+        // Day                  : |----------------------|
+        // New Window           :     |-----|
+        // Next start time      :                    |
         //
-        if (compare.start() <= endTime) {
-          endTime = Math.max(compare.end(), endTime);
-          currentEventIndex++;
-        } else {
-          break;
+        // The start time never moves backwards, so merged events that end before the cursor
+        // are skipped.
+        int windowStart = availableStartTime;
+        availableStartTime = Math.max(availableStartTime, endTime);
+        if (startTime - windowStart >= requestedDurationMinutes) {
+          return TimeRange.fromStartEnd(windowStart, startTime, false);
         }
       }
 
-      // Using the start time of the next window that has been saved and
-      // the start time of this merged event, check if a window of availability
-      // that can fit the requested meeting duration is available. Then, update
-      // the start time of the next window, and continue the loop.
+      // This handles the last availability window, which will span to the end of the day
+      // Add if it can fit the requested meeting length
       //
-      // Previous Start Time  :     |
-      // Current Merged Event :           |--------|
-      // Day                  : |----------------------|
-      // New Window           :     |-----|
-      // Next start time      :                    |
-      if (startTime - availableStartTime >= requestedDurationMinutes) {
-        TimeRange availablePeriod =
-            TimeRange.fromStartEnd(availableStartTime, startTime, false);
-        availableTimes.add(availablePeriod);
-      }
-
-      currentEventIndex++;
-      availableStartTime = endTime;
-    }
-
-    // This handles the last availability window, which will span to the end of the day
-    // Add if it can fit the requested meeting length
-    //
-    // Previous Start Time :             |
-    // Day                 : |------------------|
-    // Last Window         :             |------|
-    if (TimeRange.END_OF_DAY - availableStartTime >= requestedDurationMinutes) {
-      TimeRange availablePeriod =
-          TimeRange.fromStartEnd(availableStartTime, TimeRange.END_OF_DAY, true);
-      availableTimes.add(availablePeriod);
-    }
-
-    // Return list of available windows
-    return availableTimes;
+      // Previous Start Time :             |
+      // Day                 : |------------------|
+      // Last Window         :             |------|
+      if (!finished) {
+        finished = true;
+        if (TimeRange.END_OF_DAY - availableStartTime >= requestedDurationMinutes) {
+          return TimeRange.fromStartEnd(availableStartTime, TimeRange.END_OF_DAY, true);
+        }
+      }
+
+      return null;
+    }
+
+    private TimeRange peekEvent() {
+      if (pendingEvent == null && eventTimes.hasNext()) {
+        pendingEvent = eventTimes.next();
+      }
+      return pendingEvent;
+    }
+
+    private TimeRange takeEvent() {
+      TimeRange event = peekEvent();
+      pendingEvent = null;
+      return event;
+    }
+  }
+
+  /**
+   * Cuts each window from another iterator down to the bookable minutes inside it, skipping pieces
+   * too short for the meeting. Each piece starts on the grid.
+   */
+  private static final class ClippedTimesIterator implements Iterator<TimeRange> {
+    private final Iterator<TimeRange> windows;
+    private final MinuteMask bookable;
+    private final long requestedDurationMinutes;
+    private final int granularity;
+
+    // The window being clipped, and where in it to look for the next bookable run.
+    private TimeRange window;
+    private int position;
+
+    private TimeRange nextWindow;
+
+    ClippedTimesIterator(Iterator<TimeRange> windows, MinuteMask bookable,
+        long requestedDurationMinutes, int granularity) {
+      this.windows = windows;
+      this.bookable = bookable;
+      this.requestedDurationMinutes = requestedDurationMinutes;
+      this.granularity = granularity;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (nextWindow == null) {
+        if (window == null) {
+          if (!windows.hasNext()) {
+            return false;
+          }
+          window = windows.next();
+          position = window.start();
+        }
+
+        int runStart = bookable.nextSetMinute(position);
+        if (runStart < 0 || runStart >= window.end()) {
+          window = null;
+          continue;
+        }
+        int runEnd = Math.min(bookable.nextClearMinute(runStart), window.end());
+        position = runEnd;
+        runStart = roundUp(runStart, granularity);
+        if (runEnd - runStart >= requestedDurationMinutes) {
+          nextWindow = TimeRange.fromStartEnd(runStart, runEnd, false);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public TimeRange next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      TimeRange clipped = nextWindow;
+      nextWindow = null;
+      return clipped;
+    }
   }
 }
@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of free/busy data: when each of a list of attendees is busy within a
+ * window, without anything about the events themselves. Busy times are merged, so each is followed
+ * by free time, and each is written as the free minutes before it and its length. All integers are
+ * {@code Varints}, so a typical busy time takes two or three bytes.
+ *
+ * <pre>
+ * window start, window end
+ * attendee count, then for each attendee, in the order they were asked for:
+ *   busy time count, then for each busy time:
+ *     minutes since the end of the previous busy time (or the start of the window)
+ *     duration in minutes
+ * </pre>
+ */
+public final class FreeBusyCodec {
+  /** The content type of encoded free/busy data. */
+  public static final String CONTENT_TYPE = "application/x-sps-freebusy";
+
+  // Limits that stop a malformed payload from allocating without bound.
+  private static final int MAX_ATTENDEES = 100_000;
+  private static final int MAX_MINUTES = Integer.MAX_VALUE / 2;
+
+  private FreeBusyCodec() {
+    // Disallow instances.
+  }
+
+  /**
+   * Writes the busy times of {@code attendees} within {@code window}, clipped to it.
+   */
+  public static void write(OutputStream out, EventStore.Snapshot snapshot, List<String> attendees,
+      TimeRange window) throws IOException {
+    Varints.write(out, window.start());
+    Varints.write(out, window.end());
+    Varints.write(out, attendees.size());
+    for (String attendee : attendees) {
+      writeTimes(out, clip(snapshot.getBusyTimes(attendee), window), window.start());
+    }
+  }
+
+  /**
+   * Reads data written by {@code write}.
+   *
+   * @return the busy times of each attendee, in the order they were written
+   * @throws IOException if the input is truncated or malformed
+   */
+  public static List<List<TimeRange>> read(InputStream in) throws IOException {
+    int start = Varints.readInt(in, MAX_MINUTES);
+    int end = Varints.readInt(in, MAX_MINUTES);
+    if (end < start) {
+      throw new IOException("Window ends before it starts");
+    }
+    int attendeeCount = Varints.readInt(in, MAX_ATTENDEES);
+    List<List<TimeRange>> busy = new ArrayList<>(attendeeCount);
+    for (int i = 0; i < attendeeCount; i++) {
+      busy.add(readTimes(in, start, end));
+    }
+    return busy;
+  }
+
+  /**
+   * Writes sorted, non-overlapping times as gaps and lengths, starting from {@code origin}.
+   */
+  static void writeTimes(OutputStream out, List<TimeRange> times, int origin) throws IOException {
+    Varints.write(out, times.size());
+    int previousEnd = origin;
+    for (TimeRange time : times) {
+      Varints.write(out, time.start() - previousEnd);
+      Varints.write(out, time.duration());
+      previousEnd = time.end();
+    }
+  }
+
+  /**
+   * Reads times written by {@code writeTimes}.
+   *
+   * @throws IOException if the input is truncated or a time goes past {@code limit}
+   */
+  static List<TimeRange> readTimes(InputStream in, int origin, int limit) throws IOException {
+    // Every time is at least one minute long, so there can't be more than the span allows.
+    int count = Varints.readInt(in, limit - origin);
+    List<TimeRange> times = new ArrayList<>(count);
+    int previousEnd = origin;
+    for (int i = 0; i < count; i++) {
+      int start = previousEnd + Varints.readInt(in, limit - previousEnd);
+      TimeRange time = TimeRange.fromStartDuration(start, Varints.readInt(in, limit - start));
+      times.add(time);
+      previousEnd = time.end();
+    }
+    return times;
+  }
+
+  private static List<TimeRange> clip(List<TimeRange> times, TimeRange window) {
+    List<TimeRange> clipped = new ArrayList<>();
+    for (TimeRange time : times) {
+      int start = Math.max(time.start(), window.start());
+      int end = Math.min(time.end(), window.end());
+      if (start < end) {
+        clipped.add(TimeRange.fromStartEnd(start, end, false));
+      }
+    }
+    return clipped;
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a sharded deployment on this machine, with each {@code ShardNode} in its own JVM, so that
+ * sharding can be tested and its fan-out latency measured without real infrastructure.
+ */
+public final class LocalShardCluster implements AutoCloseable {
+  private static final String READY_PREFIX = "LISTENING ";
+
+  private final List<Process> processes = new ArrayList<>();
+  private final List<String> urls = new ArrayList<>();
+
+  /**
+   * Starts {@code shardCount} node processes, each holding its share of {@code Events.events},
+   * and waits until they are all listening.
+   */
+  public LocalShardCluster(int shardCount) throws IOException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java";
+    String classPath = System.getProperty("java.class.path");
+    try {
+      for (int shard = 0; shard < shardCount; shard++) {
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath,
+            ShardNode.class.getName(), Integer.toString(shard), Integer.toString(shardCount));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        processes.add(builder.start());
+      }
+      for (Process process : processes) {
+        urls.add("http://localhost:" + awaitPort(process));
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private static int awaitPort(Process process) throws IOException {
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    String line = reader.readLine();
+    if (line == null || !line.startsWith(READY_PREFIX)) {
+      throw new IOException("Shard node failed to start: " + line);
+    }
+    return Integer.parseInt(line.substring(READY_PREFIX.length()).trim());
+  }
+
+  /**
+   * Returns the base URL of each node, in shard order.
+   */
+  public List<String> getUrls() {
+    return Collections.unmodifiableList(urls);
+  }
+
+  @Override
+  public void close() {
+    for (Process process : processes) {
+      process.destroy();
+    }
+  }
+
+  /**
+   * Starts a local cluster and sends it random meeting requests drawn from the attendees of
+   * {@code Events.events}, then prints the mean fan-out latency.
+   *
+   * <p>Arguments: shard count (default 4) and number of requests (default 1000).
+   */
+  public static void main(String[] args) throws IOException {
+    int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int requestCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+    List<String> people = new ArrayList<>();
+    for (Event event : Events.events) {
+      for (String attendee : event.getAttendees()) {
+        if (!people.contains(attendee)) {
+          people.add(attendee);
+        }
+      }
+    }
+
+    Random random = new Random(0);
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    try (LocalShardCluster cluster = new LocalShardCluster(shardCount);
+        ShardedMeetingQuery query = new ShardedMeetingQuery(cluster.getUrls())) {
+      int windows = 0;
+      for (int i = 0; i < requestCount; i++) {
+        Collections.shuffle(people, random);
+        MeetingRequest request =
+            new MeetingRequest(people.subList(0, 1 + random.nextInt(people.size())), 30);
+        Iterator<TimeRange> times =
+            query.availableTimes(findMeetingQuery, request, TimeRange.START_OF_DAY);
+        while (times.hasNext()) {
+          times.next();
+          windows++;
+        }
+      }
+      System.out.printf("%d shards, %d requests, %d windows, mean fan-out %d us%n",
+          shardCount, requestCount, windows, query.getMeanFanOutMicros());
+    }
+  }
+}
@@ -19,6 +19,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 
 public final class MeetingRequest {
   // All the people that should be attending this new meeting. Use a set to avoid duplicates.
@@ -27,12 +31,46 @@ public final class MeetingRequest {
   // Some optional attendees for this new meeting. Use a set to avoid duplicates.
   private final Collection<String> optional_attendees = new HashSet<>();
 
+  // Named attendee groups whose members are all required, and groups whose members are all
+  // optional. Use sets to avoid duplicates. Gson skips initializers, so requests parsed from JSON
+  // without groups leave these null until a group is added.
+  private Collection<String> groups = new HashSet<>();
+  private Collection<String> optional_groups = new HashSet<>();
+
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // The smallest resource (such as a room) the meeting needs, or 0 if it doesn't need one.
+  private int min_resource_capacity = 0;
+
+  // The grid, in minutes, that the meeting must start on, or 0 if it can start on any minute.
+  private int granularity = 0;
+
+  // Every duration to find times for, shortest first, or null if there is only {@code duration}.
+  private final List<Long> durations;
+
   public MeetingRequest(Collection<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
+    this.durations = null;
+  }
+
+  /**
+   * Creates a request that asks for times for several possible lengths of the same meeting at
+   * once. {@code getDuration} returns the shortest of them.
+   */
+  public MeetingRequest(Collection<String> attendees, Collection<Long> durations) {
+    if (durations == null || durations.isEmpty()) {
+      throw new IllegalArgumentException("durations cannot be empty");
+    }
+    List<Long> sorted = new ArrayList<>(new TreeSet<>(durations));
+    if (sorted.get(0) < 0) {
+      throw new IllegalArgumentException("durations cannot be negative");
+    }
+
+    this.duration = sorted.get(0);
+    this.attendees.addAll(attendees);
+    this.durations = Collections.unmodifiableList(sorted);
   }
 
   /**
@@ -58,10 +96,139 @@ public final class MeetingRequest {
     }
   }
 
+  /**
+   * Requires every member of the attendee group {@code group}, such as a distribution list. Groups
+   * are defined in the {@code EventStore}: the snapshot versions of
+   * {@code FindMeetingQuery.availableTimes} schedule around a group's merged busy times directly,
+   * and {@code EventStore.Snapshot.expandGroups} turns groups into attendees for everything else.
+   */
+  public void addGroup(String group) {
+    if (groups == null) {
+      groups = new HashSet<>();
+    }
+    groups.add(group);
+    if (optional_groups != null) {
+      optional_groups.remove(group);
+    }
+  }
+
+  /**
+   * Adds every member of the attendee group {@code group} as an optional attendee.
+   */
+  public void addOptionalGroup(String group) {
+    if (!getGroups().contains(group)) {
+      if (optional_groups == null) {
+        optional_groups = new HashSet<>();
+      }
+      optional_groups.add(group);
+    }
+  }
+
+  /**
+   * Returns a read-only view of the groups whose members are required to attend, not a
+   * copy.
+   */
+  public Collection<String> getGroups() {
+    return groups == null
+        ? Collections.emptySet() : Collections.unmodifiableCollection(groups);
+  }
+
+  /**
+   * Returns a read-only view of the groups whose members are optional to attend, not a
+   * copy.
+   */
+  public Collection<String> getOptionalGroups() {
+    return optional_groups == null
+        ? Collections.emptySet() : Collections.unmodifiableCollection(optional_groups);
+  }
+
+  /**
+   * Returns a copy of this request with its groups replaced by their members. Members of required
+   * groups become required attendees, and members of optional groups become optional attendees
+   * unless they are already required.
+   *
+   * @param membersOf returns the members of a group
+   */
+  public MeetingRequest expandGroups(Function<String, Collection<String>> membersOf) {
+    Set<String> required = new HashSet<>(getAttendees());
+    for (String group : getGroups()) {
+      required.addAll(membersOf.apply(group));
+    }
+
+    MeetingRequest expanded = durations == null || durations.isEmpty()
+        ? new MeetingRequest(required, duration)
+        : new MeetingRequest(required, durations);
+    for (String attendee : getOptionalAttendees()) {
+      expanded.addOptionalAttendee(attendee);
+    }
+    for (String group : getOptionalGroups()) {
+      for (String member : membersOf.apply(group)) {
+        expanded.addOptionalAttendee(member);
+      }
+    }
+    expanded.min_resource_capacity = min_resource_capacity;
+    expanded.granularity = granularity;
+    return expanded;
+  }
+
+  /**
+   * Asks for one resource that holds at least {@code minCapacity} people. Any such resource will
+   * do.
+   */
+  public void requireResource(int minCapacity) {
+    if (minCapacity <= 0) {
+      throw new IllegalArgumentException("minCapacity must be positive");
+    }
+    min_resource_capacity = minCapacity;
+  }
+
+  /**
+   * Returns the capacity the meeting's resource must have, or 0 if the meeting doesn't need one.
+   */
+  public int getMinResourceCapacity() {
+    return min_resource_capacity;
+  }
+
+  /**
+   * Only allows the meeting to start on multiples of {@code minutes}, such as every 5 or 15
+   * minutes. Busy times are rounded outward to the grid, so a slot is only offered if it is
+   * entirely free.
+   */
+  public void setGranularity(int minutes) {
+    if (minutes <= 0 || TimeRange.WHOLE_DAY.duration() % minutes != 0) {
+      throw new IllegalArgumentException("granularity must evenly divide the day");
+    }
+    granularity = minutes;
+  }
+
+  /**
+   * Returns the grid, in minutes, that the meeting must start on. 1 means any minute.
+   */
+  public int getGranularity() {
+    // Requests parsed from JSON skip the checks in setGranularity.
+    if (granularity <= 0 || TimeRange.WHOLE_DAY.duration() % granularity != 0) {
+      return 1;
+    }
+    return granularity;
+  }
+
   /**
    * Returns the duration of the meeting in minutes.
    */
   public long getDuration() {
     return duration;
   }
+
+  /**
+   * Returns every duration to find times for, in minutes, from shortest to longest. A request
+   * with a single duration returns just that one.
+   */
+  public List<Long> getDurations() {
+    if (durations == null || durations.isEmpty()) {
+      return Collections.singletonList(duration);
+    }
+    // Requests parsed from JSON skip the sorting in the constructor.
+    List<Long> sorted = new ArrayList<>(new TreeSet<>(durations));
+    return Collections.unmodifiableList(sorted);
+  }
 }
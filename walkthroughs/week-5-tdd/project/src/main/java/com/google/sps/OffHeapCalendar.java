@@ -0,0 +1,374 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A read-only calendar kept in direct byte buffers instead of as {@code Event} objects, for
+ * calendars with tens of millions of events. The garbage collector sees a handful of buffers
+ * rather than an object graph per event, and the heap only holds the attendee names, so its size
+ * depends on the number of people and not on the number of events.
+ *
+ * <p>The buffers use a fixed layout, in native byte order:
+ *
+ * <ul>
+ *   <li>events: one {@code EVENT_BYTES} record per event holding its start, end, override cost,
+ *       title offset and length, and attendee offset and count
+ *   <li>attendees: the attendee ids of every event, back to back
+ *   <li>titles: the UTF-8 titles of every event, back to back
+ *   <li>busy: each attendee's merged busy times, sorted, as (start, end) pairs
+ *   <li>index: each attendee's first busy pair and number of busy pairs
+ * </ul>
+ *
+ * <p>{@code FindMeetingQuery} reads the busy times straight out of the buffers. {@code events}
+ * gives a list view for everything else, which decodes each event as it is read.
+ *
+ * <p>The direct buffers count against {@code -XX:MaxDirectMemorySize} rather than the heap. Each
+ * buffer holds at most 2 GB. Reads never change the buffers, so one calendar can be shared by
+ * any number of threads.
+ */
+public final class OffHeapCalendar {
+  // Offsets within an event record.
+  private static final int START = 0;
+  private static final int END = 4;
+  private static final int OVERRIDE_COST = 8;
+  private static final int TITLE_OFFSET = 12;
+  private static final int TITLE_LENGTH = 16;
+  private static final int ATTENDEE_OFFSET = 20;
+  private static final int ATTENDEE_COUNT = 24;
+  static final int EVENT_BYTES = 28;
+
+  private final int size;
+  private final ByteBuffer events;
+  private final ByteBuffer attendees;
+  private final ByteBuffer titles;
+  private final ByteBuffer busy;
+  private final ByteBuffer index;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Copies {@code events} into off-heap buffers. The events are read once, in order, so they can
+   * come from a lazy source such as a file reader and never all be on the heap at once.
+   */
+  public OffHeapCalendar(Iterable<Event> events) {
+    Area eventArea = new Area(1024 * EVENT_BYTES);
+    Area attendeeArea = new Area(4096);
+    Area titleArea = new Area(4096);
+    int count = 0;
+    for (Event event : events) {
+      byte[] title = event.getTitle().getBytes(StandardCharsets.UTF_8);
+      int record = eventArea.allocate(EVENT_BYTES);
+      int titleOffset = titleArea.allocate(title.length);
+      int attendeeOffset = attendeeArea.allocate(event.getAttendees().size() * 4);
+
+      ByteBuffer buffer = eventArea.buffer;
+      buffer.putInt(record + START, event.getWhen().start());
+      buffer.putInt(record + END, event.getWhen().end());
+      buffer.putInt(record + OVERRIDE_COST, event.getOverrideCost());
+      buffer.putInt(record + TITLE_OFFSET, titleOffset);
+      buffer.putInt(record + TITLE_LENGTH, title.length);
+      buffer.putInt(record + ATTENDEE_OFFSET, attendeeOffset);
+      buffer.putInt(record + ATTENDEE_COUNT, event.getAttendees().size());
+      for (int i = 0; i < title.length; i++) {
+        titleArea.buffer.put(titleOffset + i, title[i]);
+      }
+      int position = attendeeOffset;
+      for (String attendee : event.getAttendees()) {
+        attendeeArea.buffer.putInt(position, intern(attendee));
+        position += 4;
+      }
+      count++;
+    }
+
+    this.size = count;
+    this.events = eventArea.trimmed();
+    this.attendees = attendeeArea.trimmed();
+    this.titles = titleArea.trimmed();
+    this.index = allocate(Math.max(names.size() * 8, 8));
+    this.busy = buildBusyTimes(attendeeArea.used / 4);
+  }
+
+  private int intern(String attendee) {
+    Integer id = ids.get(attendee);
+    if (id == null) {
+      id = names.size();
+      ids.put(attendee, id);
+      names.add(attendee);
+    }
+    return id;
+  }
+
+  /**
+   * Lays out every attendee's event times next to each other, then sorts and merges each
+   * attendee's times in place, as {@code BusyTimes.merge} would, and fills in the index.
+   *
+   * @param pairs the number of (event, attendee) pairs
+   */
+  private ByteBuffer buildBusyTimes(int pairs) {
+    int[] firsts = new int[names.size() + 1];
+    for (int e = 0; e < size; e++) {
+      int record = e * EVENT_BYTES;
+      int offset = events.getInt(record + ATTENDEE_OFFSET);
+      for (int a = 0; a < events.getInt(record + ATTENDEE_COUNT); a++) {
+        firsts[attendees.getInt(offset + a * 4) + 1]++;
+      }
+    }
+    for (int id = 0; id < names.size(); id++) {
+      firsts[id + 1] += firsts[id];
+    }
+
+    if (pairs > (Integer.MAX_VALUE - 8) / 8) {
+      throw new IllegalStateException("Calendar too large for one buffer");
+    }
+    ByteBuffer times = allocate(Math.max(pairs * 8, 8));
+    int[] fill = Arrays.copyOf(firsts, names.size());
+    for (int e = 0; e < size; e++) {
+      int record = e * EVENT_BYTES;
+      int offset = events.getInt(record + ATTENDEE_OFFSET);
+      for (int a = 0; a < events.getInt(record + ATTENDEE_COUNT); a++) {
+        int pair = fill[attendees.getInt(offset + a * 4)]++;
+        times.putInt(pair * 8, events.getInt(record + START));
+        times.putInt(pair * 8 + 4, events.getInt(record + END));
+      }
+    }
+
+    // One person's events are few, so each attendee's times are sorted on the heap.
+    long[] sorted = new long[0];
+    for (int id = 0; id < names.size(); id++) {
+      int first = firsts[id];
+      int count = firsts[id + 1] - first;
+      if (sorted.length < count) {
+        sorted = new long[Math.max(count, sorted.length * 2)];
+      }
+      for (int i = 0; i < count; i++) {
+        int pair = (first + i) * 8;
+        sorted[i] = ((long) times.getInt(pair) << 32) | (times.getInt(pair + 4) & 0xFFFFFFFFL);
+      }
+      Arrays.sort(sorted, 0, count);
+
+      int merged = 0;
+      for (int i = 0; i < count; i++) {
+        int start = (int) (sorted[i] >> 32);
+        int end = (int) sorted[i];
+        int last = (first + merged - 1) * 8;
+        if (merged > 0 && start <= times.getInt(last + 4)) {
+          times.putInt(last + 4, Math.max(end, times.getInt(last + 4)));
+        } else if (end > start) {
+          times.putInt((first + merged) * 8, start);
+          times.putInt((first + merged) * 8 + 4, end);
+          merged++;
+        }
+      }
+      index.putInt(id * 8, first);
+      index.putInt(id * 8 + 4, merged);
+    }
+    return times;
+  }
+
+  /**
+   * Returns the number of events.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes held off the heap.
+   */
+  public long offHeapBytes() {
+    return (long) events.capacity() + attendees.capacity() + titles.capacity() + busy.capacity()
+        + index.capacity();
+  }
+
+  /**
+   * Decodes the event at {@code position}, in the order the events were given.
+   */
+  public Event getEvent(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("No event at " + position);
+    }
+
+    int record = position * EVENT_BYTES;
+    byte[] title = new byte[events.getInt(record + TITLE_LENGTH)];
+    int titleOffset = events.getInt(record + TITLE_OFFSET);
+    for (int i = 0; i < title.length; i++) {
+      title[i] = titles.get(titleOffset + i);
+    }
+    List<String> eventAttendees = new ArrayList<>(events.getInt(record + ATTENDEE_COUNT));
+    int attendeeOffset = events.getInt(record + ATTENDEE_OFFSET);
+    for (int a = 0; a < events.getInt(record + ATTENDEE_COUNT); a++) {
+      eventAttendees.add(names.get(attendees.getInt(attendeeOffset + a * 4)));
+    }
+    return new Event(new String(title, StandardCharsets.UTF_8),
+        TimeRange.fromStartEnd(events.getInt(record + START), events.getInt(record + END), false),
+        eventAttendees, events.getInt(record + OVERRIDE_COST));
+  }
+
+  /**
+   * Returns a read-only view of the events, for queries that take a collection of events. Each
+   * read decodes a new {@code Event}, so callers that only need busy times should use
+   * {@code getBusyTimes} or {@code FindMeetingQuery}'s off-heap overload instead.
+   */
+  public List<Event> events() {
+    return new EventList();
+  }
+
+  /**
+   * Returns a read-only view of the times {@code attendee} is busy, sorted, with overlapping and
+   * touching events merged, as {@code EventStore.Snapshot.getBusyTimes} does.
+   */
+  public List<TimeRange> getBusyTimes(String attendee) {
+    int id = attendeeId(attendee);
+    if (id < 0) {
+      return Collections.emptyList();
+    }
+    return new BusyList(busyFirst(id), busyCount(id));
+  }
+
+  /**
+   * Returns the id of {@code attendee}, or -1 if they aren't in any event.
+   */
+  int attendeeId(String attendee) {
+    Integer id = ids.get(attendee);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the position of the first busy time of attendee {@code id}.
+   */
+  int busyFirst(int id) {
+    return index.getInt(id * 8);
+  }
+
+  /**
+   * Returns the number of busy times of attendee {@code id}.
+   */
+  int busyCount(int id) {
+    return index.getInt(id * 8 + 4);
+  }
+
+  int busyStart(int position) {
+    return busy.getInt(position * 8);
+  }
+
+  int busyEnd(int position) {
+    return busy.getInt(position * 8 + 4);
+  }
+
+  private static ByteBuffer allocate(int bytes) {
+    return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * A direct buffer that is filled from the front and grows by half when it runs out of room.
+   *
+   * <p>The events are only read once, so the sizes aren't known up front. Each time the buffer
+   * grows the old one is left for the garbage collector, which frees it before direct memory runs
+   * out, so at most about 2.5 times the bytes in use are reserved at once. Growing by half rather
+   * than doubling keeps that peak down, and {@code trimmed} drops the spare room at the end.
+   */
+  private static final class Area {
+    private ByteBuffer buffer;
+    private int used;
+
+    Area(int capacity) {
+      buffer = OffHeapCalendar.allocate(capacity);
+    }
+
+    /**
+     * Reserves {@code bytes} more bytes and returns where they start.
+     */
+    int allocate(int bytes) {
+      long needed = (long) used + bytes;
+      if (needed > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Calendar too large for one buffer");
+      }
+      if (needed > buffer.capacity()) {
+        long grown = Math.min(buffer.capacity() + buffer.capacity() / 2L, Integer.MAX_VALUE - 8);
+        buffer = copy((int) Math.max(needed, grown));
+      }
+      int start = used;
+      used = (int) needed;
+      return start;
+    }
+
+    /**
+     * Returns a buffer holding exactly the bytes in use. The area can't be used afterwards.
+     */
+    ByteBuffer trimmed() {
+      return buffer.capacity() == used ? buffer : copy(used);
+    }
+
+    private ByteBuffer copy(int capacity) {
+      ByteBuffer copy = OffHeapCalendar.allocate(capacity);
+      ByteBuffer source = buffer.duplicate();
+      // Cast so the calls bind to Buffer's methods, which return the same type on Java 8.
+      ((Buffer) source).position(0);
+      ((Buffer) source).limit(used);
+      copy.put(source);
+      return copy;
+    }
+  }
+
+  private final class EventList extends AbstractList<Event> implements RandomAccess {
+    @Override
+    public Event get(int position) {
+      return getEvent(position);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  private final class BusyList extends AbstractList<TimeRange> implements RandomAccess {
+    private final int first;
+    private final int count;
+
+    BusyList(int first, int count) {
+      this.first = first;
+      this.count = count;
+    }
+
+    @Override
+    public TimeRange get(int position) {
+      if (position < 0 || position >= count) {
+        throw new IndexOutOfBoundsException("No busy time at " + position);
+      }
+      return TimeRange.fromStartEnd(
+          busyStart(first + position), busyEnd(first + position), false);
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * Scratch space for {@code FindMeetingQuery}, so that a query doesn't allocate anything except its
+ * answer. The arrays grow to fit the largest query seen and are then reused, so once a thread has
+ * warmed up its queries produce no garbage.
+ *
+ * <p>A context must only be used by one query at a time. {@code forCurrentThread} hands out one
+ * per thread, which suits servlet worker threads.
+ */
+public final class QueryContext {
+  private static final ThreadLocal<QueryContext> CONTEXTS =
+      ThreadLocal.withInitial(QueryContext::new);
+
+  // Flags on each busy interval saying whose it is.
+  static final int REQUIRED = 1;
+  static final int OPTIONAL = 2;
+
+  // The current request's attendees, including the members of its groups when availability
+  // applies, so each event and mask can be checked without iterating a collection.
+  String[] required = new String[8];
+  int requiredCount;
+  String[] optional = new String[8];
+  int optionalCount;
+
+  // The busy intervals gathered for the current query, in no particular order.
+  int[] starts = new int[64];
+  int[] ends = new int[64];
+  int[] flags = new int[64];
+  int intervalCount;
+
+  // The intervals being swept, sorted by start.
+  int[] sortedStarts = new int[64];
+  int[] sortedEnds = new int[64];
+
+  // Counting sort slots, one per start minute of the day.
+  final int[] slots = new int[TimeRange.WHOLE_DAY.duration() + 2];
+
+  // The windows found so far.
+  int[] windowStarts = new int[16];
+  int[] windowEnds = new int[16];
+  int windowCount;
+
+  // The minutes every attendee can be booked, when some of them have limited availability.
+  final MinuteMask bookable = MinuteMask.forDay();
+
+  /**
+   * Returns this thread's context.
+   */
+  public static QueryContext forCurrentThread() {
+    return CONTEXTS.get();
+  }
+
+  /**
+   * Forgets the intervals and windows of the previous query. The arrays are kept.
+   */
+  void reset() {
+    intervalCount = 0;
+    windowCount = 0;
+    requiredCount = 0;
+    optionalCount = 0;
+  }
+
+  void addRequired(String attendee) {
+    if (requiredCount == required.length) {
+      required = Arrays.copyOf(required, requiredCount * 2);
+    }
+    required[requiredCount++] = attendee;
+  }
+
+  void addOptional(String attendee) {
+    if (optionalCount == optional.length) {
+      optional = Arrays.copyOf(optional, optionalCount * 2);
+    }
+    optional[optionalCount++] = attendee;
+  }
+
+  void addInterval(int start, int end, int flag) {
+    if (intervalCount == starts.length) {
+      starts = Arrays.copyOf(starts, intervalCount * 2);
+      ends = Arrays.copyOf(ends, intervalCount * 2);
+      flags = Arrays.copyOf(flags, intervalCount * 2);
+      sortedStarts = new int[intervalCount * 2];
+      sortedEnds = new int[intervalCount * 2];
+    }
+    starts[intervalCount] = start;
+    ends[intervalCount] = end;
+    flags[intervalCount] = flag;
+    intervalCount++;
+  }
+
+  void addWindow(int start, int end) {
+    if (windowCount == windowStarts.length) {
+      windowStarts = Arrays.copyOf(windowStarts, windowCount * 2);
+      windowEnds = Arrays.copyOf(windowEnds, windowCount * 2);
+    }
+    windowStarts[windowCount] = start;
+    windowEnds[windowCount] = end;
+    windowCount++;
+  }
+}
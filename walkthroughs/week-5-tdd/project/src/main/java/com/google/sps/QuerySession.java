@@ -0,0 +1,240 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A meeting request that is edited one attendee at a time, such as while someone builds it up in
+ * the UI. The busy time of the current attendees is kept between edits, so adding or removing a
+ * person only touches that person's busy times instead of every event.
+ *
+ * <p>Busy time is kept as a per-minute count of how many attendees are busy, stored as a
+ * difference array: adding a person adds one at the start of each of their merged busy times and
+ * subtracts one at the end, and removing them undoes exactly that. Edits therefore cost the number
+ * of that person's busy times, and a query is one pass over the day. Required and optional
+ * attendees have separate counts so the optional attendees can be dropped as in
+ * {@code FindMeetingQuery}.
+ *
+ * <p>Events that change in the store are picked up on the next call. Only the attendees of the
+ * changed events are recomputed.
+ */
+public final class QuerySession {
+  private static final int DAY_MINUTES = TimeRange.WHOLE_DAY.duration();
+
+  private final EventStore store;
+  private long version;
+
+  // The busy times that have been added to the counts for each attendee.
+  private final Map<String, List<TimeRange>> required = new HashMap<>();
+  private final Map<String, List<TimeRange>> optional = new HashMap<>();
+
+  // Differences of the number of busy required attendees, and of all busy attendees, per minute.
+  private final int[] requiredBusyDelta = new int[DAY_MINUTES + 1];
+  private final int[] allBusyDelta = new int[DAY_MINUTES + 1];
+
+  public QuerySession(EventStore store) {
+    this.store = store;
+    this.version = store.getVersion();
+  }
+
+  /**
+   * Adds a required attendee. An optional attendee with the same name becomes required.
+   */
+  public synchronized void addAttendee(String attendee) {
+    refresh();
+    if (required.containsKey(attendee)) {
+      return;
+    }
+    removeAttendee(attendee);
+    List<TimeRange> busy = store.getSnapshot().getBusyTimes(attendee);
+    required.put(attendee, busy);
+    mark(busy, 1, true);
+  }
+
+  /**
+   * Adds an optional attendee. Does nothing if they are already required.
+   */
+  public synchronized void addOptionalAttendee(String attendee) {
+    refresh();
+    if (required.containsKey(attendee) || optional.containsKey(attendee)) {
+      return;
+    }
+    List<TimeRange> busy = store.getSnapshot().getBusyTimes(attendee);
+    optional.put(attendee, busy);
+    mark(busy, 1, false);
+  }
+
+  /**
+   * Removes an attendee, whether required or optional.
+   */
+  public synchronized void removeAttendee(String attendee) {
+    refresh();
+    List<TimeRange> busy = required.remove(attendee);
+    if (busy != null) {
+      mark(busy, -1, true);
+    }
+    busy = optional.remove(attendee);
+    if (busy != null) {
+      mark(busy, -1, false);
+    }
+  }
+
+  /**
+   * Returns a read-only copy of the required attendees.
+   */
+  public synchronized Collection<String> getAttendees() {
+    return Collections.unmodifiableSet(new HashSet<>(required.keySet()));
+  }
+
+  /**
+   * Returns a read-only copy of the optional attendees.
+   */
+  public synchronized Collection<String> getOptionalAttendees() {
+    return Collections.unmodifiableSet(new HashSet<>(optional.keySet()));
+  }
+
+  /**
+   * Returns the times a meeting of {@code duration} minutes can take place with the current
+   * attendees, following the same rules as {@code FindMeetingQuery.query}.
+   */
+  public synchronized List<TimeRange> query(long duration) {
+    return query(duration, 1);
+  }
+
+  /**
+   * Like {@code query(long)}, but the meeting may only start on multiples of {@code granularity}
+   * minutes, as set by {@code MeetingRequest.setGranularity}. Busy times are rounded outward to
+   * the grid.
+   */
+  public synchronized List<TimeRange> query(long duration, int granularity) {
+    if (granularity <= 0 || DAY_MINUTES % granularity != 0) {
+      throw new IllegalArgumentException("granularity must evenly divide the day");
+    }
+
+    refresh();
+    List<TimeRange> times = freeWindows(allBusyDelta, duration, granularity);
+    if (times.isEmpty() && !required.isEmpty()) {
+      times = freeWindows(requiredBusyDelta, duration, granularity);
+    }
+    return times;
+  }
+
+  /**
+   * Brings the counts up to date with the store. Attendees of events added or removed since the
+   * last call have their busy times swapped for the current ones.
+   */
+  private void refresh() {
+    if (store.getVersion() == version) {
+      return;
+    }
+
+    EventStore.Delta delta = store.changesSince(version);
+    Set<String> changed = new HashSet<>();
+    if (delta == null) {
+      // Too far behind to catch up, so start over from the current events.
+      changed.addAll(required.keySet());
+      changed.addAll(optional.keySet());
+      version = store.getVersion();
+    } else {
+      for (Event event : delta.getAdded()) {
+        changed.addAll(event.getAttendees());
+      }
+      for (Event event : delta.getRemoved()) {
+        changed.addAll(event.getAttendees());
+      }
+      version = delta.getToVersion();
+    }
+
+    // The snapshot may be newer than the delta. Busy times are replaced outright, so anything in
+    // between is picked up either way.
+    EventStore.Snapshot snapshot = store.getSnapshot();
+    for (String attendee : changed) {
+      replace(attendee, snapshot, required, true);
+      replace(attendee, snapshot, optional, false);
+    }
+  }
+
+  private void replace(String attendee, EventStore.Snapshot snapshot,
+      Map<String, List<TimeRange>> attendees, boolean isRequired) {
+    List<TimeRange> old = attendees.get(attendee);
+    if (old == null) {
+      return;
+    }
+    List<TimeRange> busy = snapshot.getBusyTimes(attendee);
+    mark(old, -1, isRequired);
+    mark(busy, 1, isRequired);
+    attendees.put(attendee, busy);
+  }
+
+  private void mark(List<TimeRange> busy, int change, boolean isRequired) {
+    for (TimeRange time : busy) {
+      int start = Math.max(time.start(), 0);
+      int end = Math.min(time.end(), DAY_MINUTES);
+      if (start >= end) {
+        continue;
+      }
+      allBusyDelta[start] += change;
+      allBusyDelta[end] -= change;
+      if (isRequired) {
+        requiredBusyDelta[start] += change;
+        requiredBusyDelta[end] -= change;
+      }
+    }
+  }
+
+  /**
+   * Sums the differences into counts and returns the runs where nobody is busy that are at least
+   * {@code duration} minutes long once shrunk to the grid.
+   */
+  private static List<TimeRange> freeWindows(int[] busyDelta, long duration, int granularity) {
+    List<TimeRange> windows = new ArrayList<>();
+    int busy = 0;
+    int freeStart = 0;
+    for (int minute = 0; minute < DAY_MINUTES; minute++) {
+      boolean wasFree = busy == 0;
+      busy += busyDelta[minute];
+      if (wasFree && busy > 0) {
+        addWindow(windows, freeStart, minute, duration, granularity);
+      } else if (!wasFree && busy == 0) {
+        freeStart = minute;
+      }
+    }
+    if (busy == 0) {
+      // As in FindMeetingQuery, the last window of the day is measured to TimeRange.END_OF_DAY.
+      int start = freeStart + Math.floorMod(-freeStart, granularity);
+      if (TimeRange.END_OF_DAY - start >= duration) {
+        windows.add(TimeRange.fromStartEnd(start, DAY_MINUTES, false));
+      }
+    }
+    return windows;
+  }
+
+  private static void addWindow(
+      List<TimeRange> windows, int start, int end, long duration, int granularity) {
+    start += Math.floorMod(-start, granularity);
+    end -= Math.floorMod(end, granularity);
+    if (end - start >= duration) {
+      windows.add(TimeRange.fromStartEnd(start, end, false));
+    }
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Open query sessions by id. A session that hasn't been used for the time-to-live is dropped, so
+ * abandoned sessions don't hold on to memory, and no more than a fixed number are open at once.
+ */
+public final class QuerySessions {
+  /** The most sessions open at once by default. */
+  public static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+  private final EventStore store;
+  private final long ttlNanos;
+  private final int maxSessions;
+  private final LongSupplier clock;
+
+  private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+  // When expired sessions are next swept out. A sweep visits every session, so lookups only
+  // start one every quarter of the time-to-live.
+  private volatile long nextSweep;
+
+  /**
+   * @param store the events the sessions schedule around
+   * @param ttlMillis how long an unused session is kept
+   */
+  public QuerySessions(EventStore store, long ttlMillis) {
+    this(store, ttlMillis, DEFAULT_MAX_SESSIONS, System::nanoTime);
+  }
+
+  QuerySessions(EventStore store, long ttlMillis, int maxSessions, LongSupplier clock) {
+    if (maxSessions <= 0) {
+      throw new IllegalArgumentException("maxSessions must be positive");
+    }
+
+    this.store = store;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.maxSessions = maxSessions;
+    this.clock = clock;
+    this.nextSweep = clock.getAsLong();
+  }
+
+  /**
+   * Opens a new session with no attendees.
+   *
+   * @return the id to look the session up by
+   * @throws IllegalStateException if the most sessions allowed are already open
+   */
+  public synchronized String create() {
+    evictExpired(true);
+    if (sessions.size() >= maxSessions) {
+      throw new IllegalStateException("Too many open sessions");
+    }
+    String id = UUID.randomUUID().toString();
+    sessions.put(id, new Entry(new QuerySession(store), clock.getAsLong()));
+    return id;
+  }
+
+  /**
+   * Returns the session with {@code id} and restarts its time-to-live, or null if there is no
+   * such session or it has expired.
+   */
+  public QuerySession get(String id) {
+    evictExpired(false);
+    Entry entry = sessions.get(id);
+    if (entry == null) {
+      return null;
+    }
+
+    long now = clock.getAsLong();
+    if (now - entry.lastUsed > ttlNanos) {
+      sessions.remove(id, entry);
+      return null;
+    }
+    entry.lastUsed = now;
+    return entry.session;
+  }
+
+  /**
+   * Closes the session with {@code id}, if there is one.
+   */
+  public void remove(String id) {
+    sessions.remove(id);
+  }
+
+  /**
+   * Returns the number of sessions held, including expired ones that haven't been dropped yet.
+   */
+  public int size() {
+    return sessions.size();
+  }
+
+  /**
+   * Drops every expired session. Runs whenever a session is created and, at most once a quarter of
+   * the time-to-live, when one is looked up, so the number of sessions held stays proportional to
+   * the number in use.
+   *
+   * @param always whether to sweep even if the last sweep was recent
+   */
+  private void evictExpired(boolean always) {
+    long now = clock.getAsLong();
+    if (!always && now - nextSweep < 0) {
+      return;
+    }
+    nextSweep = now + ttlNanos / 4;
+    for (Iterator<Entry> entries = sessions.values().iterator(); entries.hasNext(); ) {
+      if (now - entries.next().lastUsed > ttlNanos) {
+        entries.remove();
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final QuerySession session;
+    private volatile long lastUsed;
+
+    Entry(QuerySession session, long lastUsed) {
+      this.session = session;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
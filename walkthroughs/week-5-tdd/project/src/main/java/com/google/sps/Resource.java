@@ -0,0 +1,74 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Resource is the container class for something other than a person that a meeting can need, such
+ * as a room. A resource is busy during every event that lists its name among the attendees.
+ * Resources are considered read-only.
+ */
+public final class Resource {
+  private final String name;
+  private final int capacity;
+
+  /**
+   * Creates a new resource.
+   *
+   * @param name The name events use to book this resource. Must be non-null.
+   * @param capacity How many people the resource holds. Must be >= 0.
+   */
+  public Resource(String name, int capacity) {
+    if (name == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity cannot be negative");
+    }
+
+    this.name = name;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the name events use to book this resource.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns how many people the resource holds.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Resource && name.equals(((Resource) other).name)
+        && capacity == ((Resource) other).capacity;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Resource: %s (%d)", name, capacity);
+  }
+}
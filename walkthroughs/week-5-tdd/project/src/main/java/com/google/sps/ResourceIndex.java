@@ -0,0 +1,191 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed availability of a set of interchangeable resources, such as rooms, against a fixed
+ * set of events. Answers "when can a meeting of this length start in some resource that holds at
+ * least N people" and "which resource is that" without looking at each resource in turn.
+ *
+ * <p>Resources are kept sorted by capacity. For each meeting length that has been asked about,
+ * the index keeps a segment tree over that order whose nodes hold the union of their resources'
+ * start masks (the minutes at which a meeting of that length fits in the resource). Any
+ * "capacity at least N" question is a suffix of the order, so it is answered by OR-ing
+ * logarithmically many masks, however many resources there are. Only the trees of the
+ * {@code MAX_CACHED_DURATIONS} most recently asked about lengths are kept, since each takes two
+ * masks per resource.
+ */
+public final class ResourceIndex {
+  // The most meeting lengths to keep segment trees for.
+  static final int MAX_CACHED_DURATIONS = 16;
+
+  // Sorted by capacity, smallest first.
+  private final Resource[] resources;
+
+  // The minutes each resource is free, in the same order as resources.
+  private final MinuteMask[] freeMasks;
+
+  // The number of leaves in every segment tree. A power of two at least resources.length.
+  private final int leaves;
+
+  // Segment trees of start masks, by meeting length, least recently used first. Node 1 is the root
+  // and node i has children 2i and 2i + 1. Leaf leaves + r holds resource r. Guarded by itself.
+  private final Map<Integer, MinuteMask[]> startTrees =
+      new LinkedHashMap<Integer, MinuteMask[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MinuteMask[]> eldest) {
+          return size() > MAX_CACHED_DURATIONS;
+        }
+      };
+
+  /**
+   * Builds the index.
+   *
+   * @param resources the resources to index
+   * @param events the events that book resources. An event books every resource named among its
+   *     attendees.
+   */
+  public ResourceIndex(Collection<Resource> resources, Collection<Event> events) {
+    List<Resource> sorted = new ArrayList<>(resources);
+    sorted.sort((a, b) -> Integer.compare(a.getCapacity(), b.getCapacity()));
+    this.resources = sorted.toArray(new Resource[0]);
+
+    Map<String, MinuteMask> busyByName = new HashMap<>();
+    for (Resource resource : this.resources) {
+      busyByName.put(resource.getName(), MinuteMask.forDay());
+    }
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        MinuteMask busy = busyByName.get(attendee);
+        if (busy != null) {
+          busy.set(event.getWhen().start(), event.getWhen().end());
+        }
+      }
+    }
+
+    freeMasks = new MinuteMask[this.resources.length];
+    for (int i = 0; i < this.resources.length; i++) {
+      MinuteMask free = busyByName.get(this.resources[i].getName()).copy();
+      free.invert();
+      freeMasks[i] = free;
+    }
+
+    int size = 1;
+    while (size < this.resources.length) {
+      size *= 2;
+    }
+    leaves = size;
+  }
+
+  /**
+   * Returns the minutes at which a meeting of {@code duration} minutes can start in at least one
+   * resource holding {@code minCapacity} or more people.
+   */
+  public MinuteMask availableStarts(int minCapacity, int duration) {
+    MinuteMask[] tree = startTree(duration);
+    MinuteMask starts = MinuteMask.forDay();
+
+    // Walk up from both ends of [first, resources.length), collecting the nodes that cover it.
+    int lo = firstWithCapacity(minCapacity) + leaves;
+    int hi = resources.length + leaves;
+    while (lo < hi) {
+      if ((lo & 1) == 1) {
+        starts.or(tree[lo++]);
+      }
+      if ((hi & 1) == 1) {
+        starts.or(tree[--hi]);
+      }
+      lo >>= 1;
+      hi >>= 1;
+    }
+    return starts;
+  }
+
+  /**
+   * Returns the smallest resource holding {@code minCapacity} or more people that is free for
+   * {@code duration} minutes from {@code start}, or null if there is none.
+   */
+  public Resource findFree(int minCapacity, int duration, int start) {
+    int index = find(startTree(duration), 1, 0, leaves, firstWithCapacity(minCapacity), start);
+    return index < 0 ? null : resources[index];
+  }
+
+  /**
+   * Returns the first resource at or after {@code from} in the subtree at {@code node}, which
+   * covers resources {@code [nodeLo, nodeHi)}, whose start mask has {@code start} set.
+   */
+  private int find(MinuteMask[] tree, int node, int nodeLo, int nodeHi, int from, int start) {
+    if (nodeHi <= from || !tree[node].get(start)) {
+      return -1;
+    }
+    if (node >= leaves) {
+      return node - leaves;
+    }
+    int mid = (nodeLo + nodeHi) / 2;
+    int found = find(tree, 2 * node, nodeLo, mid, from, start);
+    return found >= 0 ? found : find(tree, 2 * node + 1, mid, nodeHi, from, start);
+  }
+
+  /**
+   * Returns the index of the first resource holding at least {@code minCapacity} people, or the
+   * number of resources if none do.
+   */
+  private int firstWithCapacity(int minCapacity) {
+    int lo = 0;
+    int hi = resources.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (resources[mid].getCapacity() < minCapacity) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private MinuteMask[] startTree(int duration) {
+    synchronized (startTrees) {
+      MinuteMask[] tree = startTrees.get(duration);
+      if (tree != null) {
+        return tree;
+      }
+    }
+
+    // Built outside the lock so other lengths aren't held up. Two threads may race to build the
+    // same tree; both build the same masks, so either will do.
+    MinuteMask[] tree = new MinuteMask[2 * leaves];
+    MinuteMask empty = MinuteMask.forDay();
+    for (int i = 0; i < leaves; i++) {
+      tree[leaves + i] = i < resources.length ? freeMasks[i].runStarts(duration) : empty;
+    }
+    for (int node = leaves - 1; node >= 1; node--) {
+      MinuteMask union = tree[2 * node].copy();
+      union.or(tree[2 * node + 1]);
+      tree[node] = union;
+    }
+    synchronized (startTrees) {
+      startTrees.put(duration, tree);
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,140 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Class used to find times for a meeting that also needs a resource, such as a room, and to pick
+ * the resource. Attendees are handled as in {@code FindMeetingQuery}: optional attendees are
+ * accommodated if possible and ignored otherwise.
+ */
+public final class ResourceMeetingQuery {
+  /**
+   * Finds the times the meeting can start so that every attendee is free and, if the request
+   * needs a resource, some resource with enough capacity is free for the whole meeting.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param request the meeting to find times for
+   * @param resources the resources the meeting may use, indexed against the same events
+   * @return one booking per stretch of possible start times, at the earliest start in the
+   *     stretch that is on the request's granularity grid, from earliest to latest. Each booking
+   *     names the smallest resource that fits, or has no resource if the request doesn't need
+   *     one.
+   */
+  public List<Booking> query(
+      Collection<Event> events, MeetingRequest request, ResourceIndex resources) {
+    List<Booking> bookings = queryToggleOptional(events, request, resources, false);
+    if (bookings.isEmpty() && request.getAttendees().size() > 0) {
+      bookings = queryToggleOptional(events, request, resources, true);
+    }
+    return bookings;
+  }
+
+  private List<Booking> queryToggleOptional(Collection<Event> events, MeetingRequest request,
+      ResourceIndex resources, boolean ignoreOptional) {
+    HashSet<String> attendees = new HashSet<>(request.getAttendees());
+    if (!ignoreOptional) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+
+    List<Booking> bookings = new ArrayList<>();
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return bookings;
+    }
+    int duration = (int) request.getDuration();
+
+    // Intersect the attendees' free time with the union of the suitable resources' free time.
+    MinuteMask busy = MinuteMask.forDay();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        if (attendees.contains(attendee)) {
+          busy.set(event.getWhen().start(), event.getWhen().end());
+          break;
+        }
+      }
+    }
+    busy.invert();
+    MinuteMask starts = busy.runStarts(duration);
+
+    int minCapacity = request.getMinResourceCapacity();
+    if (minCapacity > 0) {
+      starts.and(resources.availableStarts(minCapacity, duration));
+    }
+
+    int granularity = request.getGranularity();
+    for (TimeRange stretch : starts.setRanges()) {
+      int start = stretch.start() + Math.floorMod(-stretch.start(), granularity);
+      if (start >= stretch.end()) {
+        // No start in this stretch is on the grid.
+        continue;
+      }
+      TimeRange when = TimeRange.fromStartDuration(start, duration);
+      Resource resource = minCapacity > 0 ? resources.findFree(minCapacity, duration, start) : null;
+      bookings.add(new Booking(when, resource));
+    }
+    return bookings;
+  }
+
+  /**
+   * A possible time for a meeting and the resource it would use.
+   */
+  public static final class Booking {
+    private final TimeRange when;
+    private final Resource resource;
+
+    public Booking(TimeRange when, Resource resource) {
+      this.when = when;
+      this.resource = resource;
+    }
+
+    /**
+     * Returns when the meeting would take place.
+     */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    /**
+     * Returns the resource the meeting would use, or null if it doesn't need one.
+     */
+    public Resource getResource() {
+      return resource;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Booking)) {
+        return false;
+      }
+      Booking booking = (Booking) other;
+      return when.equals(booking.when)
+          && (resource == null ? booking.resource == null : resource.equals(booking.resource));
+    }
+
+    @Override
+    public int hashCode() {
+      return when.hashCode() * 31 + (resource == null ? 0 : resource.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Booking: %s in %s", when, resource);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+public final class Resources {
+  public static final Resource[] resources = {
+      new Resource("Room 1A - Phone Booth", 1),
+      new Resource("Room 1B - Huddle", 4),
+      new Resource("Room 2A - Huddle", 4),
+      new Resource("Room 2B - Conference", 8),
+      new Resource("Room 3A - Conference", 12),
+      new Resource("Room 3B - Boardroom", 20),
+  };
+
+  private Resources() {
+    // Disallow instances.
+  }
+}
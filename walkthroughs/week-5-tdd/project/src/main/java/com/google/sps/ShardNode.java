@@ -0,0 +1,197 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One node of a sharded deployment. Attendees are split across nodes by {@code shardOf}, and each
+ * node only holds the events of the attendees it owns. A coordinator asks each node for the merged
+ * busy times of that node's share of a meeting's attendees and combines the answers.
+ *
+ * <p>Nodes speak a small binary protocol over HTTP, using {@code Varints} throughout. A POST to
+ * {@code /busy} sends:
+ *
+ * <pre>
+ * required attendee count, then each name as a length-prefixed UTF-8 string
+ * optional attendee count, then each name
+ * </pre>
+ *
+ * <p>and gets back two lists of times, the merged busy times of the required attendees and then
+ * those of the optional ones, each in the per-attendee format of {@code FreeBusyCodec} with the
+ * day as the window.
+ */
+public final class ShardNode {
+  /** The path nodes answer busy time requests on. */
+  public static final String BUSY_PATH = "/busy";
+
+  // Limits that stop a malformed payload from allocating without bound.
+  private static final int MAX_ATTENDEES = 100_000;
+  private static final int MAX_NAME_BYTES = 1024;
+
+  private final EventStore store;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * Creates a node that holds the events in {@code store}.
+   */
+  public ShardNode(EventStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Returns the shard that owns {@code attendee}. Uses {@code String.hashCode}, which is the same
+   * on every JVM, so every node and coordinator agrees on the split.
+   */
+  public static int shardOf(String attendee, int shardCount) {
+    return Math.floorMod(attendee.hashCode(), shardCount);
+  }
+
+  /**
+   * Returns the events that shard {@code shard} of {@code shardCount} holds: those with at least
+   * one attendee it owns. An event with attendees on several shards is held by each of them.
+   */
+  public static List<Event> eventsForShard(Collection<Event> events, int shard, int shardCount) {
+    List<Event> owned = new ArrayList<>();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        if (shardOf(attendee, shardCount) == shard) {
+          owned.add(event);
+          break;
+        }
+      }
+    }
+    return owned;
+  }
+
+  /**
+   * Starts serving on {@code port}, or on a free port if it is 0.
+   *
+   * @return the port the node is listening on
+   */
+  public synchronized int start(int port) throws IOException {
+    // Answers are tiny, so waiting to coalesce packets only adds latency. The JDK server reads
+    // this once, when the first server is created.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    server.setExecutor(executor);
+    server.createContext(BUSY_PATH, this::handleBusy);
+    server.start();
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops serving.
+   */
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  private void handleBusy(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      try (InputStream in = exchange.getRequestBody()) {
+        List<String> required = readNames(in);
+        List<String> optional = readNames(in);
+        EventStore.Snapshot snapshot = store.getSnapshot();
+        FreeBusyCodec.writeTimes(body, busyTimes(snapshot, required), TimeRange.START_OF_DAY);
+        FreeBusyCodec.writeTimes(body, busyTimes(snapshot, optional), TimeRange.START_OF_DAY);
+      } catch (IOException e) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+
+      exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+      exchange.sendResponseHeaders(200, body.size());
+      try (OutputStream out = exchange.getResponseBody()) {
+        body.writeTo(out);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Returns the union of the busy times of {@code attendees}, sorted and merged.
+   */
+  private static List<TimeRange> busyTimes(EventStore.Snapshot snapshot, List<String> attendees) {
+    List<TimeRange> times = new ArrayList<>();
+    for (String attendee : attendees) {
+      times.addAll(snapshot.getBusyTimes(attendee));
+    }
+    return BusyTimes.merge(times);
+  }
+
+  static void writeNames(OutputStream out, Collection<String> names) throws IOException {
+    Varints.write(out, names.size());
+    for (String name : names) {
+      Varints.writeString(out, name);
+    }
+  }
+
+  static List<String> readNames(InputStream in) throws IOException {
+    int count = Varints.readInt(in, MAX_ATTENDEES);
+    List<String> names = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      names.add(Varints.readString(in, MAX_NAME_BYTES));
+    }
+    return names;
+  }
+
+  /**
+   * Runs a node holding its share of {@code Events.events}. Prints {@code LISTENING <port>} once
+   * it is ready and serves until the process is killed.
+   *
+   * <p>Arguments: shard index, shard count, and optionally the port (0 or absent for any).
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: ShardNode <shard> <shard count> [port]");
+      System.exit(2);
+    }
+    int shard = Integer.parseInt(args[0]);
+    int shardCount = Integer.parseInt(args[1]);
+    int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+    EventStore store =
+        new EventStore(eventsForShard(Arrays.asList(Events.events), shard, shardCount));
+    int boundPort = new ShardNode(store).start(port);
+    System.out.println("LISTENING " + boundPort);
+    System.out.flush();
+  }
+}
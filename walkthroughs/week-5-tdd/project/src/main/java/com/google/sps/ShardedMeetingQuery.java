@@ -0,0 +1,190 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers meeting requests by asking the {@code ShardNode}s that own the attendees for their busy
+ * times. Each shard is sent only the attendees it owns, all shards are asked at once, and their
+ * merged busy times are combined in a final merge before looking for windows.
+ */
+public final class ShardedMeetingQuery implements AutoCloseable {
+  private static final int TIMEOUT_MILLIS = 2000;
+  private static final int DAY_END = TimeRange.WHOLE_DAY.end();
+
+  private final List<URL> shards;
+  private final ExecutorService executor;
+
+  // The total and number of fan-outs so far, for the mean latency.
+  private final AtomicLong fanOutNanos = new AtomicLong();
+  private final AtomicLong fanOuts = new AtomicLong();
+
+  /**
+   * @param shardUrls the base URL of each shard, in shard order
+   */
+  public ShardedMeetingQuery(List<String> shardUrls) throws IOException {
+    if (shardUrls.isEmpty()) {
+      throw new IllegalArgumentException("shardUrls cannot be empty");
+    }
+
+    List<URL> urls = new ArrayList<>();
+    for (String shardUrl : shardUrls) {
+      urls.add(new URL(shardUrl + ShardNode.BUSY_PATH));
+    }
+    this.shards = Collections.unmodifiableList(urls);
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "shard-fan-out");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Finds the times a meeting can be scheduled, following the same rules as
+   * {@code FindMeetingQuery.availableTimes}.
+   *
+   * @throws IOException if a shard couldn't be reached or sent a malformed answer
+   */
+  public Iterator<TimeRange> availableTimes(
+      FindMeetingQuery findMeetingQuery, MeetingRequest request, int cursor) throws IOException {
+    List<List<TimeRange>> busy = gatherBusyTimes(request);
+    return findMeetingQuery.availableTimes(busy.get(0), busy.get(1), request, cursor);
+  }
+
+  /**
+   * Asks every shard that owns one of the attendees for their busy times.
+   *
+   * @return two sorted lists: the busy times of the required attendees, then of the optional ones
+   */
+  List<List<TimeRange>> gatherBusyTimes(MeetingRequest request) throws IOException {
+    // Split the attendees by the shard that owns them.
+    List<List<String>> required = partition(request.getAttendees());
+    List<List<String>> optional = partition(request.getOptionalAttendees());
+
+    long start = System.nanoTime();
+    List<Future<List<List<TimeRange>>>> answers = new ArrayList<>();
+    for (int shard = 0; shard < shards.size(); shard++) {
+      if (required.get(shard).isEmpty() && optional.get(shard).isEmpty()) {
+        answers.add(null);
+        continue;
+      }
+      URL url = shards.get(shard);
+      List<String> shardRequired = required.get(shard);
+      List<String> shardOptional = optional.get(shard);
+      answers.add(executor.submit(() -> askShard(url, shardRequired, shardOptional)));
+    }
+
+    List<TimeRange> requiredBusy = new ArrayList<>();
+    List<TimeRange> optionalBusy = new ArrayList<>();
+    try {
+      for (Future<List<List<TimeRange>>> answer : answers) {
+        if (answer != null) {
+          List<List<TimeRange>> times = answer.get();
+          requiredBusy.addAll(times.get(0));
+          optionalBusy.addAll(times.get(1));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for shards", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException
+          ? (IOException) e.getCause() : new IOException(e.getCause());
+    } finally {
+      for (Future<?> answer : answers) {
+        if (answer != null) {
+          answer.cancel(true);
+        }
+      }
+    }
+    fanOutNanos.addAndGet(System.nanoTime() - start);
+    fanOuts.incrementAndGet();
+
+    // Starts are minutes of the day, so this is a linear counting sort for busy days.
+    BusyTimes.sortByStart(requiredBusy);
+    BusyTimes.sortByStart(optionalBusy);
+    List<List<TimeRange>> busy = new ArrayList<>();
+    busy.add(requiredBusy);
+    busy.add(optionalBusy);
+    return busy;
+  }
+
+  /**
+   * Returns the mean time, in microseconds, from sending the first shard request to receiving the
+   * last answer, or 0 if no request has been made.
+   */
+  public long getMeanFanOutMicros() {
+    long count = fanOuts.get();
+    return count == 0 ? 0 : fanOutNanos.get() / count / 1000;
+  }
+
+  private List<List<String>> partition(Collection<String> attendees) {
+    List<List<String>> byShard = new ArrayList<>();
+    for (int shard = 0; shard < shards.size(); shard++) {
+      byShard.add(new ArrayList<>());
+    }
+    for (String attendee : attendees) {
+      byShard.get(ShardNode.shardOf(attendee, shards.size())).add(attendee);
+    }
+    return byShard;
+  }
+
+  private static List<List<TimeRange>> askShard(
+      URL url, List<String> required, List<String> optional) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ShardNode.writeNames(body, required);
+    ShardNode.writeNames(body, optional);
+
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      body.writeTo(out);
+    }
+
+    if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+      throw new IOException(url + " answered " + connection.getResponseCode());
+    }
+    try (InputStream in = connection.getInputStream()) {
+      List<List<TimeRange>> times = new ArrayList<>();
+      times.add(FreeBusyCodec.readTimes(in, TimeRange.START_OF_DAY, DAY_END));
+      times.add(FreeBusyCodec.readTimes(in, TimeRange.START_OF_DAY, DAY_END));
+      return times;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,216 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class used to find meeting times when some events may be booked over. Events with an override
+ * cost, such as tentative meetings or focus time, count against a time instead of ruling it out,
+ * and the cheapest times are returned. Events without one still rule a time out. Optional
+ * attendees are accommodated if that leaves a time with no cost and ignored otherwise.
+ *
+ * <p>Each event rules out, or adds its cost to, the stretch of start times from which a meeting
+ * would overlap it. Those stretches begin and end at fixed points, so a single sweep over the
+ * sorted points gives the cost of every start time of the day without re-running the query with
+ * events left out. Requests with a granularity only start on their grid, so stretches without a
+ * grid point are skipped and the rest are trimmed to their first and last grid points.
+ */
+public final class SoftConflictQuery {
+  /**
+   * Finds the cheapest times for a meeting.
+   *
+   * @param events a collection of events that attendees have already committed to
+   * @param request the meeting to find times for
+   * @return one slot per stretch of start times with the lowest possible cost, from earliest to
+   *     latest. Each slot's window spans every start in the stretch plus the meeting's duration, as
+   *     {@code FindMeetingQuery} windows do. The list is empty if every time is ruled out.
+   */
+  public List<Slot> query(Collection<Event> events, MeetingRequest request) {
+    List<Slot> slots = queryToggleOptional(events, request, false);
+    boolean conflictFree = !slots.isEmpty() && slots.get(0).getCost() == 0;
+    if (!conflictFree && request.getAttendees().size() > 0) {
+      slots = queryToggleOptional(events, request, true);
+    }
+    return slots;
+  }
+
+  private List<Slot> queryToggleOptional(
+      Collection<Event> events, MeetingRequest request, boolean ignoreOptional) {
+    Set<String> attendees = new HashSet<>(request.getAttendees());
+    if (!ignoreOptional) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+
+    List<Slot> slots = new ArrayList<>();
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return slots;
+    }
+    int duration = (int) Math.max(request.getDuration(), 1);
+    int granularity = request.getGranularity();
+    // Start times run from the start of the day up to, but not including, this. The last start
+    // follows the end-of-day rule of FindMeetingQuery, which measures to TimeRange.END_OF_DAY.
+    int limit = TimeRange.END_OF_DAY - duration + 1;
+
+    // A meeting starting at s overlaps an event if s is in [event start - duration + 1, event
+    // end). Each boundary is packed into a long as (position, event index, whether it ends the
+    // stretch) so that sorting the longs sorts by position.
+    List<Event> relevant = new ArrayList<>();
+    for (Event event : events) {
+      if (event.getWhen().duration() > 0
+          && !Collections.disjoint(event.getAttendees(), attendees)) {
+        relevant.add(event);
+      }
+    }
+    long[] boundaries = new long[relevant.size() * 2];
+    int count = 0;
+    long perPosition = relevant.size() * 2L;
+    for (int i = 0; i < relevant.size(); i++) {
+      TimeRange when = relevant.get(i).getWhen();
+      int from = Math.max(when.start() - duration + 1, 0);
+      int to = Math.min(when.end(), limit);
+      if (from < to) {
+        boundaries[count++] = from * perPosition + i * 2;
+        boundaries[count++] = to * perPosition + i * 2 + 1;
+      }
+    }
+    Arrays.sort(boundaries, 0, count);
+
+    // Sweep the boundaries, keeping the cost of the current stretch and the cheapest cost seen.
+    // Cheaper stretches replace the slots found so far and equally cheap ones are added.
+    int hard = 0;
+    long cost = 0;
+    Set<Integer> overridden = new LinkedHashSet<>();
+    // Bumped whenever the overridden events change, so that neighbouring stretches that override
+    // the same events are reported as one slot.
+    int version = 0;
+    int slotVersion = -1;
+    long bestCost = Long.MAX_VALUE;
+    int next = 0;
+    int position = 0;
+    while (position < limit) {
+      while (next < count && boundaries[next] / perPosition == position) {
+        int index = (int) (boundaries[next] % perPosition) / 2;
+        boolean end = boundaries[next] % 2 == 1;
+        Event event = relevant.get(index);
+        if (!event.isOverridable()) {
+          hard += end ? -1 : 1;
+        } else if (end) {
+          cost -= event.getOverrideCost();
+          overridden.remove(index);
+          version++;
+        } else {
+          cost += event.getOverrideCost();
+          overridden.add(index);
+          version++;
+        }
+        next++;
+      }
+      int stretchEnd = next < count ? (int) (boundaries[next] / perPosition) : limit;
+
+      // The first and last starts in this stretch that are on the grid. A stretch that runs to
+      // the last start of the day gives a window to the end of the day, as FindMeetingQuery does.
+      int firstStart = position + Math.floorMod(-position, granularity);
+      int lastStart = stretchEnd - 1 - Math.floorMod(stretchEnd - 1, granularity);
+      int windowEnd = stretchEnd == limit ? TimeRange.WHOLE_DAY.end() : lastStart + duration;
+      if (hard == 0 && firstStart <= lastStart && cost <= bestCost) {
+        if (cost < bestCost) {
+          bestCost = cost;
+          slots.clear();
+          slotVersion = -1;
+        }
+        Slot last = slots.isEmpty() ? null : slots.get(slots.size() - 1);
+        // Neighbouring stretches join up if the grid runs on from one to the next.
+        if (last != null && slotVersion == version
+            && last.getWhen().end() - duration + granularity == firstStart) {
+          slots.set(slots.size() - 1, new Slot(TimeRange.fromStartEnd(
+              last.getWhen().start(), windowEnd, false), cost, last.overridden));
+        } else {
+          List<Event> overriddenEvents = new ArrayList<>(overridden.size());
+          for (int index : overridden) {
+            overriddenEvents.add(relevant.get(index));
+          }
+          slots.add(new Slot(TimeRange.fromStartEnd(firstStart, windowEnd, false), cost,
+              overriddenEvents));
+        }
+        slotVersion = version;
+      }
+      position = stretchEnd;
+    }
+    return slots;
+  }
+
+  /**
+   * A window in which a meeting can take place, what it costs and what it books over.
+   */
+  public static final class Slot {
+    private final TimeRange when;
+    private final long cost;
+    private final List<Event> overridden;
+
+    public Slot(TimeRange when, long cost, List<Event> overridden) {
+      this.when = when;
+      this.cost = cost;
+      this.overridden = Collections.unmodifiableList(new ArrayList<>(overridden));
+    }
+
+    /**
+     * Returns the window. The meeting may start anywhere in it that leaves room for its duration.
+     */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    /**
+     * Returns the total override cost of the events the meeting would book over.
+     */
+    public long getCost() {
+      return cost;
+    }
+
+    /**
+     * Returns the events the meeting would book over, in start order.
+     */
+    public List<Event> getOverridden() {
+      return overridden;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Slot)) {
+        return false;
+      }
+      Slot slot = (Slot) other;
+      return when.equals(slot.when) && cost == slot.cost && overridden.equals(slot.overridden);
+    }
+
+    @Override
+    public int hashCode() {
+      return (when.hashCode() * 31 + Long.hashCode(cost)) * 31 + overridden.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Slot: %s costing %d over %s", when, cost, overridden);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for reading and writing unsigned variable-length integers. Each byte carries seven bits
+ * of the value, lowest bits first, and has its high bit set if more bytes follow. Minutes of the
+ * day fit in two bytes and small counts in one.
+ */
+public final class Varints {
+  private Varints() {
+    // Disallow instances.
+  }
+
+  /**
+   * Writes a non-negative value.
+   */
+  public static void write(OutputStream out, long value) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("Varints must not be negative: " + value);
+    }
+
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  /**
+   * Reads a value written by {@code write}.
+   *
+   * @throws EOFException if the stream ends in the middle of the value
+   * @throws IOException if the value does not fit in a long
+   */
+  public static long read(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("Stream ended inside a varint");
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint is too long");
+  }
+
+  /**
+   * Reads a value written by {@code write} that must be at most {@code max}.
+   *
+   * @throws IOException if the value is larger than {@code max}
+   */
+  public static int readInt(InputStream in, int max) throws IOException {
+    long value = read(in);
+    if (value > max) {
+      throw new IOException("Value " + value + " is larger than " + max);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Writes a string as its UTF-8 byte length followed by the bytes.
+   */
+  public static void writeString(OutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    write(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a string written by {@code writeString} whose encoding is at most {@code maxBytes} long.
+   */
+  public static String readString(InputStream in, int maxBytes) throws IOException {
+    byte[] bytes = new byte[readInt(in, maxBytes)];
+    int offset = 0;
+    while (offset < bytes.length) {
+      int read = in.read(bytes, offset, bytes.length - offset);
+      if (read < 0) {
+        throw new EOFException("Stream ended inside a string");
+      }
+      offset += read;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A calendar as it would be after some hypothetical edits, such as moving or cancelling a big
+ * meeting, for asking what times would then be free. The edits are laid over a store snapshot
+ * without copying it: only the attendees of edited events get their busy times recomputed, and
+ * everyone else's come straight from the snapshot.
+ */
+public final class WhatIfCalendar {
+  private final EventStore.Snapshot base;
+
+  // The merged busy times of every attendee touched by an edit.
+  private final Map<String, List<TimeRange>> editedBusyTimes = new HashMap<>();
+
+  /**
+   * @param base the calendar to start from
+   * @param edits the changes to imagine, applied in order
+   * @throws IllegalArgumentException if an edit removes an event that isn't there
+   */
+  public WhatIfCalendar(EventStore.Snapshot base, List<Edit> edits) {
+    this.base = base;
+
+    // Collect each touched attendee's events after the edits. Only their events are copied.
+    Map<String, List<Event>> editedEvents = new HashMap<>();
+    for (Edit edit : edits) {
+      if (edit.removed != null) {
+        for (String attendee : edit.removed.getAttendees()) {
+          if (!eventsOf(attendee, editedEvents).remove(edit.removed)) {
+            throw new IllegalArgumentException("No such event: " + edit.removed.getTitle());
+          }
+        }
+      }
+      if (edit.added != null) {
+        for (String attendee : edit.added.getAttendees()) {
+          eventsOf(attendee, editedEvents).add(edit.added);
+        }
+      }
+    }
+
+    for (Map.Entry<String, List<Event>> entry : editedEvents.entrySet()) {
+      List<TimeRange> times = new ArrayList<>();
+      for (Event event : entry.getValue()) {
+        times.add(event.getWhen());
+      }
+      editedBusyTimes.put(entry.getKey(), BusyTimes.merge(times));
+    }
+  }
+
+  private List<Event> eventsOf(String attendee, Map<String, List<Event>> editedEvents) {
+    return editedEvents.computeIfAbsent(attendee, key -> new ArrayList<>(base.getEventsOf(key)));
+  }
+
+  /**
+   * Returns when {@code attendee} would be busy after the edits, sorted and merged.
+   */
+  public List<TimeRange> getBusyTimes(String attendee) {
+    List<TimeRange> edited = editedBusyTimes.get(attendee);
+    return edited != null ? edited : base.getBusyTimes(attendee);
+  }
+
+  /**
+   * Finds the times a meeting could be scheduled after the edits, following the same rules as
+   * {@code FindMeetingQuery.availableTimes}.
+   */
+  public Iterator<TimeRange> availableTimes(
+      FindMeetingQuery findMeetingQuery, MeetingRequest request, int cursor) {
+    return findMeetingQuery.availableTimes(busyTimesOf(request.getAttendees()),
+        busyTimesOf(request.getOptionalAttendees()), request, cursor);
+  }
+
+  private List<TimeRange> busyTimesOf(Collection<String> attendees) {
+    List<TimeRange> times = new ArrayList<>();
+    for (String attendee : attendees) {
+      times.addAll(getBusyTimes(attendee));
+    }
+    BusyTimes.sortByStart(times);
+    return times;
+  }
+
+  /**
+   * One hypothetical change to the calendar.
+   */
+  public static final class Edit {
+    private final Event removed;
+    private final Event added;
+
+    private Edit(Event removed, Event added) {
+      this.removed = removed;
+      this.added = added;
+    }
+
+    /**
+     * Returns an edit that adds {@code event}.
+     */
+    public static Edit add(Event event) {
+      return new Edit(null, event);
+    }
+
+    /**
+     * Returns an edit that cancels {@code event}.
+     */
+    public static Edit cancel(Event event) {
+      return new Edit(event, null);
+    }
+
+    /**
+     * Returns an edit that moves {@code event} to {@code when}, keeping its title and attendees.
+     */
+    public static Edit move(Event event, TimeRange when) {
+      return new Edit(event,
+          new Event(event.getTitle(), when, event.getAttendees(), event.getOverrideCost()));
+    }
+  }
+}
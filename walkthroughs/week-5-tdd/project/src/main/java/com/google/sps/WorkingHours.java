@@ -0,0 +1,133 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The hours someone works, in their own time zone. Working hours are considered read-only, and
+ * two equal working hours always produce the same availability, so they can be shared and cached.
+ */
+public final class WorkingHours {
+  private final ZoneId zone;
+  private final LocalTime start;
+  private final LocalTime end;
+  private final Set<DayOfWeek> days;
+
+  /**
+   * Creates new working hours.
+   *
+   * @param zone The time zone the hours are in. Must be non-null.
+   * @param start When the working day starts. Must be non-null.
+   * @param end When the working day ends. If it is not after {@code start}, the working day ends
+   *     on the next day. Must be non-null.
+   * @param days The days the working day starts on. Must be non-null.
+   */
+  public WorkingHours(ZoneId zone, LocalTime start, LocalTime end, Collection<DayOfWeek> days) {
+    if (zone == null || start == null || end == null) {
+      throw new IllegalArgumentException("zone, start and end cannot be null");
+    }
+
+    if (days == null) {
+      throw new IllegalArgumentException("days cannot be null. Use empty array instead.");
+    }
+
+    this.zone = zone;
+    this.start = start;
+    this.end = end;
+    this.days = days.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(days);
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  public LocalTime getStart() {
+    return start;
+  }
+
+  public LocalTime getEnd() {
+    return end;
+  }
+
+  /**
+   * Returns a read-only set of the days the working day starts on.
+   */
+  public Set<DayOfWeek> getDays() {
+    return Collections.unmodifiableSet(days);
+  }
+
+  /**
+   * Builds the availability mask for one calendar day. Minute 0 of the mask is midnight of
+   * {@code date} in {@code calendarZone}, which is how the scheduler's minutes are anchored. A set
+   * minute means the person is working.
+   */
+  public MinuteMask toMask(LocalDate date, ZoneId calendarZone) {
+    MinuteMask mask = MinuteMask.forDay();
+    Instant dayStart = date.atStartOfDay(calendarZone).toInstant();
+
+    // Zone offsets are at most 36 hours apart and a working day is under a day long, so only the
+    // working days that start from two days before to two days after can overlap this calendar
+    // day, such as one in UTC+14 seen from UTC-12.
+    for (LocalDate localDate = date.minusDays(2); !localDate.isAfter(date.plusDays(2));
+        localDate = localDate.plusDays(1)) {
+      if (!days.contains(localDate.getDayOfWeek())) {
+        continue;
+      }
+      ZonedDateTime workStart = ZonedDateTime.of(localDate, start, zone);
+      LocalDate endDate = end.isAfter(start) ? localDate : localDate.plusDays(1);
+      ZonedDateTime workEnd = ZonedDateTime.of(endDate, end, zone);
+      mask.set(minutesSince(dayStart, workStart), minutesSince(dayStart, workEnd));
+    }
+    return mask;
+  }
+
+  private static int minutesSince(Instant dayStart, ZonedDateTime time) {
+    // Clamp so that times far outside the day don't overflow; the mask ignores them anyway.
+    long minutes = Duration.between(dayStart, time.toInstant()).toMinutes();
+    return (int) Math.max(-1, Math.min(minutes, TimeRange.WHOLE_DAY.duration() + 1));
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof WorkingHours)) {
+      return false;
+    }
+    WorkingHours hours = (WorkingHours) other;
+    return zone.equals(hours.zone) && start.equals(hours.start) && end.equals(hours.end)
+        && days.equals(hours.days);
+  }
+
+  @Override
+  public int hashCode() {
+    return ((zone.hashCode() * 31 + start.hashCode()) * 31 + end.hashCode()) * 31
+        + days.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("WorkingHours: %s-%s %s %s", start, end, days, zone);
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everyone's working hours, and the availability masks built from them. A mask depends only on the
+ * working hours and the date, so people who share a schedule and zone share one cached mask, and
+ * each mask is built once per date.
+ */
+public final class WorkingHoursRegistry {
+  private static final WorkingHoursRegistry INSTANCE = new WorkingHoursRegistry(ZoneOffset.UTC);
+
+  // Upper bound on cached masks. Each is under 200 bytes, so this caps the cache at a few MB.
+  private static final int MAX_CACHED_MASKS = 16_384;
+
+  private final ZoneId calendarZone;
+  private final Map<String, WorkingHours> hoursByAttendee = new ConcurrentHashMap<>();
+  private final Map<MaskKey, MinuteMask> masks = new ConcurrentHashMap<>();
+
+  /**
+   * @param calendarZone the zone whose midnight is minute 0 of the scheduler's day
+   */
+  public WorkingHoursRegistry(ZoneId calendarZone) {
+    this.calendarZone = calendarZone;
+  }
+
+  /**
+   * Returns the registry shared by the servlets. It is anchored to UTC and starts out empty, so
+   * everyone can be booked at any time until their hours are set through
+   * {@code WorkingHoursServlet}.
+   */
+  public static WorkingHoursRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the zone whose midnight is minute 0 of the scheduler's day.
+   */
+  public ZoneId getCalendarZone() {
+    return calendarZone;
+  }
+
+  /**
+   * Sets the working hours of {@code attendee}, or clears them if {@code hours} is null.
+   */
+  public void setWorkingHours(String attendee, WorkingHours hours) {
+    if (attendee == null) {
+      throw new IllegalArgumentException("attendee cannot be null");
+    }
+
+    if (hours == null) {
+      hoursByAttendee.remove(attendee);
+    } else {
+      hoursByAttendee.put(attendee, hours);
+    }
+  }
+
+  /**
+   * Returns a read-only copy of everyone's working hours, by attendee.
+   */
+  public Map<String, WorkingHours> getWorkingHours() {
+    return Collections.unmodifiableMap(new HashMap<>(hoursByAttendee));
+  }
+
+  /**
+   * Returns everyone's availability on {@code date}, for use by {@code FindMeetingQuery}.
+   */
+  public AttendeeAvailability forDate(LocalDate date) {
+    return attendee -> {
+      WorkingHours hours = hoursByAttendee.get(attendee);
+      return hours == null ? null : mask(hours, date);
+    };
+  }
+
+  private MinuteMask mask(WorkingHours hours, LocalDate date) {
+    MaskKey key = new MaskKey(hours, date);
+    MinuteMask mask = masks.get(key);
+    if (mask == null) {
+      if (masks.size() >= MAX_CACHED_MASKS) {
+        // Old dates are rarely asked about again. Starting over is simpler than tracking use.
+        masks.clear();
+      }
+      mask = masks.computeIfAbsent(key, k -> hours.toMask(date, calendarZone));
+    }
+    return mask;
+  }
+
+  private static final class MaskKey {
+    private final WorkingHours hours;
+    private final LocalDate date;
+
+    MaskKey(WorkingHours hours, LocalDate date) {
+      this.hours = hours;
+      this.date = date;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof MaskKey && hours.equals(((MaskKey) other).hours)
+          && date.equals(((MaskKey) other).date);
+    }
+
+    @Override
+    public int hashCode() {
+      return hours.hashCode() * 31 + date.hashCode();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.BulkMeetingScheduler;
+import com.google.sps.EventStore;
+import com.google.sps.MeetingRequest;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Places a JSON array of meeting requests so that they conflict neither with existing events nor
+ * with each other. The answer holds one time range per request, in order, or null for requests
+ * that couldn't be placed. An {@code X-Schedule-Complete} header of false means at least one
+ * request was left out.
+ */
+@WebServlet("/bulk-query")
+public class BulkQueryServlet extends HttpServlet {
+  // How long the solver may search before settling for the best schedule it has found.
+  private static final long TIME_BUDGET_MILLIS = 500;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    MeetingRequest[] meetingRequests;
+    try {
+      meetingRequests = gson.fromJson(request.getReader(), MeetingRequest[].class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed meeting requests");
+      return;
+    }
+
+    if (meetingRequests == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing meeting requests");
+      return;
+    }
+    if (Arrays.asList(meetingRequests).contains(null)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing meeting request");
+      return;
+    }
+
+    EventStore.Snapshot snapshot = EventStore.getInstance().getSnapshot();
+    try {
+      for (int i = 0; i < meetingRequests.length; i++) {
+        meetingRequests[i] = snapshot.expandGroups(meetingRequests[i]);
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    BulkMeetingScheduler scheduler = new BulkMeetingScheduler(TIME_BUDGET_MILLIS);
+    BulkMeetingScheduler.Schedule schedule =
+        scheduler.schedule(snapshot.getEvents(), Arrays.asList(meetingRequests));
+
+    // Send the JSON back as the response
+    response.setHeader("X-Schedule-Complete", Boolean.toString(schedule.isComplete()));
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(schedule.getTimes()));
+  }
+}
@@ -0,0 +1,205 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.CommonFreeTimeMatrix;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.WorkingHoursRegistry;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves how much free time pairs of people have in common, as a JSON list of
+ * {@code {"first", "second", "minutes"}} objects.
+ *
+ * <p>Accepts three optional URL parameters: {@code attendees}, comma-separated names to compare
+ * (everyone with an event by default), {@code threshold}, the fewest common free minutes a pair
+ * needs to be listed (60 by default), and {@code date}, the ISO date whose working hours apply
+ * (today by default). Time outside an attendee's working hours doesn't count as free.
+ *
+ * <p>The work grows with the square of the number of people, so at most {@code MAX_ATTENDEES}
+ * are compared per request. The pairs are computed on the shared {@code QueryExecutor}, one tile
+ * at a time on a single worker, rather than on the container's thread or in the common
+ * fork-join pool, so a large comparison can't starve other requests. The cap also bounds the
+ * answer, so it is built up before anything is sent and a request that runs past its deadline
+ * gets a clean 503 instead of a truncated list.
+ */
+@WebServlet(urlPatterns = "/common-free-time", asyncSupported = true)
+public class CommonFreeTimeServlet extends HttpServlet {
+  private static final int DEFAULT_THRESHOLD = 60;
+
+  // The most people one request may compare, about half a million pairs.
+  static final int MAX_ATTENDEES = 1000;
+
+  // How long a request may spend queued and computing before we give up on it.
+  private static final long DEADLINE_MILLIS = 5000;
+
+  private QueryExecutor executor;
+
+  @Override
+  public void init() throws ServletException {
+    executor = QueryExecutor.forContext(getServletContext());
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int threshold;
+    LocalDate date;
+    WorkingHoursRegistry workingHours = WorkingHoursRegistry.getInstance();
+    try {
+      threshold = request.getParameter("threshold") == null
+          ? DEFAULT_THRESHOLD : Integer.parseInt(request.getParameter("threshold"));
+      date = request.getParameter("date") == null
+          ? LocalDate.now(workingHours.getCalendarZone())
+          : LocalDate.parse(request.getParameter("date"));
+    } catch (NumberFormatException | DateTimeParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    List<Event> events = EventStore.getInstance().getSnapshot().getEvents();
+    Set<String> attendees = new LinkedHashSet<>();
+    if (request.getParameter("attendees") != null) {
+      attendees.addAll(Arrays.asList(request.getParameter("attendees").split(",")));
+    } else {
+      for (Event event : events) {
+        attendees.addAll(event.getAttendees());
+      }
+    }
+    if (attendees.size() > MAX_ATTENDEES) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "At most " + MAX_ATTENDEES + " attendees can be compared at once");
+      return;
+    }
+
+    AsyncContext asyncContext = request.startAsync();
+    asyncContext.setTimeout(DEADLINE_MILLIS);
+
+    // Whichever of the worker and the timeout gets here first owns the response.
+    AtomicBoolean responded = new AtomicBoolean(false);
+    AtomicReference<Future<?>> task = new AtomicReference<>();
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) throws IOException {
+        cancel(task.get());
+        if (responded.compareAndSet(false, true)) {
+          response.sendError(
+              HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query deadline exceeded");
+          asyncContext.complete();
+        }
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {}
+
+      @Override
+      public void onError(AsyncEvent event) {
+        cancel(task.get());
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {}
+    });
+
+    try {
+      task.set(executor.submit(() -> answer(asyncContext, responded,
+          new CommonFreeTimeMatrix(events, attendees, workingHours.forDate(date)), threshold)));
+    } catch (RejectedExecutionException e) {
+      // The queue is full. Fail fast so the client can back off and retry.
+      if (responded.compareAndSet(false, true)) {
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query queue is full");
+        asyncContext.complete();
+      }
+    }
+  }
+
+  private static void cancel(Future<?> task) {
+    if (task != null) {
+      task.cancel(true);
+    }
+  }
+
+  /**
+   * Runs on a worker thread. Finds the pairs with at least {@code threshold} common free minutes
+   * and writes them back as JSON, unless the deadline passes first.
+   */
+  private static void answer(AsyncContext asyncContext, AtomicBoolean responded,
+      CommonFreeTimeMatrix matrix, int threshold) {
+    HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+    try {
+      // Triples of (first, second, minutes), as the matrix hands them over.
+      IntStream.Builder builder = IntStream.builder();
+      matrix.forEachPair(threshold, false,
+          (first, second, minutes) -> builder.add(first).add(second).add(minutes));
+      int[] found = builder.build().toArray();
+
+      if (!responded.compareAndSet(false, true)) {
+        // The deadline passed while we were computing.
+        return;
+      }
+
+      // Send the JSON back as the response
+      List<String> names = matrix.getAttendees();
+      response.setContentType("application/json");
+      JsonWriter json = new JsonWriter(response.getWriter());
+      json.beginArray();
+      for (int k = 0; k < found.length; k += 3) {
+        json.beginObject();
+        json.name("first").value(names.get(found[k]));
+        json.name("second").value(names.get(found[k + 1]));
+        json.name("minutes").value(found[k + 2]);
+        json.endObject();
+      }
+      json.endArray();
+      json.flush();
+      asyncContext.complete();
+    } catch (IOException | IllegalStateException e) {
+      // The client went away or the container already timed the request out, which also
+      // interrupts the worker and stops it with a CancellationException. Nothing to answer.
+    } catch (RuntimeException e) {
+      // A bug rather than a bad request. Answer anyway, so the client isn't left waiting for the
+      // deadline and the async context is always completed.
+      if (responded.compareAndSet(false, true)) {
+        try {
+          response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Query failed");
+          asyncContext.complete();
+        } catch (IOException | IllegalStateException ignored) {
+          // The client went away.
+        }
+      }
+    }
+  }
+}
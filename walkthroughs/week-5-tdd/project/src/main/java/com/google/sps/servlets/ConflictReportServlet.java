@@ -0,0 +1,42 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.ConflictDetector;
+import com.google.sps.EventStore;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves every double booking in the calendar, as a JSON list with one
+ * {@code {"attendee", "overlaps", "conflictedMinutes"}} entry per attendee who has any.
+ */
+@WebServlet("/conflicts")
+public class ConflictReportServlet extends HttpServlet {
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<ConflictDetector.AttendeeConflicts> conflicts =
+        new ConflictDetector().detect(EventStore.getInstance().getSnapshot().getEvents());
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(new Gson().toJson(conflicts));
+  }
+}
@@ -0,0 +1,46 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reports the size of the event store and how much memory interning its events saves.
+ */
+@WebServlet("/event-store-stats")
+public class EventStoreStatsServlet extends HttpServlet {
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+    EventStore store = EventStore.getInstance();
+    EventStore.Snapshot snapshot = store.getSnapshot();
+
+    JsonObject json = new JsonObject();
+    json.addProperty("version", snapshot.getVersion());
+    json.addProperty("events", snapshot.getEvents().size());
+    json.add("interning", gson.toJsonTree(store.getInterningStats()));
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(json));
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.sps.FreeBusyCodec;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Exports when a list of attendees are busy, without titles or other event details. The body is
+ * JSON of the form {@code {"attendees": [...], "start": 0, "end": 1440}}, where {@code start} and
+ * {@code end} are optional and default to the whole day. The answer is in the
+ * {@code FreeBusyCodec} format, with one entry per attendee in the order they were asked for.
+ */
+@WebServlet("/freebusy")
+public class FreeBusyServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    FreeBusyRequest freeBusyRequest;
+    try {
+      freeBusyRequest = new Gson().fromJson(request.getReader(), FreeBusyRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed free/busy request");
+      return;
+    }
+
+    if (freeBusyRequest == null || freeBusyRequest.attendees == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "attendees is required");
+      return;
+    }
+
+    int start = freeBusyRequest.start == null ? TimeRange.START_OF_DAY : freeBusyRequest.start;
+    int end = freeBusyRequest.end == null ? TimeRange.WHOLE_DAY.end() : freeBusyRequest.end;
+    if (start < 0 || end < start) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid window");
+      return;
+    }
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    FreeBusyCodec.write(body, EventStore.getInstance().getSnapshot(), freeBusyRequest.attendees,
+        TimeRange.fromStartEnd(start, end, false));
+
+    response.setContentType(FreeBusyCodec.CONTENT_TYPE);
+    response.setContentLength(body.size());
+    body.writeTo(response.getOutputStream());
+  }
+
+  /**
+   * The JSON body of a free/busy request.
+   */
+  private static final class FreeBusyRequest {
+    private List<String> attendees;
+    private Integer start;
+    private Integer end;
+  }
+}
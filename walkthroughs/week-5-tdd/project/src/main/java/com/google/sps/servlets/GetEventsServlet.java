@@ -14,23 +14,282 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Serves events as JSON. Without parameters every event is returned. The serialized body is
+ * cached per store version, both plain and gzipped, and tagged with a hash of its contents so that
+ * clients polling an unchanged calendar get a bodiless 304.
+ *
+ * <p>Optional URL parameters narrow the response:
+ *
+ * <ul>
+ *   <li>{@code attendees}: comma-separated names. Only events with at least one of them are
+ *       returned.
+ *   <li>{@code start} and {@code end}: minutes of the day. Only events overlapping
+ *       {@code [start, end)} are returned.
+ *   <li>{@code since}: a version token from an earlier {@code X-Events-Version} header. Instead
+ *       of a list of events, the response is an object with the events {@code added} and
+ *       {@code removed} since that version. A changed event shows up as the removal of its old
+ *       value and the addition of its new one. If the version is too old to catch up from, or the
+ *       token is from before a restart, the response is 410 and the client should fetch everything
+ *       again.
+ * </ul>
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+  // Every response carries the version it reflects so clients can ask for a delta next time.
+  private static final String VERSION_HEADER = "X-Events-Version";
+
+  // The most recently serialized events. Replaced whenever the store's version moves on.
+  private volatile CachedEvents cache;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    EventFilter filter;
+    try {
+      filter = EventFilter.fromRequest(request);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    EventStore store = EventStore.getInstance();
+    String since = request.getParameter("since");
+    if (since != null) {
+      sendDelta(store, since, filter, response);
+      return;
+    }
+
+    EventStore.Snapshot snapshot = store.getSnapshot();
+    response.setHeader(VERSION_HEADER, store.versionToken(snapshot.getVersion()));
+    if (!filter.isEmpty()) {
+      // Filtered responses depend on the parameters, so they skip the cache.
+      sendJson(new Gson().toJson(filter.apply(snapshot.getEvents())), response);
+      return;
+    }
+
+    CachedEvents events = getCachedEvents(snapshot);
+
+    boolean gzip = acceptsGzip(request);
+    String etag = gzip ? events.gzipEtag : events.etag;
+
+    // Caches must check back with us, but can reuse the body if the tag still matches.
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", "no-cache");
+    response.setHeader("Vary", "Accept-Encoding");
+
+    if (matches(request.getHeader("If-None-Match"), events)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = gzip ? events.gzipJson : events.json;
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  private static void sendDelta(EventStore store, String since, EventFilter filter,
+      HttpServletResponse response) throws IOException {
+    EventStore.Delta delta = store.changesSince(since);
+    if (delta == null) {
+      response.sendError(HttpServletResponse.SC_GONE, "Version " + since + " is not available");
+      return;
+    }
+
+    JsonObject json = new JsonObject();
     Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    json.addProperty("fromVersion", delta.getFromVersion());
+    json.addProperty("toVersion", delta.getToVersion());
+    json.add("added", gson.toJsonTree(filter.apply(delta.getAdded())));
+    json.add("removed", gson.toJsonTree(filter.apply(delta.getRemoved())));
 
+    response.setHeader(VERSION_HEADER, store.versionToken(delta.getToVersion()));
+    sendJson(gson.toJson(json), response);
+  }
+
+  private static void sendJson(String json, HttpServletResponse response) throws IOException {
     // Send the JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.getWriter().println(json);
+  }
+
+  /**
+   * Returns the serialized form of {@code snapshot}, reusing the cached bytes if they were built
+   * from the same version.
+   */
+  private CachedEvents getCachedEvents(EventStore.Snapshot snapshot) throws IOException {
+    CachedEvents events = cache;
+    if (events == null || events.version != snapshot.getVersion()) {
+      // Two threads may race to rebuild the cache. Both build the same bytes, so whichever write
+      // lands last is fine.
+      events = new CachedEvents(snapshot.getVersion(),
+          new Gson().toJson(snapshot.getEvents()).getBytes(StandardCharsets.UTF_8));
+      cache = events;
+    }
+    return events;
+  }
+
+  private static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+  }
+
+  /**
+   * Checks an If-None-Match header against either representation of the cached events.
+   */
+  private static boolean matches(String ifNoneMatch, CachedEvents events) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      // If-None-Match uses weak comparison, so W/"x" matches "x".
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(events.etag) || tag.equals(events.gzipEtag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The attendee and time window restrictions from the request's URL parameters.
+   */
+  private static final class EventFilter {
+    private final Set<String> attendees;
+    private final TimeRange window;
+
+    private EventFilter(Set<String> attendees, TimeRange window) {
+      this.attendees = attendees;
+      this.window = window;
+    }
+
+    /**
+     * @throws NumberFormatException if {@code start} or {@code end} are not valid minutes
+     */
+    static EventFilter fromRequest(HttpServletRequest request) {
+      Set<String> attendees = null;
+      String attendeesParameter = request.getParameter("attendees");
+      if (attendeesParameter != null) {
+        attendees = new HashSet<>();
+        for (String attendee : attendeesParameter.split(",")) {
+          if (!attendee.trim().isEmpty()) {
+            attendees.add(attendee.trim());
+          }
+        }
+      }
+
+      TimeRange window = null;
+      String start = request.getParameter("start");
+      String end = request.getParameter("end");
+      if (start != null || end != null) {
+        int startMinute = start == null ? TimeRange.START_OF_DAY : Integer.parseInt(start);
+        int endMinute = end == null ? TimeRange.WHOLE_DAY.end() : Integer.parseInt(end);
+        if (startMinute < 0 || endMinute < startMinute) {
+          throw new NumberFormatException("Invalid window: " + start + " to " + end);
+        }
+        window = TimeRange.fromStartEnd(startMinute, endMinute, false);
+      }
+
+      return new EventFilter(attendees, window);
+    }
+
+    boolean isEmpty() {
+      return attendees == null && window == null;
+    }
+
+    List<Event> apply(List<Event> events) {
+      if (isEmpty()) {
+        return events;
+      }
+
+      List<Event> matching = new ArrayList<>();
+      for (Event event : events) {
+        if (window != null && !window.overlaps(event.getWhen())) {
+          continue;
+        }
+        if (attendees != null && Collections.disjoint(attendees, event.getAttendees())) {
+          continue;
+        }
+        matching.add(event);
+      }
+      return matching;
+    }
+  }
+
+  /**
+   * The serialized events for one version of the store.
+   */
+  private static final class CachedEvents {
+    private final long version;
+    private final byte[] json;
+    private final byte[] gzipJson;
+    private final String etag;
+    private final String gzipEtag;
+
+    CachedEvents(long version, byte[] json) throws IOException {
+      this.version = version;
+      this.json = json;
+      this.gzipJson = gzip(json);
+
+      // The tag is based on the content rather than the version, so it stays valid across
+      // restarts and across changes that are later undone.
+      String hash = sha256Hex(json);
+      this.etag = "\"" + hash + "\"";
+      this.gzipEtag = "\"" + hash + "-gzip\"";
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+        gzip.write(bytes);
+      }
+      return out.toByteArray();
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+      try {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+        StringBuilder hex = new StringBuilder();
+        // Half of the digest is plenty to tell calendars apart.
+        for (int i = 0; i < digest.length / 2; i++) {
+          hex.append(String.format("%02x", digest[i]));
+        }
+        return hex.toString();
+      } catch (NoSuchAlgorithmException e) {
+        // Every Java platform is required to support SHA-256.
+        throw new IllegalStateException(e);
+      }
+    }
   }
 }
@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Manages the attendee groups that meeting requests can name instead of listing every member.
+ * GET returns every group and its members. POST takes a body of the form
+ * {@code {"name": "team-payments", "members": [...]}} and creates or replaces that group, or
+ * deletes it if {@code members} is empty.
+ */
+@WebServlet("/groups")
+public class GroupServlet extends HttpServlet {
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    EventStore.Snapshot snapshot = EventStore.getInstance().getSnapshot();
+    Map<String, Set<String>> groups = new TreeMap<>();
+    for (String group : snapshot.getGroups()) {
+      groups.put(group, new TreeSet<>(snapshot.getGroupMembers(group)));
+    }
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(new Gson().toJson(groups));
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    GroupRequest groupRequest;
+    try {
+      groupRequest = new Gson().fromJson(request.getReader(), GroupRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed group request");
+      return;
+    }
+
+    if (groupRequest == null || groupRequest.name == null || groupRequest.name.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "name is required");
+      return;
+    }
+
+    EventStore store = EventStore.getInstance();
+    if (groupRequest.members == null || groupRequest.members.isEmpty()) {
+      store.removeGroup(groupRequest.name);
+    } else {
+      store.setGroup(groupRequest.name, groupRequest.members);
+    }
+
+    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  /**
+   * The JSON body of a group request.
+   */
+  private static final class GroupRequest {
+    private String name;
+    private List<String> members;
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.AvailabilityHeatmap;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers how many of a group of attendees are free at each minute. The body is JSON of the form
+ * {@code {"attendees": [...], "start": 0, "end": 1440}}, where {@code start} and {@code end} are
+ * optional and default to the whole day, and the window must lie within it. The answer is a
+ * run-length encoded list of {@code {"when": {...}, "free": n}} objects covering the window in
+ * order.
+ */
+@WebServlet("/heatmap")
+public class HeatmapServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    HeatmapRequest heatmapRequest;
+    try {
+      heatmapRequest = gson.fromJson(request.getReader(), HeatmapRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed heatmap request");
+      return;
+    }
+
+    if (heatmapRequest == null || heatmapRequest.attendees == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "attendees is required");
+      return;
+    }
+
+    int start = heatmapRequest.start == null ? TimeRange.START_OF_DAY : heatmapRequest.start;
+    int end = heatmapRequest.end == null ? TimeRange.WHOLE_DAY.end() : heatmapRequest.end;
+    // The heatmap takes memory per minute of the window, so it is capped at one day.
+    if (start < 0 || end < start || end > TimeRange.WHOLE_DAY.end()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid window");
+      return;
+    }
+
+    List<AvailabilityHeatmap.Run> runs = new AvailabilityHeatmap().freeCounts(
+        EventStore.getInstance().getSnapshot().getEvents(), heatmapRequest.attendees,
+        TimeRange.fromStartEnd(start, end, false));
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(runs));
+  }
+
+  /**
+   * The JSON body of a heatmap request.
+   */
+  private static final class HeatmapRequest {
+    private List<String> attendees;
+    private Integer start;
+    private Integer end;
+  }
+}
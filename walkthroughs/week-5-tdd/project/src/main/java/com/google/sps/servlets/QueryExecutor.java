@@ -0,0 +1,197 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.ServletContext;
+
+/**
+ * Bounded worker pool that evaluates meeting queries off the container's request threads. The
+ * queue has a fixed capacity, so once it is full new work is rejected immediately instead of
+ * piling up behind a slow request. Also keeps running totals of how long tasks wait in the queue.
+ */
+public final class QueryExecutor {
+  /** Name of the {@code ServletContext} attribute that holds the shared executor. */
+  public static final String CONTEXT_ATTRIBUTE = QueryExecutor.class.getName();
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+  private final ThreadPoolExecutor pool;
+
+  // Queue wait statistics, in nanoseconds.
+  private final AtomicLong tasksStarted = new AtomicLong();
+  private final AtomicLong tasksRejected = new AtomicLong();
+  private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+  private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+  /**
+   * Creates a new executor.
+   *
+   * @param threads the number of worker threads. Must be > 0.
+   * @param queueCapacity the number of tasks that may wait for a worker before new tasks are
+   *     rejected. Must be > 0.
+   */
+  public QueryExecutor(int threads, int queueCapacity) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be positive");
+    }
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "query-worker-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+
+    pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Returns the executor shared by every servlet in {@code context}, creating it on first use. An
+   * executor that has been shut down is replaced, so a reloaded servlet never gets a dead pool.
+   */
+  public static QueryExecutor forContext(ServletContext context) {
+    synchronized (context) {
+      QueryExecutor executor = (QueryExecutor) context.getAttribute(CONTEXT_ATTRIBUTE);
+      if (executor == null || executor.isShutdown()) {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        executor = new QueryExecutor(threads, DEFAULT_QUEUE_CAPACITY);
+        context.setAttribute(CONTEXT_ATTRIBUTE, executor);
+      }
+      return executor;
+    }
+  }
+
+  /**
+   * Shuts down the executor shared by every servlet in {@code context}, if there is one, and
+   * forgets it. Called by {@code QueryExecutorListener} when the context goes away.
+   */
+  public static void shutdownForContext(ServletContext context) {
+    synchronized (context) {
+      QueryExecutor executor = (QueryExecutor) context.getAttribute(CONTEXT_ATTRIBUTE);
+      if (executor != null) {
+        context.removeAttribute(CONTEXT_ATTRIBUTE);
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Queues {@code task} for a worker thread.
+   *
+   * @throws RejectedExecutionException if the queue is full or the executor has been shut down
+   */
+  public Future<?> submit(Runnable task) {
+    long enqueuedAt = System.nanoTime();
+    try {
+      return pool.submit(() -> {
+        recordQueueWait(System.nanoTime() - enqueuedAt);
+        task.run();
+      });
+    } catch (RejectedExecutionException e) {
+      tasksRejected.incrementAndGet();
+      throw e;
+    }
+  }
+
+  private void recordQueueWait(long waitNanos) {
+    tasksStarted.incrementAndGet();
+    totalQueueWaitNanos.addAndGet(waitNanos);
+    maxQueueWaitNanos.accumulateAndGet(waitNanos, Math::max);
+  }
+
+  /**
+   * Returns a point-in-time view of the queue statistics.
+   */
+  public Metrics getMetrics() {
+    long started = tasksStarted.get();
+    long totalWait = totalQueueWaitNanos.get();
+    return new Metrics(pool.getQueue().size(), pool.getActiveCount(), started,
+        tasksRejected.get(), started == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWait / started),
+        TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos.get()));
+  }
+
+  /**
+   * Stops accepting new work and interrupts any running queries.
+   */
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Returns true once {@code shutdown} has been called.
+   */
+  public boolean isShutdown() {
+    return pool.isShutdown();
+  }
+
+  /**
+   * Snapshot of the executor's queue statistics. Serialized as JSON by {@code QueryMetricsServlet}.
+   */
+  public static final class Metrics {
+    private final int queueDepth;
+    private final int activeWorkers;
+    private final long tasksStarted;
+    private final long tasksRejected;
+    private final long meanQueueWaitMicros;
+    private final long maxQueueWaitMicros;
+
+    private Metrics(int queueDepth, int activeWorkers, long tasksStarted, long tasksRejected,
+        long meanQueueWaitMicros, long maxQueueWaitMicros) {
+      this.queueDepth = queueDepth;
+      this.activeWorkers = activeWorkers;
+      this.tasksStarted = tasksStarted;
+      this.tasksRejected = tasksRejected;
+      this.meanQueueWaitMicros = meanQueueWaitMicros;
+      this.maxQueueWaitMicros = maxQueueWaitMicros;
+    }
+
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    public int getActiveWorkers() {
+      return activeWorkers;
+    }
+
+    public long getTasksStarted() {
+      return tasksStarted;
+    }
+
+    public long getTasksRejected() {
+      return tasksRejected;
+    }
+
+    public long getMeanQueueWaitMicros() {
+      return meanQueueWaitMicros;
+    }
+
+    public long getMaxQueueWaitMicros() {
+      return maxQueueWaitMicros;
+    }
+  }
+}
@@ -14,38 +14,409 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.BinaryMeetingCodec;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
+import com.google.sps.OffHeapCalendar;
+import com.google.sps.QueryContext;
+import com.google.sps.ShardedMeetingQuery;
 import com.google.sps.TimeRange;
+import com.google.sps.WorkingHoursRegistry;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-@WebServlet("/query")
+/**
+ * Answers meeting requests. The query itself runs on a bounded {@code QueryExecutor} so that a
+ * slow request can't hold on to one of the container's threads.
+ *
+ * <p>Accepts three optional URL parameters: {@code limit}, the most windows to return,
+ * {@code cursor}, the minute of the day to resume from, and {@code date}, the ISO date whose
+ * working hours apply (today by default).
+ *
+ * <p>Requests and answers are JSON by default. Callers can instead send a batch of requests in
+ * the {@code BinaryMeetingCodec} format by setting it as the Content-Type, and can ask for the
+ * answers in that format by listing it in the Accept header.
+ *
+ * <p>If the {@code sps.shards} system property lists shard node URLs, separated by commas, the
+ * servlet runs as the coordinator of a sharded deployment: attendees' busy times are gathered
+ * from the {@code ShardNode}s that own them instead of from the local event store.
+ *
+ * <p>If instead the {@code sps.offHeapEvents} system property names a file holding a JSON array
+ * of events, in the form {@code /get-events} returns them, the events are streamed into an
+ * {@code OffHeapCalendar} when the servlet starts and busy times are read from there. This is for
+ * very large, read-only calendars: changes made to the event store afterwards are not seen.
+ * Groups still come from the event store.
+ */
+@WebServlet(urlPatterns = "/query", asyncSupported = true)
 public class QueryServlet extends HttpServlet {
+  // How long a request may spend queued and computing before we give up on it.
+  private static final long DEADLINE_MILLIS = 2000;
+
+  // Set on paged responses that may have more windows. Pass it back as the cursor parameter.
+  private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  // Comma-separated shard node URLs. When set, busy times come from the shards.
+  private static final String SHARDS_PROPERTY = "sps.shards";
+
+  // A JSON file of events. When set, busy times come from an off-heap copy of them.
+  private static final String OFF_HEAP_EVENTS_PROPERTY = "sps.offHeapEvents";
+
+  private QueryExecutor executor;
+
+  // The shards to gather busy times from, or null to use the local event store.
+  private ShardedMeetingQuery shards;
+
+  // The off-heap calendar to read busy times from, or null to use the local event store.
+  private OffHeapCalendar offHeapCalendar;
+
   @Override
-  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+  public void init() throws ServletException {
+    executor = QueryExecutor.forContext(getServletContext());
+
+    String shardUrls = System.getProperty(SHARDS_PROPERTY);
+    if (shardUrls != null && !shardUrls.trim().isEmpty()) {
+      try {
+        shards = new ShardedMeetingQuery(Arrays.asList(shardUrls.trim().split("\\s*,\\s*")));
+      } catch (IOException e) {
+        throw new ServletException("Invalid " + SHARDS_PROPERTY + ": " + shardUrls, e);
+      }
+    }
+
+    String eventsFile = System.getProperty(OFF_HEAP_EVENTS_PROPERTY);
+    if (eventsFile != null && !eventsFile.trim().isEmpty()) {
+      if (shards != null) {
+        throw new ServletException(
+            SHARDS_PROPERTY + " and " + OFF_HEAP_EVENTS_PROPERTY + " cannot both be set");
+      }
+      try (Reader reader = Files.newBufferedReader(Paths.get(eventsFile.trim()),
+          StandardCharsets.UTF_8)) {
+        offHeapCalendar = new OffHeapCalendar(readEvents(reader));
+      } catch (IOException | UncheckedIOException | JsonParseException
+          | IllegalArgumentException e) {
+        throw new ServletException("Invalid " + OFF_HEAP_EVENTS_PROPERTY + ": " + eventsFile, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the events in a JSON array, read one at a time as they are iterated over, so that
+   * the whole array is never on the heap at once. Can only be iterated over once. Iterating
+   * throws {@code IllegalArgumentException} at the first event that is null or missing a title,
+   * time or attendees.
+   */
+  private static Iterable<Event> readEvents(Reader reader) throws IOException {
     Gson gson = new Gson();
+    JsonReader json = new JsonReader(reader);
+    json.beginArray();
+    return () -> new Iterator<Event>() {
+      @Override
+      public boolean hasNext() {
+        try {
+          return json.hasNext();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      @Override
+      public Event next() {
+        // Gson skips Event's constructor, so read the fields and let the constructor check them.
+        EventJson event = gson.fromJson(json, EventJson.class);
+        if (event == null) {
+          throw new IllegalArgumentException("event cannot be null");
+        }
+        return new Event(event.title, event.when,
+            event.attendees == null ? null : Arrays.asList(event.attendees), event.overrideCost);
+      }
+    };
+  }
+
+  @Override
+  public void destroy() {
+    // The executor is shared with the other servlets, so QueryExecutorListener shuts it down
+    // along with the context.
+    if (shards != null) {
+      shards.close();
+    }
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    AsyncContext asyncContext = request.startAsync();
+    asyncContext.setTimeout(DEADLINE_MILLIS);
+
+    // Whichever of the worker and the timeout gets here first owns the response.
+    AtomicBoolean responded = new AtomicBoolean(false);
+    long deadline = System.currentTimeMillis() + DEADLINE_MILLIS;
+
+    AtomicReference<Future<?>> task = new AtomicReference<>();
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) throws IOException {
+        cancel(task.get());
+        if (responded.compareAndSet(false, true)) {
+          response.sendError(
+              HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query deadline exceeded");
+          asyncContext.complete();
+        }
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {}
+
+      @Override
+      public void onError(AsyncEvent event) {
+        cancel(task.get());
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {}
+    });
 
-    // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    try {
+      task.set(executor.submit(() -> answer(asyncContext, responded, deadline)));
+    } catch (RejectedExecutionException e) {
+      // The queue is full. Fail fast so the client can back off and retry.
+      if (responded.compareAndSet(false, true)) {
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query queue is full");
+        asyncContext.complete();
+      }
+    }
+  }
+
+  private static void cancel(Future<?> task) {
+    if (task != null) {
+      task.cancel(true);
+    }
+  }
+
+  /**
+   * Runs on a worker thread. Parses the meeting request, finds the possible meeting times and
+   * writes them back as JSON, unless the deadline has already passed.
+   */
+  private void answer(AsyncContext asyncContext, AtomicBoolean responded, long deadline) {
+    HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+    HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+    // The request may have sat in the queue past its deadline, in which case the timeout
+    // listener will answer it.
+    if (System.currentTimeMillis() >= deadline) {
+      return;
+    }
+
+    try {
+      Gson gson = new Gson();
+      boolean binaryRequest = isBinary(request.getContentType());
+      boolean binaryResponse = isBinary(request.getHeader("Accept"));
+
+      // Convert the body to MeetingRequests. JSON bodies hold a single request, binary bodies
+      // hold a batch.
+      List<MeetingRequest> meetingRequests;
+      try {
+        meetingRequests = binaryRequest
+            ? BinaryMeetingCodec.readRequests(request.getInputStream())
+            : Collections.singletonList(gson.fromJson(request.getReader(), MeetingRequest.class));
+      } catch (JsonParseException | IOException e) {
+        sendError(asyncContext, responded, HttpServletResponse.SC_BAD_REQUEST,
+            "Malformed meeting request");
+        return;
+      }
+      if (meetingRequests.contains(null)) {
+        // An empty JSON body parses to null.
+        sendError(asyncContext, responded, HttpServletResponse.SC_BAD_REQUEST,
+            "Missing meeting request");
+        return;
+      }
 
-    // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+      // Optional paging parameters. Without them every window of the day is returned.
+      int limit;
+      int cursor;
+      LocalDate date;
+      WorkingHoursRegistry workingHours = WorkingHoursRegistry.getInstance();
+      try {
+        limit = parseNonNegative(request.getParameter("limit"), Integer.MAX_VALUE);
+        cursor = parseNonNegative(request.getParameter("cursor"), TimeRange.START_OF_DAY);
+        date = request.getParameter("date") == null
+            ? LocalDate.now(workingHours.getCalendarZone())
+            : LocalDate.parse(request.getParameter("date"));
+      } catch (NumberFormatException | DateTimeParseException e) {
+        sendError(asyncContext, responded, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        return;
+      }
 
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+      // Find the possible meeting times, stopping once we have as many as were asked for.
+      EventStore.Snapshot snapshot = EventStore.getInstance().getSnapshot();
+      FindMeetingQuery findMeetingQuery = new FindMeetingQuery(workingHours.forDate(date));
+      List<BinaryMeetingCodec.Answer> answers = new ArrayList<>(meetingRequests.size());
+      try {
+        for (MeetingRequest meetingRequest : meetingRequests) {
+          answers.add(findTimes(findMeetingQuery, snapshot, meetingRequest, limit, cursor));
+        }
+      } catch (IOException e) {
+        // Only the sharded mode does I/O here, so a shard is down or misbehaving.
+        sendError(asyncContext, responded, HttpServletResponse.SC_BAD_GATEWAY,
+            "Shard unavailable: " + e.getMessage());
+        return;
+      } catch (IllegalArgumentException e) {
+        // A request named a group that doesn't exist.
+        sendError(asyncContext, responded, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        return;
+      }
+
+      if (Thread.currentThread().isInterrupted() || !responded.compareAndSet(false, true)) {
+        // The deadline passed while we were computing.
+        return;
+      }
+
+      if (binaryResponse) {
+        response.setContentType(BinaryMeetingCodec.CONTENT_TYPE);
+        BinaryMeetingCodec.writeAnswers(response.getOutputStream(), answers);
+        asyncContext.complete();
+        return;
+      }
+
+      // Tell the client where to resume if there may be more windows.
+      if (answers.size() == 1 && answers.get(0).getNextCursor() >= 0) {
+        response.setHeader(
+            NEXT_CURSOR_HEADER, Integer.toString(answers.get(0).getNextCursor()));
+      }
+
+      // Convert the times to JSON. A batch is answered with one list of times per request.
+      String jsonResponse;
+      if (answers.size() == 1) {
+        jsonResponse = gson.toJson(answers.get(0).getTimes());
+      } else {
+        List<List<TimeRange>> times = new ArrayList<>(answers.size());
+        for (BinaryMeetingCodec.Answer answer : answers) {
+          times.add(answer.getTimes());
+        }
+        jsonResponse = gson.toJson(times);
+      }
+
+      // Send the JSON back as the response
+      response.setContentType("application/json");
+      response.getWriter().println(jsonResponse);
+      asyncContext.complete();
+    } catch (IOException | IllegalStateException e) {
+      // The client went away or the container already timed the request out, which also
+      // interrupts the query and stops it with a CancellationException. Nothing to answer.
+    } catch (RuntimeException e) {
+      // A bug rather than a bad request. Answer anyway, so the client isn't left waiting for the
+      // deadline and the async context is always completed.
+      try {
+        sendError(asyncContext, responded, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            "Query failed");
+      } catch (IOException | IllegalStateException ignored) {
+        // The client went away.
+      }
+    }
+  }
+
+  /**
+   * Finds up to {@code limit} windows for {@code meetingRequest}, starting from {@code cursor}.
+   */
+  private BinaryMeetingCodec.Answer findTimes(FindMeetingQuery findMeetingQuery,
+      EventStore.Snapshot snapshot, MeetingRequest meetingRequest, int limit, int cursor)
+      throws IOException {
+    if (limit == 0) {
+      // Nothing was asked for, so there is nothing to page through either.
+      return new BinaryMeetingCodec.Answer(Collections.emptyList(), -1);
+    }
+
+    if (shards == null) {
+      // Runs in this worker thread's reusable scratch arrays, so the query itself makes no
+      // garbage. One extra window is asked for to learn whether there are more.
+      int wanted = limit == Integer.MAX_VALUE ? limit : limit + 1;
+      List<TimeRange> times = offHeapCalendar == null
+          ? findMeetingQuery.availableTimes(
+              snapshot, meetingRequest, cursor, wanted, QueryContext.forCurrentThread())
+          // The off-heap calendar only knows about people, so groups are expanded here.
+          : findMeetingQuery.availableTimes(offHeapCalendar, snapshot.expandGroups(meetingRequest),
+              cursor, wanted, QueryContext.forCurrentThread());
+      if (times.size() <= limit) {
+        return new BinaryMeetingCodec.Answer(times, -1);
+      }
+      times = times.subList(0, limit);
+      return new BinaryMeetingCodec.Answer(times, times.get(limit - 1).end());
+    }
+
+    // Groups are defined locally, while the shards only know about people.
+    Iterator<TimeRange> windows = shards.availableTimes(
+        findMeetingQuery, snapshot.expandGroups(meetingRequest), cursor);
+    List<TimeRange> times = new ArrayList<>();
+    while (times.size() < limit && windows.hasNext()) {
+      times.add(windows.next());
+    }
+
+    int nextCursor = !times.isEmpty() && windows.hasNext() ? times.get(times.size() - 1).end() : -1;
+    return new BinaryMeetingCodec.Answer(times, nextCursor);
+  }
+
+  private static boolean isBinary(String mediaType) {
+    return mediaType != null && mediaType.contains(BinaryMeetingCodec.CONTENT_TYPE);
+  }
+
+  private static void sendError(AsyncContext asyncContext, AtomicBoolean responded, int status,
+      String message) throws IOException {
+    if (responded.compareAndSet(false, true)) {
+      ((HttpServletResponse) asyncContext.getResponse()).sendError(status, message);
+      asyncContext.complete();
+    }
+  }
+
+  /**
+   * Parses an optional non-negative integer parameter.
+   *
+   * @throws NumberFormatException if the parameter is present but not a non-negative integer
+   */
+  private static int parseNonNegative(String value, int defaultValue) {
+    if (value == null) {
+      return defaultValue;
+    }
+
+    int parsed = Integer.parseInt(value);
+    if (parsed < 0) {
+      throw new NumberFormatException("Parameter must not be negative: " + value);
+    }
+    return parsed;
+  }
 
-    // Send the JSON back as the response
-    response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+  /**
+   * One event in the {@code sps.offHeapEvents} file.
+   */
+  private static final class EventJson {
+    private String title;
+    private TimeRange when;
+    private String[] attendees;
+    private int overrideCost;
   }
 }
@@ -0,0 +1,134 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.sps.QuerySession;
+import com.google.sps.QuerySessions;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers meeting requests that are edited one attendee at a time. The body is JSON of the form
+ * {@code {"session": "...", "add": [...], "addOptional": [...], "remove": [...], "duration": 30,
+ * "granularity": 15}}, where every field is optional. {@code granularity} is the grid in minutes
+ * that the meeting must start on, as in {@code MeetingRequest}. Without a session a new one is
+ * opened. The edits are applied in the order remove, add, addOptional, and the answer is
+ * {@code {"session": "...", "times": [...]}} with the times that work for the edited attendees.
+ *
+ * <p>Sessions expire after {@code SESSION_TTL_MILLIS} without use, after which the response is
+ * 404 and the client should open a new session with the full attendee list. DELETE with a
+ * {@code session} URL parameter closes a session early. If too many sessions are open, opening
+ * another is answered with 503.
+ */
+@WebServlet("/query-session")
+public class QuerySessionServlet extends HttpServlet {
+  private static final long SESSION_TTL_MILLIS = 10 * 60 * 1000;
+
+  private final QuerySessions sessions =
+      new QuerySessions(EventStore.getInstance(), SESSION_TTL_MILLIS);
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    SessionRequest sessionRequest;
+    try {
+      sessionRequest = gson.fromJson(request.getReader(), SessionRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed session request");
+      return;
+    }
+    if (sessionRequest == null) {
+      sessionRequest = new SessionRequest();
+    }
+    int granularity = sessionRequest.granularity == 0 ? 1 : sessionRequest.granularity;
+    if (granularity < 0 || TimeRange.WHOLE_DAY.duration() % granularity != 0) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "granularity must evenly divide the day");
+      return;
+    }
+
+    String id = sessionRequest.session;
+    if (id == null) {
+      try {
+        id = sessions.create();
+      } catch (IllegalStateException e) {
+        response.setHeader("Retry-After", "60");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+        return;
+      }
+    }
+    QuerySession session = sessions.get(id);
+    if (session == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "Session " + id + " has expired");
+      return;
+    }
+
+    if (sessionRequest.remove != null) {
+      sessionRequest.remove.forEach(session::removeAttendee);
+    }
+    if (sessionRequest.add != null) {
+      sessionRequest.add.forEach(session::addAttendee);
+    }
+    if (sessionRequest.addOptional != null) {
+      sessionRequest.addOptional.forEach(session::addOptionalAttendee);
+    }
+
+    SessionResponse sessionResponse = new SessionResponse();
+    sessionResponse.session = id;
+    sessionResponse.times = session.query(sessionRequest.duration, granularity);
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(sessionResponse));
+  }
+
+  @Override
+  public void doDelete(HttpServletRequest request, HttpServletResponse response) {
+    String id = request.getParameter("session");
+    if (id != null) {
+      sessions.remove(id);
+    }
+    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  /**
+   * The JSON body of a session request.
+   */
+  private static final class SessionRequest {
+    private String session;
+    private List<String> add;
+    private List<String> addOptional;
+    private List<String> remove;
+    private long duration;
+    private int granularity;
+  }
+
+  /**
+   * The JSON body of a session response.
+   */
+  private static final class SessionResponse {
+    private String session;
+    private List<TimeRange> times;
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.sps.MeetingRequest;
+import com.google.sps.ResourceIndex;
+import com.google.sps.ResourceMeetingQuery;
+import com.google.sps.Resources;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers meeting requests that may also need a room. The body is a JSON meeting request with an
+ * optional {@code min_resource_capacity}; the answer is a list of {@code {"when", "resource"}}
+ * bookings.
+ */
+@WebServlet("/resource-query")
+public class ResourceQueryServlet extends HttpServlet {
+  // The room index for the most recently seen store version. Rebuilt when the events change.
+  private volatile IndexedVersion index;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    MeetingRequest meetingRequest;
+    try {
+      meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed meeting request");
+      return;
+    }
+
+    if (meetingRequest == null) {
+      // An empty body parses to null.
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing meeting request");
+      return;
+    }
+
+    EventStore.Snapshot snapshot = EventStore.getInstance().getSnapshot();
+    try {
+      meetingRequest = snapshot.expandGroups(meetingRequest);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    List<ResourceMeetingQuery.Booking> bookings = new ResourceMeetingQuery()
+        .query(snapshot.getEvents(), meetingRequest, getIndex(snapshot));
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(bookings));
+  }
+
+  private ResourceIndex getIndex(EventStore.Snapshot snapshot) {
+    IndexedVersion current = index;
+    if (current == null || current.version != snapshot.getVersion()) {
+      current = new IndexedVersion(snapshot.getVersion(),
+          new ResourceIndex(Arrays.asList(Resources.resources), snapshot.getEvents()));
+      index = current;
+    }
+    return current.index;
+  }
+
+  private static final class IndexedVersion {
+    private final long version;
+    private final ResourceIndex index;
+
+    IndexedVersion(long version, ResourceIndex index) {
+      this.version = version;
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import com.google.sps.WhatIfCalendar;
+import com.google.sps.WorkingHoursRegistry;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers a meeting request as if some events had been added, cancelled or moved, without
+ * changing the real calendar. The body is JSON of the form
+ * {@code {"request": {...}, "edits": [...]}}, where each edit is one of
+ * {@code {"add": event}}, {@code {"cancel": event}} or {@code {"move": event, "to": time}}, with
+ * events and times in the form {@code /get-events} returns them. The answer is the list of times
+ * that would work.
+ *
+ * <p>Accepts an optional {@code date} URL parameter, the ISO date whose working hours apply
+ * (today by default).
+ */
+@WebServlet("/what-if")
+public class WhatIfServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    WhatIfRequest whatIfRequest;
+    try {
+      whatIfRequest = gson.fromJson(request.getReader(), WhatIfRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed what-if request");
+      return;
+    }
+
+    if (whatIfRequest == null || whatIfRequest.request == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "request is required");
+      return;
+    }
+
+    List<WhatIfCalendar.Edit> edits = new ArrayList<>();
+    if (whatIfRequest.edits != null) {
+      for (EditJson edit : whatIfRequest.edits) {
+        if (edit.add != null) {
+          edits.add(WhatIfCalendar.Edit.add(edit.add));
+        } else if (edit.cancel != null) {
+          edits.add(WhatIfCalendar.Edit.cancel(edit.cancel));
+        } else if (edit.move != null && edit.to != null) {
+          edits.add(WhatIfCalendar.Edit.move(edit.move, edit.to));
+        } else {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown edit");
+          return;
+        }
+      }
+    }
+
+    LocalDate date;
+    WorkingHoursRegistry workingHours = WorkingHoursRegistry.getInstance();
+    try {
+      date = request.getParameter("date") == null
+          ? LocalDate.now(workingHours.getCalendarZone())
+          : LocalDate.parse(request.getParameter("date"));
+    } catch (DateTimeParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // Groups are expanded to their members so that edits to members' events count against them.
+    EventStore.Snapshot snapshot = EventStore.getInstance().getSnapshot();
+    MeetingRequest meetingRequest;
+    WhatIfCalendar calendar;
+    try {
+      meetingRequest = snapshot.expandGroups(whatIfRequest.request);
+      calendar = new WhatIfCalendar(snapshot, edits);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    List<TimeRange> times = new ArrayList<>();
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery(workingHours.forDate(date));
+    Iterator<TimeRange> windows = calendar.availableTimes(
+        findMeetingQuery, meetingRequest, TimeRange.START_OF_DAY);
+    windows.forEachRemaining(times::add);
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(times));
+  }
+
+  /**
+   * The JSON body of a what-if request.
+   */
+  private static final class WhatIfRequest {
+    private MeetingRequest request;
+    private List<EditJson> edits;
+  }
+
+  /**
+   * One edit in a what-if request. Exactly one of {@code add}, {@code cancel} and {@code move}
+   * is set, and {@code to} goes with {@code move}.
+   */
+  private static final class EditJson {
+    private Event add;
+    private Event cancel;
+    private Event move;
+    private TimeRange to;
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.WorkingHours;
+import com.google.sps.WorkingHoursRegistry;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Manages the working hours that /query, /what-if and /query-durations schedule within. GET
+ * returns everyone's working hours. POST takes a body of the form
+ * {@code {"attendee": "Person A", "hours": {"zone": "America/New_York", "start": "09:00",
+ * "end": "17:00", "days": ["MONDAY", ...]}}} and sets that person's hours, or clears them if
+ * {@code hours} is missing, so that they can be booked at any time again.
+ */
+@WebServlet("/working-hours")
+public class WorkingHoursServlet extends HttpServlet {
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Map<String, HoursJson> hoursByAttendee = new TreeMap<>();
+    for (Map.Entry<String, WorkingHours> entry
+        : WorkingHoursRegistry.getInstance().getWorkingHours().entrySet()) {
+      hoursByAttendee.put(entry.getKey(), HoursJson.of(entry.getValue()));
+    }
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(new Gson().toJson(hoursByAttendee));
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    HoursRequest hoursRequest;
+    try {
+      hoursRequest = new Gson().fromJson(request.getReader(), HoursRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed working hours request");
+      return;
+    }
+
+    if (hoursRequest == null || hoursRequest.attendee == null
+        || hoursRequest.attendee.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "attendee is required");
+      return;
+    }
+
+    WorkingHours hours = null;
+    if (hoursRequest.hours != null) {
+      try {
+        hours = hoursRequest.hours.toWorkingHours();
+      } catch (DateTimeException | IllegalArgumentException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        return;
+      }
+    }
+
+    WorkingHoursRegistry.getInstance().setWorkingHours(hoursRequest.attendee, hours);
+    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  /**
+   * The JSON body of a working hours request.
+   */
+  private static final class HoursRequest {
+    private String attendee;
+    private HoursJson hours;
+  }
+
+  /**
+   * One person's working hours as JSON, with ISO times and zone IDs.
+   */
+  private static final class HoursJson {
+    private String zone;
+    private String start;
+    private String end;
+    private List<String> days;
+
+    static HoursJson of(WorkingHours hours) {
+      HoursJson json = new HoursJson();
+      json.zone = hours.getZone().getId();
+      json.start = hours.getStart().toString();
+      json.end = hours.getEnd().toString();
+      json.days = new ArrayList<>();
+      for (DayOfWeek day : hours.getDays()) {
+        json.days.add(day.name());
+      }
+      return json;
+    }
+
+    /**
+     * @throws DateTimeException if the zone or a time is malformed
+     * @throws IllegalArgumentException if a field is missing or a day is unknown
+     */
+    WorkingHours toWorkingHours() {
+      if (zone == null || start == null || end == null || days == null) {
+        throw new IllegalArgumentException("zone, start, end and days are required");
+      }
+
+      List<DayOfWeek> workingDays = new ArrayList<>(days.size());
+      for (String day : days) {
+        if (day == null) {
+          throw new IllegalArgumentException("days cannot contain null");
+        }
+        workingDays.add(DayOfWeek.valueOf(day));
+      }
+      return new WorkingHours(
+          ZoneId.of(zone), LocalTime.parse(start), LocalTime.parse(end), workingDays);
+    }
+  }
+}
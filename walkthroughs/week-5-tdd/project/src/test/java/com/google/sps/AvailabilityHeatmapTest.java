@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the AvailabilityHeatmap class.
+ */
+@RunWith(JUnit4.class)
+public final class AvailabilityHeatmapTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private AvailabilityHeatmap heatmap;
+
+  @Before
+  public void setUp() {
+    heatmap = new AvailabilityHeatmap();
+  }
+
+  @Test
+  public void everyoneFreeWithNoEvents() {
+    List<AvailabilityHeatmap.Run> actual =
+        heatmap.freeCounts(NO_EVENTS, Arrays.asList(PERSON_A, PERSON_B), TimeRange.WHOLE_DAY);
+    List<AvailabilityHeatmap.Run> expected =
+        Arrays.asList(new AvailabilityHeatmap.Run(TimeRange.WHOLE_DAY, 2));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void countsOverlappingBusyTimes() {
+    // Events  :       |--A--|
+    //                    |--B--|
+    // Free    : |--2--|-1|-0|-1|--2--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_B, PERSON_C)));
+
+    List<AvailabilityHeatmap.Run> actual =
+        heatmap.freeCounts(events, Arrays.asList(PERSON_A, PERSON_B), TimeRange.WHOLE_DAY);
+    List<AvailabilityHeatmap.Run> expected = Arrays.asList(
+        new AvailabilityHeatmap.Run(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), 2),
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false), 1),
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), 0),
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false), 1),
+        new AvailabilityHeatmap.Run(
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true), 2));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void doubleBookedAttendeeCountedOnce() {
+    // Person A has two overlapping events, but is only one person.
+    //
+    // Events  :       |--A--|
+    //                    |--A--|
+    // Free    : |--1--|--0-----|--1--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_A)));
+
+    List<AvailabilityHeatmap.Run> actual =
+        heatmap.freeCounts(events, Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY);
+    List<AvailabilityHeatmap.Run> expected = Arrays.asList(
+        new AvailabilityHeatmap.Run(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), 1),
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0800AM, TIME_0930AM, false), 0),
+        new AvailabilityHeatmap.Run(
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true), 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsAreClippedToTheHorizon() {
+    // Events  :    |----A----|
+    // Horizon :       |-----------|
+    // Free    :       |-0-|-1-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)));
+
+    List<AvailabilityHeatmap.Run> actual = heatmap.freeCounts(events, Arrays.asList(PERSON_A),
+        TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false));
+    List<AvailabilityHeatmap.Run> expected = Arrays.asList(
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), 0),
+        new AvailabilityHeatmap.Run(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+}
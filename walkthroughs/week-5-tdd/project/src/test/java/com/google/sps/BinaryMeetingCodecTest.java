@@ -0,0 +1,151 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the BinaryMeetingCodec class.
+ */
+@RunWith(JUnit4.class)
+public final class BinaryMeetingCodecTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  @Test
+  public void requestsSurviveARoundTrip() throws IOException {
+    MeetingRequest first = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 30);
+    first.addOptionalAttendee(PERSON_C);
+    MeetingRequest second = new MeetingRequest(Arrays.asList(PERSON_C), 60);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeRequests(out, Arrays.asList(first, second));
+    List<MeetingRequest> actual =
+        BinaryMeetingCodec.readRequests(new ByteArrayInputStream(out.toByteArray()));
+
+    Assert.assertEquals(2, actual.size());
+    assertSameRequest(first, actual.get(0));
+    assertSameRequest(second, actual.get(1));
+  }
+
+  @Test
+  public void granularityAndGroupsSurviveARoundTrip() throws IOException {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 30);
+    request.setGranularity(15);
+    request.addGroup("Team");
+    request.addOptionalGroup("Managers");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeRequests(out, Arrays.asList(request));
+    MeetingRequest actual =
+        BinaryMeetingCodec.readRequests(new ByteArrayInputStream(out.toByteArray())).get(0);
+
+    assertSameRequest(request, actual);
+    Assert.assertEquals(15, actual.getGranularity());
+    Assert.assertEquals(Arrays.asList("Team"), new ArrayList<>(actual.getGroups()));
+    Assert.assertEquals(Arrays.asList("Managers"), new ArrayList<>(actual.getOptionalGroups()));
+  }
+
+  @Test(expected = IOException.class)
+  public void unknownVersionIsRejected() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeRequests(
+        out, Arrays.asList(new MeetingRequest(Arrays.asList(PERSON_A), 30)));
+    byte[] bytes = out.toByteArray();
+    bytes[0] = 0; // the version before granularity and groups were sent
+
+    BinaryMeetingCodec.readRequests(new ByteArrayInputStream(bytes));
+  }
+
+  @Test
+  public void answersSurviveARoundTrip() throws IOException {
+    List<TimeRange> times = Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.getTimeInMinutes(8, 0), false),
+        TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(9, 30), TimeRange.END_OF_DAY, true));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeAnswers(out, Arrays.asList(
+        new BinaryMeetingCodec.Answer(times, -1),
+        new BinaryMeetingCodec.Answer(times.subList(0, 1), TimeRange.getTimeInMinutes(8, 0))));
+    List<BinaryMeetingCodec.Answer> actual =
+        BinaryMeetingCodec.readAnswers(new ByteArrayInputStream(out.toByteArray()));
+
+    Assert.assertEquals(times, actual.get(0).getTimes());
+    Assert.assertEquals(-1, actual.get(0).getNextCursor());
+    Assert.assertEquals(times.subList(0, 1), actual.get(1).getTimes());
+    Assert.assertEquals(TimeRange.getTimeInMinutes(8, 0), actual.get(1).getNextCursor());
+  }
+
+  @Test
+  public void answersAreSmallerThanJson() throws IOException {
+    List<TimeRange> times = Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.getTimeInMinutes(8, 0), false),
+        TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(9, 30), TimeRange.END_OF_DAY, true));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeAnswers(out, Arrays.asList(new BinaryMeetingCodec.Answer(times, -1)));
+    int jsonSize = new Gson().toJson(times).getBytes(StandardCharsets.UTF_8).length;
+
+    Assert.assertTrue(out.size() * 4 < jsonSize);
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedRequestsAreRejected() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryMeetingCodec.writeRequests(
+        out, Arrays.asList(new MeetingRequest(Arrays.asList(PERSON_A), 30)));
+    byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+    BinaryMeetingCodec.readRequests(new ByteArrayInputStream(bytes));
+  }
+
+  @Test(expected = IOException.class)
+  public void unknownAttendeeIndexIsRejected() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(1); // format version
+    Varints.write(out, 0); // empty dictionary
+    Varints.write(out, 1); // one request
+    Varints.write(out, 30); // duration
+    Varints.write(out, 1); // one required attendee...
+    Varints.write(out, 0); // ...who isn't in the dictionary
+    Varints.write(out, 0); // no optional attendees
+    Varints.write(out, 1); // any minute
+    Varints.write(out, 0); // no required groups
+    Varints.write(out, 0); // no optional groups
+
+    BinaryMeetingCodec.readRequests(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  private static void assertSameRequest(MeetingRequest expected, MeetingRequest actual) {
+    Assert.assertEquals(expected.getDuration(), actual.getDuration());
+    Assert.assertEquals(
+        new HashSet<>(expected.getAttendees()), new HashSet<>(actual.getAttendees()));
+    Assert.assertEquals(new HashSet<>(expected.getOptionalAttendees()),
+        new HashSet<>(actual.getOptionalAttendees()));
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the BulkMeetingScheduler class.
+ */
+@RunWith(JUnit4.class)
+public final class BulkMeetingSchedulerTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_1_HOUR = 60;
+
+  private static final long TIME_BUDGET_MILLIS = 1000;
+
+  @Test
+  public void meetingsSharingAnAttendeeDontOverlap() {
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR),
+        new MeetingRequest(Arrays.asList(PERSON_B, PERSON_C), DURATION_1_HOUR));
+
+    BulkMeetingScheduler.Schedule schedule =
+        new BulkMeetingScheduler(TIME_BUDGET_MILLIS).schedule(NO_EVENTS, requests);
+
+    Assert.assertTrue(schedule.isComplete());
+    Assert.assertFalse(schedule.getTimes().get(0).overlaps(schedule.getTimes().get(1)));
+  }
+
+  @Test
+  public void mostConstrainedMeetingGetsItsOnlySlot() {
+    // Person A is only free 9-10. A greedy pass in request order would give that hour to the
+    // first meeting, which Person B could hold at any time, and leave nothing for the second.
+    //
+    // Events A : |--------A--------|     |--------A--------|
+    // Day      : |--------------------------------------------|
+    // Free A   :                   |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_B)));
+
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_B), DURATION_1_HOUR),
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR));
+
+    BulkMeetingScheduler.Schedule schedule =
+        new BulkMeetingScheduler(TIME_BUDGET_MILLIS).schedule(events, requests);
+
+    Assert.assertTrue(schedule.isComplete());
+    Assert.assertEquals(
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR), schedule.getTimes().get(1));
+    Assert.assertTrue(schedule.getTimes().get(0).end() <= TIME_0900AM);
+  }
+
+  @Test
+  public void impossibleMeetingIsLeftOut() {
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY.duration() + 1),
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR));
+
+    BulkMeetingScheduler.Schedule schedule =
+        new BulkMeetingScheduler(TIME_BUDGET_MILLIS).schedule(NO_EVENTS, requests);
+
+    Assert.assertFalse(schedule.isComplete());
+    Assert.assertNull(schedule.getTimes().get(0));
+    Assert.assertNotNull(schedule.getTimes().get(1));
+  }
+
+  @Test
+  public void fillsTheDayExactly() {
+    // Twenty four one hour meetings for the same person only fit if they are packed back to back.
+    List<MeetingRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 24; i++) {
+      requests.add(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR));
+    }
+
+    BulkMeetingScheduler.Schedule schedule =
+        new BulkMeetingScheduler(TIME_BUDGET_MILLIS).schedule(NO_EVENTS, requests);
+
+    Assert.assertTrue(schedule.isComplete());
+    MinuteMask used = MinuteMask.of(schedule.getTimes(), TimeRange.WHOLE_DAY.duration());
+    Assert.assertEquals(TimeRange.WHOLE_DAY.duration(), used.cardinality());
+  }
+
+  @Test
+  public void meetingsStartOnTheirGrid() {
+    // Both people are busy until 9:05. The short meeting is on a 15 minute grid and the long one
+    // on a 30 minute grid, so neither may start at 9:05.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM + 5, false),
+            Arrays.asList(PERSON_A, PERSON_B)));
+
+    MeetingRequest shortRequest = new MeetingRequest(Arrays.asList(PERSON_A), 20);
+    shortRequest.setGranularity(15);
+    MeetingRequest longRequest = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_1_HOUR);
+    longRequest.setGranularity(30);
+
+    BulkMeetingScheduler.Schedule schedule = new BulkMeetingScheduler(TIME_BUDGET_MILLIS)
+        .schedule(events, Arrays.asList(shortRequest, longRequest));
+
+    Assert.assertTrue(schedule.isComplete());
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(TIME_0900AM + 15, 20),
+        TimeRange.fromStartDuration(TIME_0900AM + 30, DURATION_1_HOUR)), schedule.getTimes());
+  }
+}
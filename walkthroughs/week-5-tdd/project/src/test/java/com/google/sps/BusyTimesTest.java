@@ -0,0 +1,88 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the BusyTimes class.
+ */
+@RunWith(JUnit4.class)
+public final class BusyTimesTest {
+  private static TimeRange range(int start, int end) {
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+
+  @Test
+  public void mergeSortedInterleavesByStart() {
+    List<List<TimeRange>> lists = Arrays.asList(
+        Arrays.asList(range(0, 10), range(40, 50)),
+        Collections.emptyList(),
+        Arrays.asList(range(5, 15), range(20, 30), range(60, 70)),
+        Arrays.asList(range(25, 45)));
+
+    List<TimeRange> merged = new ArrayList<>();
+    BusyTimes.mergeSorted(lists).forEachRemaining(merged::add);
+
+    Assert.assertEquals(Arrays.asList(range(0, 10), range(5, 15), range(20, 30), range(25, 45),
+        range(40, 50), range(60, 70)), merged);
+  }
+
+  @Test
+  public void mergeSortedOfNothing() {
+    Assert.assertFalse(BusyTimes.mergeSorted(Collections.emptyList()).hasNext());
+    Assert.assertFalse(BusyTimes.mergeSorted(
+        Arrays.asList(Collections.emptyList(), Collections.emptyList())).hasNext());
+  }
+
+  @Test
+  public void sortByStartMatchesComparatorSort() {
+    // Large and dense enough for the counting sort, with many equal starts whose order must be
+    // kept.
+    Random random = new Random(9);
+    List<TimeRange> times = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      times.add(TimeRange.fromStartDuration(start, random.nextInt(60)));
+    }
+    List<TimeRange> expected = new ArrayList<>(times);
+    expected.sort(TimeRange.ORDER_BY_START);
+
+    BusyTimes.sortByStart(times);
+
+    Assert.assertEquals(expected, times);
+  }
+
+  @Test
+  public void sortByStartFallsBackForWideRanges() {
+    // Three times spread over a week are too sparse for a counting sort.
+    List<TimeRange> times = new ArrayList<>(
+        Arrays.asList(range(7 * 1440, 7 * 1440 + 30), range(0, 30), range(3 * 1440, 3 * 1440 + 5)));
+
+    BusyTimes.sortByStart(times);
+
+    Assert.assertEquals(
+        Arrays.asList(range(0, 30), range(3 * 1440, 3 * 1440 + 5), range(7 * 1440, 7 * 1440 + 30)),
+        times);
+  }
+}
@@ -0,0 +1,156 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the CommonFreeTimeMatrix class.
+ */
+@RunWith(JUnit4.class)
+public final class CommonFreeTimeMatrixTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1200PM = TimeRange.getTimeInMinutes(12, 0);
+
+  private static final int WHOLE_DAY = TimeRange.WHOLE_DAY.duration();
+
+  @Test
+  public void commonFreeTimeSubtractsEitherPersonsEvents() {
+    // Events : |--A--|
+    //                |----B----|
+    //                          |--------C--------|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_1000AM, TIME_1200PM, false),
+            Arrays.asList(PERSON_C)));
+    CommonFreeTimeMatrix matrix =
+        new CommonFreeTimeMatrix(events, Arrays.asList(PERSON_A, PERSON_B, PERSON_C), null);
+
+    Assert.assertEquals(WHOLE_DAY - 120, matrix.commonFreeMinutes(0, 1));
+    Assert.assertEquals(WHOLE_DAY - 180, matrix.commonFreeMinutes(0, 2));
+    Assert.assertEquals(WHOLE_DAY - 180, matrix.commonFreeMinutes(1, 2));
+  }
+
+  @Test
+  public void availabilityLimitsFreeTime() {
+    // A only works 8:00 - 12:00, and is busy for an hour of it.
+    MinuteMask hours = MinuteMask.forDay();
+    hours.set(TIME_0800AM, TIME_1200PM);
+    List<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), Arrays.asList(PERSON_A)));
+    CommonFreeTimeMatrix matrix = new CommonFreeTimeMatrix(events,
+        Arrays.asList(PERSON_A, PERSON_B), attendee -> attendee.equals(PERSON_A) ? hours : null);
+
+    Assert.assertEquals(180, matrix.commonFreeMinutes(0, 1));
+  }
+
+  @Test
+  public void pairsAboveThresholdMatchEveryPairAcrossTiles() {
+    // Enough people for several tiles, including a partial one, checked pair by pair against
+    // plain interval arithmetic.
+    Random random = new Random(7);
+    List<String> people = new ArrayList<>();
+    List<Event> events = new ArrayList<>();
+    boolean[][] busy = new boolean[150][WHOLE_DAY];
+    for (int person = 0; person < busy.length; person++) {
+      people.add("Person " + person);
+      for (int meeting = 0; meeting < 5; meeting++) {
+        int start = random.nextInt(WHOLE_DAY - 120);
+        int duration = 15 + random.nextInt(105);
+        events.add(new Event("Meeting", TimeRange.fromStartDuration(start, duration),
+            Collections.singletonList(people.get(person))));
+        Arrays.fill(busy[person], start, start + duration, true);
+      }
+    }
+    CommonFreeTimeMatrix matrix = new CommonFreeTimeMatrix(events, people, null);
+
+    int threshold = WHOLE_DAY - 400;
+    Map<List<Integer>, Integer> expected = new HashMap<>();
+    for (int i = 0; i < busy.length; i++) {
+      for (int j = i + 1; j < busy.length; j++) {
+        int minutes = 0;
+        for (int minute = 0; minute < WHOLE_DAY; minute++) {
+          if (!busy[i][minute] && !busy[j][minute]) {
+            minutes++;
+          }
+        }
+        if (minutes >= threshold) {
+          expected.put(Arrays.asList(i, j), minutes);
+        }
+      }
+    }
+
+    Map<List<Integer>, Integer> actual = new HashMap<>();
+    matrix.forEachPair(threshold, (first, second, minutes) ->
+        Assert.assertNull(actual.put(Arrays.asList(first, second), minutes)));
+    Map<List<Integer>, Integer> sequential = new HashMap<>();
+    matrix.forEachPair(threshold, false, (first, second, minutes) ->
+        Assert.assertNull(sequential.put(Arrays.asList(first, second), minutes)));
+
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(expected, sequential);
+  }
+
+  @Test
+  public void interruptedSequentialRunStops() {
+    CommonFreeTimeMatrix matrix = new CommonFreeTimeMatrix(
+        Collections.emptyList(), Arrays.asList(PERSON_A, PERSON_B), null);
+
+    Thread.currentThread().interrupt();
+    try {
+      matrix.forEachPair(0, false, (first, second, minutes) -> Assert.fail("Expected no pairs"));
+      Assert.fail("Expected the run to stop");
+    } catch (CancellationException expected) {
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void writesOneLinePerPair() throws IOException {
+    List<Event> events = Arrays.asList(new Event("Event 1", TimeRange.WHOLE_DAY,
+        Arrays.asList(PERSON_C)));
+    CommonFreeTimeMatrix matrix =
+        new CommonFreeTimeMatrix(events, Arrays.asList(PERSON_A, PERSON_B, PERSON_C), null);
+
+    StringWriter out = new StringWriter();
+    matrix.writePairs(1, out);
+
+    Assert.assertEquals(PERSON_A + "\t" + PERSON_B + "\t" + WHOLE_DAY + "\n", out.toString());
+  }
+}
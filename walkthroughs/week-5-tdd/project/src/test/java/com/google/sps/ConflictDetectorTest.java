@@ -0,0 +1,147 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the ConflictDetector class.
+ */
+@RunWith(JUnit4.class)
+public final class ConflictDetectorTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1030AM = TimeRange.getTimeInMinutes(10, 30);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private final ConflictDetector detector = new ConflictDetector();
+
+  @Test
+  public void noConflictsForBackToBackEvents() {
+    // Events : |--A--|--A--|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_A)));
+
+    Assert.assertEquals(Collections.emptyList(), detector.detect(events));
+  }
+
+  @Test
+  public void doubleBookedPerson() {
+    // Only A is in both events, so only A is double booked.
+    //
+    // Events : |--A--|
+    //             |--A,B--|
+    Event first = new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0930AM, false),
+        Arrays.asList(PERSON_A));
+    Event second = new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+        Arrays.asList(PERSON_A, PERSON_B));
+
+    List<ConflictDetector.AttendeeConflicts> expected = Arrays.asList(
+        new ConflictDetector.AttendeeConflicts(PERSON_A, Arrays.asList(new ConflictDetector.Overlap(
+            first, second, TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false))), 30));
+
+    Assert.assertEquals(expected, detector.detect(Arrays.asList(second, first)));
+  }
+
+  @Test
+  public void nestedEventsCountConflictedMinutesOnce() {
+    // Every pair overlaps, and A is double booked from 9:00 to 10:30.
+    //
+    // Events : |--------A--------|
+    //              |--A--|
+    //                 |--A--|
+    Event outer = new Event("Outer", TimeRange.fromStartEnd(TIME_0800AM, TIME_1100AM, false),
+        Arrays.asList(PERSON_A));
+    Event early = new Event("Early", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+        Arrays.asList(PERSON_A));
+    Event late = new Event("Late", TimeRange.fromStartEnd(TIME_0930AM, TIME_1030AM, false),
+        Arrays.asList(PERSON_A));
+
+    List<ConflictDetector.AttendeeConflicts> conflicts =
+        detector.detect(Arrays.asList(late, outer, early));
+
+    Assert.assertEquals(1, conflicts.size());
+    Assert.assertEquals(90, conflicts.get(0).getConflictedMinutes());
+    Assert.assertEquals(new HashSet<>(Arrays.asList(
+        new ConflictDetector.Overlap(
+            outer, early, TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false)),
+        new ConflictDetector.Overlap(
+            outer, late, TimeRange.fromStartEnd(TIME_0930AM, TIME_1030AM, false)),
+        new ConflictDetector.Overlap(
+            early, late, TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false)))),
+        new HashSet<>(conflicts.get(0).getOverlaps()));
+  }
+
+  @Test
+  public void matchesMinuteByMinuteCount() {
+    Random random = new Random(11);
+    List<Event> events = new ArrayList<>();
+    int[][] eventsPerMinute = new int[20][TimeRange.WHOLE_DAY.duration()];
+    for (int i = 0; i < 400; i++) {
+      int person = random.nextInt(eventsPerMinute.length);
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 90);
+      int duration = 1 + random.nextInt(90);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList("Person " + person)));
+      for (int minute = start; minute < start + duration; minute++) {
+        eventsPerMinute[person][minute]++;
+      }
+    }
+
+    int expectedMinutes = 0;
+    for (int[] counts : eventsPerMinute) {
+      for (int count : counts) {
+        if (count > 1) {
+          expectedMinutes++;
+        }
+      }
+    }
+    int expectedPairs = 0;
+    for (int i = 0; i < events.size(); i++) {
+      for (int j = i + 1; j < events.size(); j++) {
+        if (events.get(i).getAttendees().equals(events.get(j).getAttendees())
+            && events.get(i).getWhen().overlaps(events.get(j).getWhen())) {
+          expectedPairs++;
+        }
+      }
+    }
+
+    int actualMinutes = 0;
+    int actualPairs = 0;
+    for (ConflictDetector.AttendeeConflicts conflicts : detector.detect(events)) {
+      actualMinutes += conflicts.getConflictedMinutes();
+      actualPairs += conflicts.getOverlaps().size();
+    }
+    Assert.assertEquals(expectedMinutes, actualMinutes);
+    Assert.assertEquals(expectedPairs, actualPairs);
+  }
+}
@@ -0,0 +1,150 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the EventInterner class.
+ */
+@RunWith(JUnit4.class)
+public final class EventInternerTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static Event teamSync(int start, String... attendees) {
+    // new String keeps the titles from being the same literal.
+    return new Event(new String("Team Sync"), TimeRange.fromStartDuration(start, 30),
+        Arrays.asList(attendees));
+  }
+
+  @Test
+  public void equalEventsShareOneInstance() {
+    EventInterner interner = new EventInterner();
+
+    Event first = interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    Event second = interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, interner.getStats().getDistinctEvents());
+
+    // A few more copies pay for the tables.
+    for (int i = 0; i < 3; i++) {
+      interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    }
+    Assert.assertTrue(interner.getStats().getBytesSaved() > 0);
+  }
+
+  @Test
+  public void uniqueEventsCostTheTables() {
+    // With nothing to share, the tables are all the interner adds.
+    EventInterner interner = new EventInterner();
+    interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+
+    EventInterner.Stats stats = interner.getStats();
+    Assert.assertTrue(stats.getTableBytes() > 0);
+    Assert.assertEquals(-stats.getTableBytes(), stats.getBytesSaved());
+  }
+
+  @Test
+  public void partsAreSharedAcrossDifferentEvents() {
+    EventInterner interner = new EventInterner();
+
+    Event morning = interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    Event later = interner.intern(teamSync(TIME_1000AM, PERSON_B, PERSON_A));
+
+    Assert.assertNotSame(morning, later);
+    Assert.assertSame(morning.getTitle(), later.getTitle());
+    Assert.assertEquals(morning.getAttendees(), later.getAttendees());
+    Assert.assertEquals(1, interner.getStats().getDistinctAttendeeSets());
+    Assert.assertEquals(2, interner.getStats().getDistinctTimes());
+  }
+
+  @Test
+  public void internedEventsEqualTheOriginals() {
+    EventInterner interner = new EventInterner();
+    Event original = teamSync(TIME_0900AM, PERSON_A);
+
+    Event interned = interner.intern(original);
+
+    Assert.assertEquals(original, interned);
+    Assert.assertEquals(original.hashCode(), interned.hashCode());
+  }
+
+  @Test
+  public void eventsAreForgottenOnceReleased() {
+    EventInterner interner = new EventInterner();
+
+    interner.intern(teamSync(TIME_0900AM, PERSON_A));
+    interner.intern(teamSync(TIME_0900AM, PERSON_A));
+    interner.release(teamSync(TIME_0900AM, PERSON_A));
+    Assert.assertEquals(1, interner.getStats().getDistinctEvents());
+
+    interner.release(teamSync(TIME_0900AM, PERSON_A));
+    Assert.assertEquals(0, interner.getStats().getDistinctEvents());
+  }
+
+  @Test
+  public void releasingTakesBackSavingsAndParts() {
+    EventInterner interner = new EventInterner();
+    interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    interner.intern(teamSync(TIME_1000AM, PERSON_A, PERSON_B));
+    long saved = interner.getStats().getBytesSaved();
+
+    // Adding and removing the same event again and again must not inflate the savings.
+    for (int i = 0; i < 10; i++) {
+      interner.intern(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+      interner.release(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    }
+    Assert.assertEquals(saved, interner.getStats().getBytesSaved());
+
+    interner.release(teamSync(TIME_0900AM, PERSON_A, PERSON_B));
+    interner.release(teamSync(TIME_1000AM, PERSON_A, PERSON_B));
+    EventInterner.Stats stats = interner.getStats();
+    Assert.assertEquals(0, stats.getBytesSaved());
+    Assert.assertEquals(0, stats.getDistinctStrings());
+    Assert.assertEquals(0, stats.getDistinctTimes());
+    Assert.assertEquals(0, stats.getDistinctAttendeeSets());
+  }
+
+  @Test
+  public void sameTitleDifferentEventsStayDistinct() {
+    // Every event has the same title, and so the same Event.hashCode. They must still all be
+    // told apart.
+    EventInterner interner = new EventInterner();
+    for (int start = 0; start < TimeRange.WHOLE_DAY.duration(); start++) {
+      interner.intern(teamSync(start, PERSON_A));
+    }
+
+    Assert.assertEquals(TimeRange.WHOLE_DAY.duration(), interner.getStats().getDistinctEvents());
+    Assert.assertEquals(1, interner.getStats().getDistinctAttendeeSets());
+  }
+
+  @Test
+  public void storeInternsSampleEvents() {
+    EventStore store = new EventStore(Arrays.asList(Events.events));
+
+    EventInterner.Stats stats = store.getInterningStats();
+    Assert.assertEquals(Events.events.length, stats.getInterned());
+    Assert.assertTrue(stats.getDistinctAttendeeSets() < Events.events.length);
+  }
+}
@@ -0,0 +1,225 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the EventStore class.
+ */
+@RunWith(JUnit4.class)
+public final class EventStoreTest {
+  private static final String PERSON_A = "Person A";
+
+  private static final Event EVENT_1 = new Event("Event 1",
+      TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(8, 0), 30), Arrays.asList(PERSON_A));
+  private static final Event EVENT_2 = new Event("Event 2",
+      TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(9, 0), 30), Arrays.asList(PERSON_A));
+
+  private EventStore store;
+
+  @Before
+  public void setUp() {
+    store = new EventStore(Arrays.asList(EVENT_1));
+  }
+
+  @Test
+  public void addingAnEventBumpsTheVersion() {
+    EventStore.Snapshot before = store.getSnapshot();
+    store.add(EVENT_2);
+
+    Assert.assertEquals(before.getVersion() + 1, store.getVersion());
+    Assert.assertEquals(Arrays.asList(EVENT_1, EVENT_2), store.getSnapshot().getEvents());
+  }
+
+  @Test
+  public void oldSnapshotsAreUnchanged() {
+    EventStore.Snapshot before = store.getSnapshot();
+    store.add(EVENT_2);
+
+    Assert.assertEquals(Arrays.asList(EVENT_1), before.getEvents());
+  }
+
+  @Test
+  public void removingAMissingEventKeepsTheVersion() {
+    long version = store.getVersion();
+
+    Assert.assertFalse(store.remove(EVENT_2));
+    Assert.assertEquals(version, store.getVersion());
+  }
+
+  @Test
+  public void removingAnEventBumpsTheVersion() {
+    long version = store.getVersion();
+
+    Assert.assertTrue(store.remove(EVENT_1));
+    Assert.assertEquals(version + 1, store.getVersion());
+    Assert.assertEquals(Collections.emptyList(), store.getSnapshot().getEvents());
+  }
+
+  @Test
+  public void deltaListsNetChanges() {
+    long version = store.getVersion();
+    store.add(EVENT_2);
+    store.remove(EVENT_1);
+
+    EventStore.Delta delta = store.changesSince(version);
+
+    Assert.assertEquals(store.getVersion(), delta.getToVersion());
+    Assert.assertEquals(Arrays.asList(EVENT_2), delta.getAdded());
+    Assert.assertEquals(Arrays.asList(EVENT_1), delta.getRemoved());
+  }
+
+  @Test
+  public void deltaCancelsOutAddAndRemove() {
+    long version = store.getVersion();
+    store.add(EVENT_2);
+    store.remove(EVENT_2);
+
+    EventStore.Delta delta = store.changesSince(version);
+
+    Assert.assertEquals(Collections.emptyList(), delta.getAdded());
+    Assert.assertEquals(Collections.emptyList(), delta.getRemoved());
+  }
+
+  @Test
+  public void deltaOnlyIncludesLaterChanges() {
+    store.add(EVENT_2);
+    long version = store.getVersion();
+    store.replace(EVENT_1, EVENT_2);
+
+    EventStore.Delta delta = store.changesSince(version);
+
+    Assert.assertEquals(Arrays.asList(EVENT_2), delta.getAdded());
+    Assert.assertEquals(Arrays.asList(EVENT_1), delta.getRemoved());
+  }
+
+  @Test
+  public void versionTokensOnlyWorkOnTheirOwnStore() {
+    String token = store.versionToken(store.getVersion());
+    store.add(EVENT_2);
+
+    Assert.assertEquals(Arrays.asList(EVENT_2), store.changesSince(token).getAdded());
+
+    // A new store, as after a restart, starts again at version 0 but must not take old tokens.
+    EventStore restarted = new EventStore(Arrays.asList(EVENT_1));
+    restarted.add(EVENT_2);
+    Assert.assertNull(restarted.changesSince(token));
+    Assert.assertNull(store.changesSince("0"));
+    Assert.assertNull(store.changesSince(token + "x"));
+  }
+
+  @Test
+  public void noDeltaFromTheFuture() {
+    Assert.assertNull(store.changesSince(store.getVersion() + 1));
+  }
+
+  @Test
+  public void busyTimesAreMergedPerAttendee() {
+    // Event 3 overlaps Event 2 and touches Event 1, so all three merge into one busy time.
+    Event event3 = new Event("Event 3",
+        TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(8, 30), TimeRange.getTimeInMinutes(9, 15),
+            false),
+        Arrays.asList(PERSON_A, "Person B"));
+    store.add(EVENT_2);
+    store.add(event3);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(8, 0),
+        TimeRange.getTimeInMinutes(9, 30), false)), store.getSnapshot().getBusyTimes(PERSON_A));
+    Assert.assertEquals(Arrays.asList(event3.getWhen()),
+        store.getSnapshot().getBusyTimes("Person B"));
+    Assert.assertEquals(Collections.emptyList(), store.getSnapshot().getBusyTimes("Person C"));
+  }
+
+  @Test
+  public void busyTimesOnlyChangeForTheEventsAttendees() {
+    // Moving Person B's event leaves Person A's lists as they were in the last snapshot.
+    Event event3 = new Event("Event 3",
+        TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(10, 0), 30),
+        Arrays.asList("Person B"));
+    Event moved = new Event("Event 3",
+        TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(11, 0), 30),
+        Arrays.asList("Person B"));
+    store.add(event3);
+    EventStore.Snapshot before = store.getSnapshot();
+    store.replace(event3, moved);
+    EventStore.Snapshot after = store.getSnapshot();
+
+    Assert.assertSame(before.getEventsOf(PERSON_A), after.getEventsOf(PERSON_A));
+    Assert.assertSame(before.getBusyTimes(PERSON_A), after.getBusyTimes(PERSON_A));
+    Assert.assertEquals(Arrays.asList(event3.getWhen()), before.getBusyTimes("Person B"));
+    Assert.assertEquals(Arrays.asList(moved.getWhen()), after.getBusyTimes("Person B"));
+
+    store.remove(moved);
+    Assert.assertEquals(Collections.emptyList(), store.getSnapshot().getEventsOf("Person B"));
+    Assert.assertEquals(Collections.emptyList(), store.getSnapshot().getBusyTimes("Person B"));
+  }
+
+  @Test
+  public void groupBusyTimesFollowTheEvents() {
+    // Event 3 is Person B's and touches Person A's Event 1, so they merge once B joins the group.
+    TimeRange time0830 = TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(8, 30), 15);
+    Event event3 = new Event("Event 3", time0830, Arrays.asList("Person B"));
+    store.add(event3);
+    store.setGroup("Team", Arrays.asList(PERSON_A, "Person B"));
+
+    TimeRange merged = TimeRange.fromStartEnd(EVENT_1.getWhen().start(), time0830.end(), false);
+    Assert.assertEquals(Arrays.asList(merged), store.getSnapshot().getGroupBusyTimes("Team"));
+
+    store.add(EVENT_2);
+    Assert.assertEquals(Arrays.asList(merged, EVENT_2.getWhen()),
+        store.getSnapshot().getGroupBusyTimes("Team"));
+
+    store.remove(EVENT_1);
+    Assert.assertEquals(Arrays.asList(time0830, EVENT_2.getWhen()),
+        store.getSnapshot().getGroupBusyTimes("Team"));
+
+    // Moving Event 3 to 9:30 makes it back onto Event 2.
+    store.replace(event3, new Event("Event 3", TimeRange.fromStartDuration(
+        TimeRange.getTimeInMinutes(9, 30), 30), Arrays.asList("Person B")));
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(9, 0),
+        60)), store.getSnapshot().getGroupBusyTimes("Team"));
+  }
+
+  @Test
+  public void groupChangesBumpTheVersionWithAnEmptyDelta() {
+    long version = store.getVersion();
+    store.setGroup("Team", Arrays.asList(PERSON_A));
+    EventStore.Snapshot withGroup = store.getSnapshot();
+
+    Assert.assertEquals(version + 1, withGroup.getVersion());
+    Assert.assertEquals(Collections.emptyList(), store.changesSince(version).getAdded());
+    Assert.assertEquals(Collections.emptyList(), store.changesSince(version).getRemoved());
+
+    Assert.assertTrue(store.removeGroup("Team"));
+    Assert.assertFalse(store.removeGroup("Team"));
+    Assert.assertEquals(Collections.emptySet(), store.getSnapshot().getGroups());
+    Assert.assertEquals(Arrays.asList(EVENT_1.getWhen()), withGroup.getGroupBusyTimes("Team"));
+
+    // The events didn't change, so every snapshot shares one list rather than wrapping it again.
+    Assert.assertSame(withGroup.getEvents(), store.getSnapshot().getEvents());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownGroupsFail() {
+    store.getSnapshot().getGroupBusyTimes("Team");
+  }
+}
@@ -18,7 +18,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -441,5 +446,490 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
-}
 
+  @Test
+  public void availableTimesIsLazyAndMatchesQuery() {
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Iterator<TimeRange> windows = query.availableTimes(events, request, TimeRange.START_OF_DAY);
+    List<TimeRange> actual = new ArrayList<>();
+    windows.forEachRemaining(actual::add);
+
+    Assert.assertEquals(query.query(events, request), actual);
+  }
+
+  @Test
+  public void availableTimesResumesFromCursor() {
+    // The cursor falls inside option 2, so option 1 is skipped and option 2 is cut short.
+    //
+    // Events  :       |--A--|     |--B--|
+    // Cursor  :               ^
+    // Options :               |-2-|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Iterator<TimeRange> windows = query.availableTimes(events, request, TIME_0900AM);
+
+    Assert.assertEquals(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), windows.next());
+    Assert.assertEquals(
+        TimeRange.fromStartEnd(TIME_1030AM, TimeRange.END_OF_DAY, true), windows.next());
+    Assert.assertFalse(windows.hasNext());
+  }
+
+  @Test
+  public void availableTimesCursorInsideEvent() {
+    // A cursor inside a busy period resumes at the end of that period.
+    //
+    // Events  :       |--A--|
+    // Cursor  :          ^
+    // Options :             |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Iterator<TimeRange> windows = query.availableTimes(events, request, TIME_0900AM);
+
+    Assert.assertEquals(
+        TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), windows.next());
+    Assert.assertFalse(windows.hasNext());
+  }
+
+  @Test
+  public void availableTimesKeepsOptionalDecisionAcrossCursor() {
+    // The optional attendee leaves a morning slot, so they are accommodated for the whole day even
+    // when resuming after that slot, where no slot would suit them.
+    //
+    // Required A :       |--A--|
+    // Optional B :                 |--------B--------|
+    // Day        : |-----------------------------------|
+    // Cursor     :             ^
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Iterator<TimeRange> windows = query.availableTimes(events, request, TIME_0900AM);
+
+    Assert.assertEquals(TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false), windows.next());
+    Assert.assertFalse(windows.hasNext());
+  }
+
+  @Test
+  public void availabilityClipsWindows() {
+    // A can only be booked 8:00 to 10:30, and has an event 9:00 to 9:30.
+    //
+    // Bookable A :   |-------------|
+    // Events     :         |--A--|
+    // Day        : |-----------------------------|
+    // Options    :   |-----|     |-|
+
+    MinuteMask bookableA = MinuteMask.forDay();
+    bookableA.set(TIME_0800AM, TIME_1030AM);
+    FindMeetingQuery withHours =
+        new FindMeetingQuery(attendee -> attendee.equals(PERSON_A) ? bookableA : null);
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = withHours.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TIME_1030AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void availabilityIntersectsAcrossAttendees() {
+    // Only the overlap of both attendees' bookable hours is suggested, and the part of it that is
+    // too short is dropped.
+    //
+    // Bookable A : |-----------|
+    // Bookable B :       |-----------|
+    // Options    :       |-----|
+
+    MinuteMask bookableA = MinuteMask.forDay();
+    bookableA.set(TIME_0800AM, TIME_1000AM);
+    MinuteMask bookableB = MinuteMask.forDay();
+    bookableB.set(TIME_0930AM, TIME_1100AM);
+    FindMeetingQuery withHours = new FindMeetingQuery(
+        attendee -> attendee.equals(PERSON_A) ? bookableA : bookableB);
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false)),
+        withHours.query(NO_EVENTS, request));
+
+    MeetingRequest longRequest =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_60_MINUTES);
+
+    Assert.assertEquals(Arrays.asList(), withHours.query(NO_EVENTS, longRequest));
+  }
+
+  @Test
+  public void availabilityOfOptionalAttendeeDroppedWhenNoOverlap() {
+    // The optional attendee's hours don't overlap the required attendee's, so they are ignored.
+    //
+    // Bookable A : |-----|
+    // Bookable B :          |-----|  (optional)
+    // Options    : |-----|
+
+    MinuteMask bookableA = MinuteMask.forDay();
+    bookableA.set(TIME_0800AM, TIME_0900AM);
+    MinuteMask bookableB = MinuteMask.forDay();
+    bookableB.set(TIME_1000AM, TIME_1100AM);
+    FindMeetingQuery withHours = new FindMeetingQuery(
+        attendee -> attendee.equals(PERSON_A) ? bookableA : bookableB);
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false)),
+        withHours.query(NO_EVENTS, request));
+  }
+
+  @Test
+  public void granularityRoundsBusyTimesOutward() {
+    // On a 15 minute grid, an event from 9:05 to 9:50 blocks 9:00 to 10:00.
+    //
+    // Events  :       |--A--|
+    // Grid    : |  |  |  |  |  |
+    // Options : |-----|     |----->
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0900AM + 5, TIME_1000AM - 10, false),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setGranularity(15);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void granularityDropsGapsWithoutAnAlignedSlot() {
+    // The 40 minute gap from 9:10 to 9:50 only holds 9:15 to 9:45 on the grid, which fits a 30
+    // minute meeting but not a 35 minute one.
+    //
+    // Events  : |--A--|     |--B--|
+    // Options :        |---|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1",
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM + 10, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1000AM - 10, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 30);
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM + 10, TIME_1000AM - 10,
+        false)), query.query(events, request));
+
+    request.setGranularity(15);
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM + 15, TIME_0900AM + 45,
+        false)), query.query(events, request));
+
+    MeetingRequest longRequest = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 35);
+    longRequest.setGranularity(15);
+    Assert.assertEquals(Arrays.asList(), query.query(events, longRequest));
+  }
+
+  @Test
+  public void granularityAlignsAvailabilityAndCursor() {
+    // A is bookable from 8:10, so the first aligned start is 8:15. Resuming at 8:20 moves on to
+    // 8:30.
+    MinuteMask bookableA = MinuteMask.forDay();
+    bookableA.set(TIME_0800AM + 10, TIME_1000AM);
+    FindMeetingQuery withHours = new FindMeetingQuery(attendee -> bookableA);
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setGranularity(15);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM + 15, TIME_1000AM, false)),
+        withHours.query(NO_EVENTS, request));
+    Assert.assertEquals(TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false),
+        withHours.availableTimes(NO_EVENTS, request, TIME_0800AM + 20).next());
+  }
+
+  @Test
+  public void durationsAreAnsweredTogether() {
+    // Events  :       |--A--|     |--A--|
+    // Day     : |-----------------------------|
+    // 30 min  : |-----|     |-----|     |-----|
+    // 60 min  : |-----|                 |-----|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A),
+        Arrays.asList((long) DURATION_60_MINUTES, (long) DURATION_30_MINUTES));
+
+    Map<Long, List<TimeRange>> expected = new LinkedHashMap<>();
+    expected.put((long) DURATION_30_MINUTES, Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+        TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)));
+    expected.put((long) DURATION_60_MINUTES, Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+        TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)));
+
+    Map<Long, List<TimeRange>> actual = query.queryDurations(events, request);
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+  }
+
+  @Test
+  public void interruptedQueriesStop() {
+    // A query on an interrupted thread gives up instead of running to the end.
+    List<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Thread.currentThread().interrupt();
+    try {
+      query.query(events, request);
+      Assert.fail("Expected the query to be cancelled");
+    } catch (CancellationException expected) {
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void durationsFollowTheEndOfDayRule() {
+    // The gap at the end of the day is exactly half an hour long, which query counts as 29
+    // minutes, so it only holds the shorter meeting.
+    //
+    // Events  : |--------------A--------------|
+    // Day     : |------------------------------|
+    // 15 min  :                                |-|
+    // 30 min  :
+    int lastHalfHour = TimeRange.WHOLE_DAY.end() - DURATION_30_MINUTES;
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, lastHalfHour, false),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A),
+        Arrays.asList(15L, (long) DURATION_30_MINUTES));
+
+    Map<Long, List<TimeRange>> expected = new LinkedHashMap<>();
+    expected.put(15L,
+        Arrays.asList(TimeRange.fromStartEnd(lastHalfHour, TimeRange.END_OF_DAY, true)));
+    expected.put((long) DURATION_30_MINUTES, Arrays.asList());
+
+    Assert.assertEquals(expected, query.queryDurations(events, request));
+
+    // Each bucket matches what a separate query for that duration returns.
+    for (long duration : request.getDurations()) {
+      MeetingRequest single = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+      Assert.assertEquals(expected.get(duration), query.query(events, single));
+    }
+  }
+
+  @Test
+  public void durationsDropOptionalAttendeesOnlyWhereNeeded() {
+    // B is optional. Half an hour fits around B, but a whole hour only fits if B is left out.
+    //
+    // Events  : |--A--|           |------A------|
+    //                     |--B--|
+    // Day     : |-----------------------------|
+    // 30 min  :       |---|
+    // 60 min  :       |-----------|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A),
+        Arrays.asList((long) DURATION_30_MINUTES, (long) DURATION_60_MINUTES));
+    request.addOptionalAttendee(PERSON_B);
+
+    Map<Long, List<TimeRange>> expected = new LinkedHashMap<>();
+    expected.put((long) DURATION_30_MINUTES,
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false)));
+    expected.put((long) DURATION_60_MINUTES,
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false)));
+
+    Assert.assertEquals(expected, query.queryDurations(events, request));
+
+    // Each bucket matches what a separate query for that duration returns.
+    for (long duration : request.getDurations()) {
+      MeetingRequest single = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+      single.addOptionalAttendee(PERSON_B);
+      Assert.assertEquals(query.query(events, single), expected.get(duration));
+    }
+  }
+
+  @Test
+  public void snapshotMatchesEvents() {
+    // Reading pre-merged busy times from a snapshot gives the same windows as the events.
+    Random random = new Random(5);
+    List<String> people = Arrays.asList(PERSON_A, PERSON_B, PERSON_C, "Person D", "Person E");
+    for (int round = 0; round < 50; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 120);
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, 1 + random.nextInt(120)),
+            Arrays.asList(people.get(random.nextInt(people.size())),
+                people.get(random.nextInt(people.size())))));
+      }
+      EventStore.Snapshot snapshot = new EventStore(events).getSnapshot();
+
+      MeetingRequest request =
+          new MeetingRequest(people.subList(0, 1 + random.nextInt(3)), 15 + random.nextInt(90));
+      request.addOptionalAttendee(people.get(3 + random.nextInt(2)));
+      if (round % 2 == 0) {
+        request.setGranularity(15);
+      }
+
+      List<TimeRange> expected = new ArrayList<>();
+      query.availableTimes(events, request, TimeRange.START_OF_DAY)
+          .forEachRemaining(expected::add);
+      List<TimeRange> actual = new ArrayList<>();
+      query.availableTimes(snapshot, request, TimeRange.START_OF_DAY)
+          .forEachRemaining(actual::add);
+
+      Assert.assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void contextMatchesIterator() {
+    // The scratch-array path gives the same windows as the iterator, including availability,
+    // granularity, cursors and limits, and a reused context carries nothing over.
+    Random random = new Random(8);
+    List<String> people = Arrays.asList(PERSON_A, PERSON_B, PERSON_C, "Person D", "Person E");
+    MinuteMask hours = MinuteMask.forDay();
+    hours.set(TIME_0800AM, TimeRange.getTimeInMinutes(17, 0));
+    FindMeetingQuery withHours =
+        new FindMeetingQuery(attendee -> attendee.equals(PERSON_B) ? hours : null);
+    QueryContext context = new QueryContext();
+    for (int round = 0; round < 200; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < random.nextInt(80); i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 120);
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, 1 + random.nextInt(120)),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+      EventStore.Snapshot snapshot = new EventStore(events).getSnapshot();
+
+      MeetingRequest request =
+          new MeetingRequest(people.subList(0, 1 + random.nextInt(3)), 15 + random.nextInt(90));
+      request.addOptionalAttendee(people.get(3 + random.nextInt(2)));
+      if (round % 3 == 0) {
+        request.setGranularity(15);
+      }
+      FindMeetingQuery findMeetingQuery = round % 2 == 0 ? query : withHours;
+      int cursor = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int limit = 1 + random.nextInt(10);
+
+      Assert.assertEquals(
+          first(findMeetingQuery.availableTimes(events, request, cursor), limit),
+          findMeetingQuery.availableTimes(events, request, cursor, limit, context));
+      Assert.assertEquals(
+          first(findMeetingQuery.availableTimes(snapshot, request, cursor), limit),
+          findMeetingQuery.availableTimes(snapshot, request, cursor, limit, context));
+    }
+  }
+
+  @Test
+  public void groupsMatchTheirMembers() {
+    // Naming a group gives the same windows as listing its members, on both snapshot paths, with
+    // the group's busy times kept up as events are added and removed after it was defined.
+    Random random = new Random(13);
+    List<String> people =
+        Arrays.asList(PERSON_A, PERSON_B, PERSON_C, "Person D", "Person E", "Person F");
+    MinuteMask hours = MinuteMask.forDay();
+    hours.set(TIME_0800AM, TimeRange.getTimeInMinutes(17, 0));
+    FindMeetingQuery withHours =
+        new FindMeetingQuery(attendee -> attendee.equals(PERSON_B) ? hours : null);
+    QueryContext context = new QueryContext();
+    for (int round = 0; round < 100; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < random.nextInt(60); i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 120);
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, 1 + random.nextInt(120)),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+      EventStore store = new EventStore(events.subList(0, events.size() / 2));
+      store.setGroup("Team", people.subList(1, 2 + random.nextInt(3)));
+      store.setGroup("Guests", people.subList(4, 6));
+      for (Event event : events.subList(events.size() / 2, events.size())) {
+        store.add(event);
+      }
+      if (!events.isEmpty()) {
+        store.remove(events.get(random.nextInt(events.size())));
+      }
+      EventStore.Snapshot snapshot = store.getSnapshot();
+
+      MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 15 + random.nextInt(90));
+      request.addGroup("Team");
+      request.addOptionalGroup("Guests");
+      if (round % 3 == 0) {
+        request.setGranularity(15);
+      }
+      FindMeetingQuery findMeetingQuery = round % 2 == 0 ? query : withHours;
+      MeetingRequest expanded = snapshot.expandGroups(request);
+
+      List<TimeRange> expected = new ArrayList<>();
+      findMeetingQuery.availableTimes(snapshot.getEvents(), expanded, TimeRange.START_OF_DAY)
+          .forEachRemaining(expected::add);
+      List<TimeRange> actual = new ArrayList<>();
+      findMeetingQuery.availableTimes(snapshot, request, TimeRange.START_OF_DAY)
+          .forEachRemaining(actual::add);
+
+      Assert.assertEquals(expected, actual);
+      Assert.assertEquals(expected, findMeetingQuery.availableTimes(
+          snapshot, request, TimeRange.START_OF_DAY, Integer.MAX_VALUE, context));
+    }
+  }
+
+  private static List<TimeRange> first(Iterator<TimeRange> windows, int limit) {
+    List<TimeRange> times = new ArrayList<>();
+    while (times.size() < limit && windows.hasNext()) {
+      times.add(windows.next());
+    }
+    return times;
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the FreeBusyCodec class.
+ */
+@RunWith(JUnit4.class)
+public final class FreeBusyCodecTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final String SECRET_TITLE = "Secret project";
+
+  private final EventStore store = new EventStore(Arrays.asList(
+      new Event(SECRET_TITLE, TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+          Arrays.asList(PERSON_A)),
+      new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false),
+          Arrays.asList(PERSON_A, PERSON_B)),
+      new Event("Event 3", TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false),
+          Arrays.asList(PERSON_B))));
+
+  private byte[] encode(List<String> attendees, TimeRange window) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FreeBusyCodec.write(out, store.getSnapshot(), attendees, window);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void roundTripMergesPerAttendee() throws IOException {
+    byte[] bytes = encode(Arrays.asList(PERSON_A, PERSON_B, PERSON_C), TimeRange.WHOLE_DAY);
+
+    List<List<TimeRange>> expected = Arrays.asList(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false)),
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0830AM, TIME_1100AM, false)),
+        Collections.emptyList());
+    Assert.assertEquals(expected, FreeBusyCodec.read(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  public void timesAreClippedToTheWindow() throws IOException {
+    byte[] bytes = encode(Arrays.asList(PERSON_B), TimeRange.fromStartEnd(TIME_0900AM,
+        TIME_1000AM + 30, false));
+
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM + 30, false))),
+        FreeBusyCodec.read(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  public void titlesAreNotSent() throws IOException {
+    byte[] bytes = encode(Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY);
+
+    Assert.assertFalse(new String(bytes, StandardCharsets.ISO_8859_1).contains(SECRET_TITLE));
+  }
+
+  @Test
+  public void manyAttendeesStaySmall() throws IOException {
+    // Ten thousand people with a few busy times each should take a few bytes per busy time.
+    List<Event> events = new ArrayList<>();
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      String person = "Person " + i;
+      people.add(person);
+      for (int hour = 9; hour < 17; hour += 2) {
+        events.add(new Event("Event", TimeRange.fromStartDuration(
+            TimeRange.getTimeInMinutes(hour, (i % 4) * 15), 45), Arrays.asList(person)));
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FreeBusyCodec.write(out, new EventStore(events).getSnapshot(), people, TimeRange.WHOLE_DAY);
+
+    Assert.assertTrue(out.size() + " bytes", out.size() < 10_000 * (1 + 4 * 3));
+    Assert.assertEquals(10_000, FreeBusyCodec.read(new ByteArrayInputStream(out.toByteArray()))
+        .size());
+  }
+
+  @Test(expected = EOFException.class)
+  public void truncatedInputIsRejected() throws IOException {
+    byte[] bytes = encode(Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY);
+
+    FreeBusyCodec.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+  }
+}
@@ -14,10 +14,12 @@
 
 package com.google.sps;
 
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Before;
@@ -44,4 +46,67 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void granularityDefaultsToEveryMinute() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    Assert.assertEquals(1, request.getGranularity());
+
+    request.setGranularity(15);
+    Assert.assertEquals(15, request.getGranularity());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void granularityMustDivideTheDay() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.setGranularity(7);
+  }
+
+  @Test
+  public void groupsCanBeAddedToParsedRequests() {
+    MeetingRequest request = new Gson().fromJson(
+        "{\"attendees\": [\"Person A\"], \"duration\": 60}", MeetingRequest.class);
+    request.addOptionalGroup("Managers");
+    request.addGroup("Team");
+    request.addGroup("Managers");
+
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList("Team", "Managers")), new HashSet<>(request.getGroups()));
+    Assert.assertTrue(request.getOptionalGroups().isEmpty());
+  }
+
+  @Test
+  public void durationsAreSortedAndDeduplicated() {
+    MeetingRequest request = new MeetingRequest(
+        Arrays.asList(PERSON_A), Arrays.asList(60L, 30L, 45L, 30L));
+
+    Assert.assertEquals(Arrays.asList(30L, 45L, 60L), request.getDurations());
+    Assert.assertEquals(30L, request.getDuration());
+  }
+
+  @Test
+  public void singleDurationIsItsOwnList() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    Assert.assertEquals(Arrays.asList((long) DURATION_1_HOUR), request.getDurations());
+  }
+
+  @Test
+  public void expandGroupsReplacesGroupsWithMembers() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.addGroup("Team");
+    request.addOptionalGroup("Friends");
+    request.setGranularity(15);
+
+    MeetingRequest expanded = request.expandGroups(group -> group.equals("Team")
+        ? Arrays.asList(PERSON_B) : Arrays.asList(PERSON_B, PERSON_C));
+
+    Assert.assertEquals(2, expanded.getAttendees().size());
+    Assert.assertTrue(expanded.getAttendees().containsAll(Arrays.asList(PERSON_A, PERSON_B)));
+    Assert.assertEquals(Arrays.asList(PERSON_C), new ArrayList<>(expanded.getOptionalAttendees()));
+    Assert.assertTrue(expanded.getGroups().isEmpty());
+    Assert.assertTrue(expanded.getOptionalGroups().isEmpty());
+    Assert.assertEquals(15, expanded.getGranularity());
+  }
+}
@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the MinuteMask class.
+ */
+@RunWith(JUnit4.class)
+public final class MinuteMaskTest {
+  @Test
+  public void setAcrossWordBoundaries() {
+    MinuteMask mask = MinuteMask.forDay();
+    mask.set(60, 200);
+
+    Assert.assertEquals(140, mask.cardinality());
+    Assert.assertFalse(mask.get(59));
+    Assert.assertTrue(mask.get(60));
+    Assert.assertTrue(mask.get(199));
+    Assert.assertFalse(mask.get(200));
+  }
+
+  @Test
+  public void clearInsideASetRange() {
+    MinuteMask mask = MinuteMask.forDay();
+    mask.set(0, 1440);
+    mask.clear(100, 110);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(100, 110, false)),
+        mask.clearRanges(1));
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(0, 100, false),
+        TimeRange.fromStartEnd(110, 1440, false)), mask.setRanges());
+  }
+
+  @Test
+  public void clearRangesRespectsMinimumLength() {
+    MinuteMask mask = MinuteMask.of(Arrays.asList(TimeRange.fromStartEnd(10, 20, false),
+        TimeRange.fromStartEnd(25, 1440, false)), 1440);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(0, 10, false)), mask.clearRanges(6));
+  }
+
+  @Test
+  public void firstClearRunSkipsShortGaps() {
+    MinuteMask mask = MinuteMask.of(
+        Arrays.asList(TimeRange.fromStartEnd(10, 20, false), TimeRange.fromStartEnd(25, 70, false)),
+        1440);
+
+    Assert.assertEquals(0, mask.firstClearRun(0, 10));
+    Assert.assertEquals(70, mask.firstClearRun(1, 10));
+    Assert.assertEquals(20, mask.firstClearRun(12, 5));
+    Assert.assertEquals(-1, mask.firstClearRun(0, 1441));
+  }
+
+  @Test
+  public void invertKeepsTheLength() {
+    MinuteMask mask = new MinuteMask(70);
+    mask.invert();
+
+    Assert.assertEquals(70, mask.cardinality());
+    Assert.assertEquals(Collections.emptyList(), mask.clearRanges(1));
+  }
+
+  @Test
+  public void combiningMasks() {
+    MinuteMask a = MinuteMask.of(Arrays.asList(TimeRange.fromStartEnd(0, 100, false)), 1440);
+    MinuteMask b = MinuteMask.of(Arrays.asList(TimeRange.fromStartEnd(50, 150, false)), 1440);
+
+    MinuteMask union = a.copy();
+    union.or(b);
+    MinuteMask intersection = a.copy();
+    intersection.and(b);
+    MinuteMask difference = a.copy();
+    difference.andNot(b);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(0, 150, false)), union.setRanges());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(50, 100, false)), intersection.setRanges());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(0, 50, false)), difference.setRanges());
+  }
+
+  @Test
+  public void unionMatchesRepeatedOr() {
+    // Every count from none to a few past a multiple of four, so both the four-at-a-time loop and
+    // the leftovers are covered, on lengths that do and don't fill the last word.
+    Random random = new Random(3);
+    for (int length : new int[] {64, 100, 1440}) {
+      List<MinuteMask> masks = new ArrayList<>();
+      for (int count = 0; count <= 11; count++) {
+        MinuteMask expected = new MinuteMask(length);
+        for (MinuteMask mask : masks) {
+          expected.or(mask);
+        }
+
+        Assert.assertEquals(expected, MinuteMask.union(length, masks));
+
+        MinuteMask next = new MinuteMask(length);
+        int start = random.nextInt(length);
+        next.set(start, start + random.nextInt(length / 4));
+        masks.add(next);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unionRejectsMasksOfOtherLengths() {
+    MinuteMask.union(1440, Arrays.asList(MinuteMask.forDay(), new MinuteMask(100)));
+  }
+}
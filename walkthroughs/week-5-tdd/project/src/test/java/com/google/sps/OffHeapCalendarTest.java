@@ -0,0 +1,115 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the OffHeapCalendar class.
+ */
+@RunWith(JUnit4.class)
+public final class OffHeapCalendarTest {
+  private static final List<String> PEOPLE =
+      Arrays.asList("Person A", "Person B", "Person C", "Person D", "Person E");
+
+  private static List<Event> randomEvents(Random random, int count) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 120);
+      events.add(new Event("Event " + i + " é",
+          TimeRange.fromStartDuration(start, random.nextInt(120)),
+          Arrays.asList(PEOPLE.get(random.nextInt(PEOPLE.size())),
+              PEOPLE.get(random.nextInt(PEOPLE.size()))),
+          random.nextInt(3)));
+    }
+    return events;
+  }
+
+  @Test
+  public void eventsReadBackUnchanged() {
+    // Enough events to make every buffer grow a few times.
+    List<Event> events = randomEvents(new Random(1), 5000);
+    OffHeapCalendar calendar = new OffHeapCalendar(events);
+
+    Assert.assertEquals(events.size(), calendar.size());
+    Assert.assertEquals(events, calendar.events());
+  }
+
+  @Test
+  public void buffersHoldNoSpareRoom() {
+    List<Event> events = randomEvents(new Random(4), 5000);
+    OffHeapCalendar calendar = new OffHeapCalendar(events);
+
+    // One index entry per person, and per event its record, its title, and for each attendee an
+    // id and a busy pair.
+    long expected = (long) PEOPLE.size() * 8;
+    for (Event event : events) {
+      expected += OffHeapCalendar.EVENT_BYTES
+          + event.getTitle().getBytes(StandardCharsets.UTF_8).length
+          + event.getAttendees().size() * (4 + 8);
+    }
+    Assert.assertEquals(expected, calendar.offHeapBytes());
+  }
+
+  @Test
+  public void busyTimesMatchTheEventStore() {
+    List<Event> events = randomEvents(new Random(2), 300);
+    OffHeapCalendar calendar = new OffHeapCalendar(events);
+    EventStore.Snapshot snapshot = new EventStore(events).getSnapshot();
+
+    for (String person : PEOPLE) {
+      Assert.assertEquals(snapshot.getBusyTimes(person), calendar.getBusyTimes(person));
+    }
+    Assert.assertEquals(Collections.emptyList(), calendar.getBusyTimes("Person Z"));
+  }
+
+  @Test
+  public void queryMatchesTheSnapshot() {
+    Random random = new Random(3);
+    FindMeetingQuery query = new FindMeetingQuery();
+    QueryContext context = new QueryContext();
+    for (int round = 0; round < 50; round++) {
+      List<Event> events = randomEvents(random, random.nextInt(60));
+      OffHeapCalendar calendar = new OffHeapCalendar(events);
+      EventStore.Snapshot snapshot = new EventStore(events).getSnapshot();
+
+      MeetingRequest request =
+          new MeetingRequest(PEOPLE.subList(0, 1 + random.nextInt(3)), 15 + random.nextInt(90));
+      request.addOptionalAttendee(PEOPLE.get(3 + random.nextInt(2)));
+      int cursor = random.nextInt(TimeRange.WHOLE_DAY.duration());
+
+      Assert.assertEquals(query.availableTimes(snapshot, request, cursor, 5, context),
+          query.availableTimes(calendar, request, cursor, 5, context));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void groupsAreRejected() {
+    MeetingRequest request = new MeetingRequest(Collections.emptyList(), 30);
+    request.addGroup("Team");
+
+    new FindMeetingQuery().availableTimes(new OffHeapCalendar(Collections.emptyList()), request,
+        TimeRange.START_OF_DAY, 1, new QueryContext());
+  }
+}
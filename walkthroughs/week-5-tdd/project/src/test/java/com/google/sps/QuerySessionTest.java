@@ -0,0 +1,215 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the QuerySession and QuerySessions classes.
+ */
+@RunWith(JUnit4.class)
+public final class QuerySessionTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private EventStore store;
+  private QuerySession session;
+
+  @Before
+  public void setUp() {
+    store = new EventStore(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_C))));
+    session = new QuerySession(store);
+  }
+
+  private MeetingRequest requestFor(String... attendees) {
+    return new MeetingRequest(Arrays.asList(attendees), DURATION_30_MINUTES);
+  }
+
+  @Test
+  public void editsMatchAFullQuery() {
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    session.addAttendee(PERSON_A);
+    Assert.assertEquals(query.query(store.getSnapshot().getEvents(), requestFor(PERSON_A)),
+        session.query(DURATION_30_MINUTES));
+
+    session.addAttendee(PERSON_B);
+    Assert.assertEquals(
+        query.query(store.getSnapshot().getEvents(), requestFor(PERSON_A, PERSON_B)),
+        session.query(DURATION_30_MINUTES));
+
+    session.removeAttendee(PERSON_A);
+    Assert.assertEquals(query.query(store.getSnapshot().getEvents(), requestFor(PERSON_B)),
+        session.query(DURATION_30_MINUTES));
+  }
+
+  @Test
+  public void optionalAttendeeDroppedWhenNoTimeWorks() {
+    // C is busy whenever A and B are both free in the morning, but some time in the day works for
+    // everyone, so C is kept.
+    session.addAttendee(PERSON_A);
+    session.addOptionalAttendee(PERSON_C);
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM,
+        false), TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)),
+        session.query(DURATION_30_MINUTES));
+
+    // A whole day meeting can't include C, so C is ignored.
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true)),
+        session.query(TimeRange.END_OF_DAY - TIME_0830AM));
+  }
+
+  @Test
+  public void requiredReplacesOptional() {
+    session.addOptionalAttendee(PERSON_A);
+    session.addAttendee(PERSON_A);
+
+    Assert.assertEquals(Arrays.asList(PERSON_A), Arrays.asList(
+        session.getAttendees().toArray()));
+    Assert.assertTrue(session.getOptionalAttendees().isEmpty());
+
+    // Removing A must undo their busy time exactly once.
+    session.removeAttendee(PERSON_A);
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), session.query(DURATION_30_MINUTES));
+  }
+
+  @Test
+  public void storeChangesArePickedUp() {
+    session.addAttendee(PERSON_A);
+    store.add(new Event("Event 4", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+        Arrays.asList(PERSON_A, PERSON_C)));
+
+    Assert.assertEquals(Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+        TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+        TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)),
+        session.query(DURATION_30_MINUTES));
+  }
+
+  @Test
+  public void unusedSessionsExpire() {
+    AtomicLong now = new AtomicLong();
+    QuerySessions sessions = new QuerySessions(store, 1000, 10, now::get);
+
+    String id = sessions.create();
+    Assert.assertNotNull(sessions.get(id));
+
+    // Using the session restarts its time to live.
+    now.addAndGet(900_000_000L);
+    Assert.assertNotNull(sessions.get(id));
+    now.addAndGet(900_000_000L);
+    Assert.assertNotNull(sessions.get(id));
+
+    now.addAndGet(1_100_000_000L);
+    Assert.assertNull(sessions.get(id));
+    Assert.assertEquals(0, sessions.size());
+  }
+
+  @Test
+  public void creatingEvictsExpiredSessions() {
+    AtomicLong now = new AtomicLong();
+    QuerySessions sessions = new QuerySessions(store, 1000, 10, now::get);
+
+    sessions.create();
+    now.addAndGet(2_000_000_000L);
+    String id = sessions.create();
+
+    Assert.assertEquals(1, sessions.size());
+    Assert.assertNotNull(sessions.get(id));
+  }
+
+  @Test
+  public void granularityMatchesAFullQuery() {
+    MeetingRequest request = requestFor(PERSON_A);
+    request.setGranularity(45);
+
+    session.addAttendee(PERSON_A);
+
+    Assert.assertEquals(new FindMeetingQuery().query(store.getSnapshot().getEvents(), request),
+        session.query(DURATION_30_MINUTES, 45));
+  }
+
+  @Test
+  public void lookingUpEvictsExpiredSessions() {
+    AtomicLong now = new AtomicLong();
+    QuerySessions sessions = new QuerySessions(store, 1000, 10, now::get);
+
+    sessions.create();
+    String id = sessions.create();
+    now.addAndGet(900_000_000L);
+    Assert.assertNotNull(sessions.get(id));
+    now.addAndGet(900_000_000L);
+    Assert.assertNotNull(sessions.get(id));
+
+    Assert.assertEquals(1, sessions.size());
+  }
+
+  @Test
+  public void sessionCountIsCapped() {
+    AtomicLong now = new AtomicLong();
+    QuerySessions sessions = new QuerySessions(store, 1000, 2, now::get);
+
+    sessions.create();
+    sessions.create();
+    try {
+      sessions.create();
+      Assert.fail("Expected the session cap to be enforced");
+    } catch (IllegalStateException expected) {
+    }
+
+    // Once the open sessions expire there is room again.
+    now.addAndGet(2_000_000_000L);
+    Assert.assertNotNull(sessions.get(sessions.create()));
+  }
+
+  @Test
+  public void endOfDayMatchesAFullQuery() {
+    // The gap at the end of the day is exactly as long as the meeting, which a full query turns
+    // down.
+    int lastHalfHour = TimeRange.WHOLE_DAY.end() - DURATION_30_MINUTES;
+    EventStore endOfDay = new EventStore(Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, lastHalfHour, false),
+        Arrays.asList(PERSON_A))));
+    QuerySession endOfDaySession = new QuerySession(endOfDay);
+    endOfDaySession.addAttendee(PERSON_A);
+
+    for (long duration : new long[] {15, DURATION_30_MINUTES}) {
+      MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+      Assert.assertEquals(new FindMeetingQuery().query(endOfDay.getSnapshot().getEvents(), request),
+          endOfDaySession.query(duration));
+    }
+  }
+}
@@ -0,0 +1,190 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the ResourceMeetingQuery and ResourceIndex classes.
+ */
+@RunWith(JUnit4.class)
+public final class ResourceMeetingQueryTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  private static final String PERSON_A = "Person A";
+
+  private static final Resource SMALL_ROOM = new Resource("Small Room", 4);
+  private static final Resource LARGE_ROOM = new Resource("Large Room", 10);
+  private static final List<Resource> ROOMS = Arrays.asList(LARGE_ROOM, SMALL_ROOM);
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final int DURATION_1_HOUR = 60;
+
+  private ResourceMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new ResourceMeetingQuery();
+  }
+
+  @Test
+  public void smallestSuitableRoomIsPicked() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.requireResource(3);
+
+    List<ResourceMeetingQuery.Booking> actual =
+        query.query(NO_EVENTS, request, new ResourceIndex(ROOMS, NO_EVENTS));
+    List<ResourceMeetingQuery.Booking> expected = Arrays.asList(new ResourceMeetingQuery.Booking(
+        TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_1_HOUR), SMALL_ROOM));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void busyRoomFallsBackToLargerRoom() {
+    // The small room is booked 9-10, and the person is only free 9-11.
+    //
+    // Small Room :                         |--S--|
+    // Person A   : |-----------A-----------|           |--A--|
+    // Options    :                         |-----------|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Busy", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Booked", TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            Arrays.asList(SMALL_ROOM.getName())),
+        new Event("Busy", TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.requireResource(3);
+
+    List<ResourceMeetingQuery.Booking> actual =
+        query.query(events, request, new ResourceIndex(ROOMS, events));
+
+    // Every start from 9:00 to 10:00 works. The earliest only fits in the large room.
+    List<ResourceMeetingQuery.Booking> expected = Arrays.asList(new ResourceMeetingQuery.Booking(
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR), LARGE_ROOM));
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(SMALL_ROOM,
+        new ResourceIndex(ROOMS, events).findFree(3, DURATION_1_HOUR, TIME_1000AM));
+  }
+
+  @Test
+  public void noRoomLargeEnough() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.requireResource(11);
+
+    List<ResourceMeetingQuery.Booking> actual =
+        query.query(NO_EVENTS, request, new ResourceIndex(ROOMS, NO_EVENTS));
+
+    Assert.assertEquals(Collections.emptyList(), actual);
+  }
+
+  @Test
+  public void indexMatchesCheckingEveryRoom() {
+    // Many rooms with staggered bookings. The index must agree with a room-by-room check.
+    List<Resource> rooms = new ArrayList<>();
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Resource room = new Resource("Room " + i, i % 12);
+      rooms.add(room);
+      int start = (i * 37) % 1300;
+      events.add(new Event("Booked", TimeRange.fromStartDuration(start, 45 + i % 90),
+          Arrays.asList(room.getName())));
+    }
+    ResourceIndex index = new ResourceIndex(rooms, events);
+
+    for (int minCapacity = 1; minCapacity <= 12; minCapacity += 5) {
+      MinuteMask starts = index.availableStarts(minCapacity, DURATION_1_HOUR);
+      for (int start = 0; start < TimeRange.WHOLE_DAY.duration(); start += 7) {
+        boolean anyFree = false;
+        for (Resource room : rooms) {
+          if (room.getCapacity() >= minCapacity && isFree(room, events, start)) {
+            anyFree = true;
+          }
+        }
+        Assert.assertEquals(anyFree, starts.get(start));
+
+        Resource found = index.findFree(minCapacity, DURATION_1_HOUR, start);
+        Assert.assertEquals(anyFree, found != null);
+        if (found != null) {
+          Assert.assertTrue(found.getCapacity() >= minCapacity);
+          Assert.assertTrue(isFree(found, events, start));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void evictedLengthsAreRebuilt() {
+    // Asking about more lengths than the index keeps trees for drops the oldest, and asking about
+    // it again rebuilds the same answer.
+    List<Event> events = Arrays.asList(new Event("Booked",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_1_HOUR),
+        Arrays.asList(SMALL_ROOM.getName(), LARGE_ROOM.getName())));
+    ResourceIndex index = new ResourceIndex(ROOMS, events);
+    MinuteMask before = index.availableStarts(1, DURATION_1_HOUR).copy();
+    for (int duration = 1; duration <= ResourceIndex.MAX_CACHED_DURATIONS; duration++) {
+      index.availableStarts(1, DURATION_1_HOUR + duration);
+    }
+
+    MinuteMask after = index.availableStarts(1, DURATION_1_HOUR);
+    Assert.assertFalse(after.get(TIME_1000AM));
+    for (int minute = 0; minute < TimeRange.WHOLE_DAY.duration(); minute++) {
+      Assert.assertEquals(before.get(minute), after.get(minute));
+    }
+  }
+
+  private static boolean isFree(Resource room, List<Event> events, int start) {
+    TimeRange meeting = TimeRange.fromStartDuration(start, DURATION_1_HOUR);
+    if (meeting.end() > TimeRange.WHOLE_DAY.end()) {
+      return false;
+    }
+    for (Event event : events) {
+      if (event.getAttendees().contains(room.getName()) && event.getWhen().overlaps(meeting)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  public void bookingsStartOnTheGrid() {
+    // Person A is free from 9:05, so on a 15 minute grid the first start is 9:15.
+    Collection<Event> events = Arrays.asList(new Event("Busy",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM + 5, false),
+        Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    request.setGranularity(15);
+
+    List<ResourceMeetingQuery.Booking> expected = Arrays.asList(new ResourceMeetingQuery.Booking(
+        TimeRange.fromStartDuration(TIME_0900AM + 15, DURATION_1_HOUR), null));
+
+    Assert.assertEquals(expected, query.query(events, request, new ResourceIndex(ROOMS, events)));
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the ShardNode and ShardedMeetingQuery classes.
+ */
+@RunWith(JUnit4.class)
+public final class ShardedMeetingQueryTest {
+  private static final int SHARD_COUNT = 3;
+
+  private static List<String> everyone() {
+    LinkedHashSet<String> people = new LinkedHashSet<>();
+    for (Event event : Events.events) {
+      people.addAll(event.getAttendees());
+    }
+    return new ArrayList<>(people);
+  }
+
+  private static List<TimeRange> drain(Iterator<TimeRange> windows) {
+    List<TimeRange> times = new ArrayList<>();
+    windows.forEachRemaining(times::add);
+    return times;
+  }
+
+  /**
+   * Sends random requests to the shards and checks each answer against an unsharded query.
+   */
+  private static void checkAgainstUnsharded(List<String> urls) throws IOException {
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    List<Event> events = Arrays.asList(Events.events);
+    List<String> people = everyone();
+    Random random = new Random(1);
+
+    try (ShardedMeetingQuery sharded = new ShardedMeetingQuery(urls)) {
+      for (int i = 0; i < 50; i++) {
+        Collections.shuffle(people, random);
+        int required = random.nextInt(4);
+        int optional = random.nextInt(3);
+        MeetingRequest request =
+            new MeetingRequest(people.subList(0, required), 15 + random.nextInt(90));
+        for (String attendee : people.subList(required, required + optional)) {
+          request.addOptionalAttendee(attendee);
+        }
+
+        Assert.assertEquals(
+            drain(findMeetingQuery.availableTimes(events, request, TimeRange.START_OF_DAY)),
+            drain(sharded.availableTimes(findMeetingQuery, request, TimeRange.START_OF_DAY)));
+      }
+    }
+  }
+
+  @Test
+  public void eventsGoToEveryShardOfTheirAttendees() {
+    Event shared = new Event("Event 1", TimeRange.fromStartDuration(0, 30),
+        Arrays.asList("Person A", "Person B"));
+    List<Integer> owners = new ArrayList<>();
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      if (!ShardNode.eventsForShard(Arrays.asList(shared), shard, SHARD_COUNT).isEmpty()) {
+        owners.add(shard);
+      }
+    }
+
+    List<Integer> expected = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(
+        ShardNode.shardOf("Person A", SHARD_COUNT), ShardNode.shardOf("Person B", SHARD_COUNT))));
+    Collections.sort(expected);
+    Assert.assertEquals(expected, owners);
+  }
+
+  @Test
+  public void inProcessShardsMatchUnshardedQuery() throws IOException {
+    List<ShardNode> nodes = new ArrayList<>();
+    List<String> urls = new ArrayList<>();
+    try {
+      for (int shard = 0; shard < SHARD_COUNT; shard++) {
+        ShardNode node = new ShardNode(new EventStore(
+            ShardNode.eventsForShard(Arrays.asList(Events.events), shard, SHARD_COUNT)));
+        nodes.add(node);
+        urls.add("http://localhost:" + node.start(0));
+      }
+      checkAgainstUnsharded(urls);
+    } finally {
+      nodes.forEach(ShardNode::stop);
+    }
+  }
+
+  @Test
+  public void multiProcessShardsMatchUnshardedQuery() throws IOException {
+    try (LocalShardCluster cluster = new LocalShardCluster(SHARD_COUNT)) {
+      checkAgainstUnsharded(cluster.getUrls());
+    }
+  }
+}
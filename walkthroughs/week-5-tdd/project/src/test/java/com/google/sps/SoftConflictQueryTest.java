@@ -0,0 +1,214 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the SoftConflictQuery class.
+ */
+@RunWith(JUnit4.class)
+public final class SoftConflictQueryTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_1_HOUR = 60;
+
+  private static final int LOW_COST = 1;
+  private static final int HIGH_COST = 5;
+
+  private final SoftConflictQuery query = new SoftConflictQuery();
+
+  private static Event hard(TimeRange when, String... attendees) {
+    return new Event("Hard", when, Arrays.asList(attendees));
+  }
+
+  private static Event soft(TimeRange when, int cost, String... attendees) {
+    return new Event("Soft", when, Arrays.asList(attendees), cost);
+  }
+
+  @Test
+  public void conflictFreeTimesCostNothing() {
+    // Events  : |--A--|  |~~A~~|
+    // Day     : |---------------------|
+    // Options :       |--|     |------|
+    Event focus = soft(TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false), LOW_COST, PERSON_A);
+    List<Event> events = Arrays.asList(
+        hard(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false), PERSON_A), focus);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<SoftConflictQuery.Slot> expected = Arrays.asList(
+        new SoftConflictQuery.Slot(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM,
+            false), 0, Collections.emptyList()),
+        new SoftConflictQuery.Slot(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), 0,
+            Collections.emptyList()),
+        new SoftConflictQuery.Slot(TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY,
+            true), 0, Collections.emptyList()));
+
+    Assert.assertEquals(expected, query.query(events, request));
+  }
+
+  @Test
+  public void booksOverTheCheapestEventWhenNothingIsFree() {
+    // A's day is full: hard before 9:00 and after 11:00, cheap focus time from 9:00 to 10:00 and
+    // expensive focus time from 10:00 to 11:00. The cheapest hour is exactly the cheap block.
+    //
+    // Events  : |--A--|~A~|=A=|--A--|
+    // Options :       |~~~|
+    Event cheap = soft(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), LOW_COST, PERSON_A);
+    Event dear = soft(TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false), HIGH_COST, PERSON_A);
+    List<Event> events = Arrays.asList(
+        hard(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false), PERSON_A),
+        cheap, dear,
+        hard(TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true), PERSON_A));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    List<SoftConflictQuery.Slot> expected = Arrays.asList(new SoftConflictQuery.Slot(
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), LOW_COST, Arrays.asList(cheap)));
+
+    Assert.assertEquals(expected, query.query(events, request));
+  }
+
+  @Test
+  public void costsOfOverlappedEventsAddUp() {
+    // A and B both have cheap focus time and they overlap by half an hour. Every half hour in
+    // 8:00 - 10:00 overlaps at least one of them. Starting at 8:00 overlaps only A's, and starting
+    // from 9:00 overlaps only B's. Anything in between overlaps both.
+    //
+    // Events  : |--A,B--|~~A~~|     |--A,B--|
+    //                      |~~B~~~~~|
+    // Options :         |-|   |-----|
+    Event focusA =
+        soft(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false), LOW_COST, PERSON_A);
+    Event focusB =
+        soft(TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false), LOW_COST, PERSON_B);
+    List<Event> events = Arrays.asList(
+        hard(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), PERSON_A,
+            PERSON_B),
+        focusA, focusB,
+        hard(TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), PERSON_A,
+            PERSON_B));
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<SoftConflictQuery.Slot> expected = Arrays.asList(
+        new SoftConflictQuery.Slot(TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            LOW_COST, Arrays.asList(focusA)),
+        new SoftConflictQuery.Slot(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            LOW_COST, Arrays.asList(focusB)));
+
+    Assert.assertEquals(expected, query.query(events, request));
+  }
+
+  @Test
+  public void hardEventsAreNeverBookedOver() {
+    List<Event> events = Arrays.asList(hard(TimeRange.WHOLE_DAY, PERSON_A));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Assert.assertEquals(Collections.emptyList(), query.query(events, request));
+  }
+
+  @Test
+  public void optionalAttendeeDroppedRatherThanBookedOver() {
+    // C is optional and only has focus time. A conflict-free time without C beats booking over
+    // C's focus time.
+    //
+    // Events  : |----A----|         |----A----|
+    //           |~~~~~~~~~~~C~~~~~~~~~~~~~~~~~|
+    // Options :           |---------|
+    Event focus = soft(TimeRange.WHOLE_DAY, LOW_COST, PERSON_C);
+    List<Event> events = Arrays.asList(
+        hard(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false), PERSON_A),
+        hard(TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), PERSON_A), focus);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+
+    List<SoftConflictQuery.Slot> expected = Arrays.asList(new SoftConflictQuery.Slot(
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false), 0, Collections.emptyList()));
+
+    Assert.assertEquals(expected, query.query(events, request));
+  }
+
+  @Test
+  public void sampleFocusTimeIsOverridable() {
+    // Isabella's head-down work and Olivia's self-study are the only events that can be booked
+    // over.
+    int overridable = 0;
+    for (Event event : Events.events) {
+      if (event.isOverridable()) {
+        overridable++;
+      }
+    }
+    Assert.assertEquals(2, overridable);
+  }
+
+  @Test
+  public void slotsAreTrimmedToTheGrid() {
+    // A is busy until 8:10, so on a 15 minute grid the first start is 8:15.
+    List<Event> events = Arrays.asList(
+        hard(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM + 10, false), PERSON_A));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setGranularity(15);
+
+    List<SoftConflictQuery.Slot> expected = Arrays.asList(new SoftConflictQuery.Slot(
+        TimeRange.fromStartEnd(TIME_0800AM + 15, TimeRange.END_OF_DAY, true), 0,
+        Collections.emptyList()));
+
+    Assert.assertEquals(expected, query.query(events, request));
+  }
+
+  @Test
+  public void conflictFreeSlotsMatchFindMeetingQuery() {
+    // With nothing to book over, the slots are exactly the windows a plain query finds,
+    // including at the end of the day.
+    FindMeetingQuery plain = new FindMeetingQuery();
+    Random random = new Random(7);
+    for (int round = 0; round < 100; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = random.nextInt(6); i > 0; i--) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        int end = start + 1 + random.nextInt(TimeRange.WHOLE_DAY.duration() - start);
+        events.add(hard(TimeRange.fromStartEnd(start, end, false), PERSON_A));
+      }
+      int[] durations = {1, DURATION_30_MINUTES, 200, TimeRange.WHOLE_DAY.duration() - 1,
+          TimeRange.WHOLE_DAY.duration()};
+      for (int duration : durations) {
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+        List<TimeRange> windows = new ArrayList<>();
+        for (SoftConflictQuery.Slot slot : query.query(events, request)) {
+          Assert.assertEquals(0, slot.getCost());
+          windows.add(slot.getWhen());
+        }
+        Assert.assertEquals(new ArrayList<>(plain.query(events, request)), windows);
+      }
+    }
+  }
+}
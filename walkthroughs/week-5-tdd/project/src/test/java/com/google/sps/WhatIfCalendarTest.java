@@ -0,0 +1,108 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the WhatIfCalendar class.
+ */
+@RunWith(JUnit4.class)
+public final class WhatIfCalendarTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final int DURATION_1_HOUR = 60;
+
+  private static final Event BIG_MEETING = new Event("Big meeting",
+      TimeRange.fromStartEnd(TIME_0900AM, TIME_1100AM, false), Arrays.asList(PERSON_A, PERSON_B));
+  private static final Event ONE_ON_ONE = new Event("1:1",
+      TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false), Arrays.asList(PERSON_B, PERSON_C));
+
+  private final EventStore store = new EventStore(Arrays.asList(BIG_MEETING, ONE_ON_ONE));
+
+  private static List<TimeRange> query(WhatIfCalendar calendar, String... attendees) {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(attendees), DURATION_1_HOUR);
+    List<TimeRange> times = new ArrayList<>();
+    calendar.availableTimes(new FindMeetingQuery(), request, TimeRange.START_OF_DAY)
+        .forEachRemaining(times::add);
+    return times;
+  }
+
+  @Test
+  public void noEditsMatchesTheBase() {
+    WhatIfCalendar calendar = new WhatIfCalendar(store.getSnapshot(), Collections.emptyList());
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR);
+    Assert.assertEquals(new FindMeetingQuery().query(store.getSnapshot().getEvents(), request),
+        query(calendar, PERSON_A, PERSON_B));
+  }
+
+  @Test
+  public void cancellingFreesTheTime() {
+    WhatIfCalendar calendar = new WhatIfCalendar(
+        store.getSnapshot(), Arrays.asList(WhatIfCalendar.Edit.cancel(BIG_MEETING)));
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query(calendar, PERSON_A));
+    Assert.assertEquals(Collections.emptyList(), calendar.getBusyTimes(PERSON_A));
+  }
+
+  @Test
+  public void movingChangesOnlyTheAttendeesOfTheMovedEvent() {
+    // Moving the big meeting to 8:00 - 10:00 overlaps B's 1:1, so B's busy time merges.
+    //
+    // Big meeting : |-----A,B-----|
+    // 1:1         : |-B,C-|
+    WhatIfCalendar calendar = new WhatIfCalendar(store.getSnapshot(), Arrays.asList(
+        WhatIfCalendar.Edit.move(BIG_MEETING,
+            TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false))));
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false)),
+        calendar.getBusyTimes(PERSON_B));
+
+    // C isn't in the moved meeting, so their busy times are the snapshot's own list.
+    Assert.assertSame(store.getSnapshot().getBusyTimes(PERSON_C), calendar.getBusyTimes(PERSON_C));
+  }
+
+  @Test
+  public void baseIsUnchanged() {
+    EventStore.Snapshot snapshot = store.getSnapshot();
+    new WhatIfCalendar(snapshot, Arrays.asList(
+        WhatIfCalendar.Edit.cancel(BIG_MEETING),
+        WhatIfCalendar.Edit.add(new Event("New", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)))));
+
+    Assert.assertEquals(Arrays.asList(BIG_MEETING, ONE_ON_ONE), snapshot.getEvents());
+    Assert.assertEquals(Arrays.asList(ONE_ON_ONE.getWhen()), snapshot.getBusyTimes(PERSON_C));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void cancellingAMissingEventFails() {
+    new WhatIfCalendar(store.getSnapshot(), Arrays.asList(WhatIfCalendar.Edit.cancel(
+        new Event("Missing", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A)))));
+  }
+}
@@ -0,0 +1,181 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the WorkingHours and WorkingHoursRegistry classes.
+ */
+@RunWith(JUnit4.class)
+public final class WorkingHoursTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final LocalTime NINE = LocalTime.of(9, 0);
+  private static final LocalTime FIVE = LocalTime.of(17, 0);
+
+  private static final EnumSet<DayOfWeek> WEEKDAYS =
+      EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+
+  // A Wednesday, the Monday after it and the day US clocks moved back in 2020.
+  private static final LocalDate WEDNESDAY = LocalDate.of(2020, 1, 1);
+  private static final LocalDate MONDAY = LocalDate.of(2020, 1, 6);
+  private static final LocalDate DST_END = LocalDate.of(2020, 11, 1);
+
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+  private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+
+  private static MinuteMask maskOf(int... bounds) {
+    MinuteMask mask = MinuteMask.forDay();
+    for (int i = 0; i < bounds.length; i += 2) {
+      mask.set(bounds[i], bounds[i + 1]);
+    }
+    return mask;
+  }
+
+  @Test
+  public void sameZone() {
+    WorkingHours hours = new WorkingHours(ZoneOffset.UTC, NINE, FIVE, WEEKDAYS);
+
+    Assert.assertEquals(
+        maskOf(TimeRange.getTimeInMinutes(9, 0), TimeRange.getTimeInMinutes(17, 0)),
+        hours.toMask(WEDNESDAY, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void shiftedByZone() {
+    // 9 to 5 in New York is 14:00 to 22:00 UTC in winter.
+    WorkingHours hours = new WorkingHours(NEW_YORK, NINE, FIVE, WEEKDAYS);
+
+    Assert.assertEquals(
+        maskOf(TimeRange.getTimeInMinutes(14, 0), TimeRange.getTimeInMinutes(22, 0)),
+        hours.toMask(WEDNESDAY, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void workingDaySpansTwoCalendarDays() {
+    // 9 to 5 in Tokyo is 00:00 to 08:00 UTC on the same date, so Monday in Tokyo shows up on the
+    // UTC Monday, and Sunday UTC is free.
+    WorkingHours hours = new WorkingHours(TOKYO, NINE, FIVE, WEEKDAYS);
+
+    Assert.assertEquals(maskOf(0, TimeRange.getTimeInMinutes(8, 0)),
+        hours.toMask(MONDAY, ZoneOffset.UTC));
+    Assert.assertEquals(maskOf(), hours.toMask(MONDAY.minusDays(1), ZoneOffset.UTC));
+
+    // Seen from New York, the end of Monday in Tokyo is early Monday morning, and Tuesday in
+    // Tokyo starts at 19:00 on Monday.
+    Assert.assertEquals(maskOf(0, TimeRange.getTimeInMinutes(3, 0),
+        TimeRange.getTimeInMinutes(19, 0), TimeRange.WHOLE_DAY.end()),
+        hours.toMask(MONDAY, NEW_YORK));
+  }
+
+  @Test
+  public void overnightShift() {
+    // A 22:00 to 06:00 shift starting on weekdays. Monday morning is the end of Sunday's shift,
+    // which isn't worked.
+    WorkingHours hours = new WorkingHours(
+        ZoneOffset.UTC, LocalTime.of(22, 0), LocalTime.of(6, 0), WEEKDAYS);
+
+    Assert.assertEquals(maskOf(TimeRange.getTimeInMinutes(22, 0), TimeRange.WHOLE_DAY.end()),
+        hours.toMask(MONDAY, ZoneOffset.UTC));
+    Assert.assertEquals(maskOf(0, TimeRange.getTimeInMinutes(6, 0),
+        TimeRange.getTimeInMinutes(22, 0), TimeRange.WHOLE_DAY.end()),
+        hours.toMask(MONDAY.plusDays(1), ZoneOffset.UTC));
+  }
+
+  @Test
+  public void zonesFurthestApart() {
+    // Monday 00:00 to 08:00 in UTC+14 is Saturday 22:00 to Sunday 06:00 in UTC-12, two calendar
+    // days before the working day starts.
+    WorkingHours hours = new WorkingHours(ZoneOffset.ofHours(14), LocalTime.of(0, 0),
+        LocalTime.of(8, 0), EnumSet.of(DayOfWeek.MONDAY));
+    ZoneId calendarZone = ZoneOffset.ofHours(-12);
+
+    Assert.assertEquals(maskOf(TimeRange.getTimeInMinutes(22, 0), TimeRange.WHOLE_DAY.end()),
+        hours.toMask(MONDAY.minusDays(2), calendarZone));
+    Assert.assertEquals(maskOf(0, TimeRange.getTimeInMinutes(6, 0)),
+        hours.toMask(MONDAY.minusDays(1), calendarZone));
+    Assert.assertEquals(maskOf(), hours.toMask(MONDAY, calendarZone));
+  }
+
+  @Test
+  public void daylightSavingChange() {
+    // Clocks in New York move back an hour early on Sunday, November 1st, 2020, so Monday's 9 to 5
+    // is 14:00 to 22:00 UTC instead of 13:00 to 21:00.
+    WorkingHours hours = new WorkingHours(NEW_YORK, NINE, FIVE, EnumSet.allOf(DayOfWeek.class));
+
+    Assert.assertEquals(
+        maskOf(TimeRange.getTimeInMinutes(13, 0), TimeRange.getTimeInMinutes(21, 0)),
+        hours.toMask(DST_END.minusDays(1), ZoneOffset.UTC));
+    Assert.assertEquals(
+        maskOf(TimeRange.getTimeInMinutes(14, 0), TimeRange.getTimeInMinutes(22, 0)),
+        hours.toMask(DST_END.plusDays(1), ZoneOffset.UTC));
+  }
+
+  @Test
+  public void registryListsAndClearsHours() {
+    WorkingHoursRegistry registry = new WorkingHoursRegistry(ZoneOffset.UTC);
+    WorkingHours hours = new WorkingHours(NEW_YORK, NINE, FIVE, WEEKDAYS);
+    registry.setWorkingHours(PERSON_A, hours);
+    Assert.assertEquals(Collections.singletonMap(PERSON_A, hours), registry.getWorkingHours());
+
+    // Cleared hours mean the person can be booked at any time again.
+    registry.setWorkingHours(PERSON_A, null);
+    Assert.assertEquals(Collections.emptyMap(), registry.getWorkingHours());
+    Assert.assertNull(registry.forDate(WEDNESDAY).availability(PERSON_A));
+  }
+
+  @Test
+  public void registrySharesMasksForEqualHours() {
+    WorkingHoursRegistry registry = new WorkingHoursRegistry(ZoneOffset.UTC);
+    registry.setWorkingHours(PERSON_A, new WorkingHours(NEW_YORK, NINE, FIVE, WEEKDAYS));
+    registry.setWorkingHours(PERSON_B, new WorkingHours(NEW_YORK, NINE, FIVE, WEEKDAYS));
+
+    AttendeeAvailability availability = registry.forDate(WEDNESDAY);
+
+    Assert.assertSame(availability.availability(PERSON_A), availability.availability(PERSON_B));
+    Assert.assertNull(availability.availability("Person C"));
+  }
+
+  @Test
+  public void queryAcrossZones() {
+    // New York works 14:00 to 22:00 UTC and London 09:00 to 17:00 UTC, so only 14:00 to 17:00 UTC
+    // works for both.
+    WorkingHoursRegistry registry = new WorkingHoursRegistry(ZoneOffset.UTC);
+    registry.setWorkingHours(PERSON_A, new WorkingHours(NEW_YORK, NINE, FIVE, WEEKDAYS));
+    registry.setWorkingHours(
+        PERSON_B, new WorkingHours(ZoneId.of("Europe/London"), NINE, FIVE, WEEKDAYS));
+
+    FindMeetingQuery query = new FindMeetingQuery(registry.forDate(WEDNESDAY));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 60);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(
+            TimeRange.getTimeInMinutes(14, 0), TimeRange.getTimeInMinutes(17, 0), false)),
+        query.query(Arrays.asList(), request));
+  }
+}
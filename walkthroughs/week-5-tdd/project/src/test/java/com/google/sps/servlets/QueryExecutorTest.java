@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the QueryExecutor class.
+ */
+@RunWith(JUnit4.class)
+public final class QueryExecutorTest {
+  private QueryExecutor executor;
+
+  // Holds the single worker until released.
+  private CountDownLatch release;
+  private CountDownLatch started;
+
+  @Before
+  public void setUp() {
+    executor = new QueryExecutor(1, 1);
+    release = new CountDownLatch(1);
+    started = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  private Future<?> submitBlocker() throws InterruptedException {
+    Future<?> blocker = executor.submit(() -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    return blocker;
+  }
+
+  @Test
+  public void fullQueueRejects() throws Exception {
+    // One task runs and one waits, so the third doesn't fit.
+    submitBlocker();
+    Future<?> queued = executor.submit(() -> {});
+    try {
+      executor.submit(() -> {});
+      Assert.fail("Expected the queue to be full");
+    } catch (RejectedExecutionException expected) {
+    }
+
+    QueryExecutor.Metrics metrics = executor.getMetrics();
+    Assert.assertEquals(1, metrics.getQueueDepth());
+    Assert.assertEquals(1, metrics.getActiveWorkers());
+    Assert.assertEquals(1, metrics.getTasksStarted());
+    Assert.assertEquals(1, metrics.getTasksRejected());
+
+    release.countDown();
+    queued.get(5, TimeUnit.SECONDS);
+    metrics = executor.getMetrics();
+    Assert.assertEquals(0, metrics.getQueueDepth());
+    Assert.assertEquals(2, metrics.getTasksStarted());
+    Assert.assertTrue(metrics.getMaxQueueWaitMicros() >= metrics.getMeanQueueWaitMicros());
+  }
+
+  @Test
+  public void shutdownInterruptsAndRejects() throws Exception {
+    Future<?> blocker = submitBlocker();
+    executor.shutdown();
+
+    // The running task is interrupted rather than left to finish.
+    blocker.get(5, TimeUnit.SECONDS);
+    Assert.assertTrue(executor.isShutdown());
+    try {
+      executor.submit(() -> {});
+      Assert.fail("Expected a shut down executor to reject work");
+    } catch (RejectedExecutionException expected) {
+    }
+    Assert.assertEquals(1, executor.getMetrics().getTasksRejected());
+  }
+
+  @Test
+  public void contextGetsAFreshExecutorAfterShutdown() {
+    ServletContext context = fakeContext();
+    QueryExecutor shared = QueryExecutor.forContext(context);
+    Assert.assertSame(shared, QueryExecutor.forContext(context));
+
+    // A shut down executor left behind in the context is replaced.
+    shared.shutdown();
+    QueryExecutor replacement = QueryExecutor.forContext(context);
+    Assert.assertNotSame(shared, replacement);
+    Assert.assertFalse(replacement.isShutdown());
+
+    // Shutting down with the context also forgets the executor.
+    QueryExecutor.shutdownForContext(context);
+    Assert.assertTrue(replacement.isShutdown());
+    Assert.assertNull(context.getAttribute(QueryExecutor.CONTEXT_ATTRIBUTE));
+  }
+
+  /**
+   * Returns a context that only supports attributes.
+   */
+  static ServletContext fakeContext() {
+    Map<String, Object> attributes = new HashMap<>();
+    return (ServletContext) Proxy.newProxyInstance(ServletContext.class.getClassLoader(),
+        new Class<?>[] {ServletContext.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getAttribute":
+              return attributes.get(args[0]);
+            case "setAttribute":
+              attributes.put((String) args[0], args[1]);
+              return null;
+            case "removeAttribute":
+              attributes.remove(args[0]);
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Class to Test the QueryServlet class.
+ */
+@RunWith(JUnit4.class)
+public final class QueryServletTest {
+  private static final String OFF_HEAP_EVENTS_PROPERTY = "sps.offHeapEvents";
+
+  private ServletContext context;
+  private File eventsFile;
+
+  @Before
+  public void setUp() throws IOException {
+    context = QueryExecutorTest.fakeContext();
+    eventsFile = File.createTempFile("events", ".json");
+    System.setProperty(OFF_HEAP_EVENTS_PROPERTY, eventsFile.getPath());
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(OFF_HEAP_EVENTS_PROPERTY);
+    QueryExecutor.shutdownForContext(context);
+    eventsFile.delete();
+  }
+
+  @Test
+  public void offHeapEventsAreLoaded() throws Exception {
+    writeEvents("[{\"title\": \"Event 1\", \"when\": {\"start\": 0, \"duration\": 30},"
+        + " \"attendees\": [\"Person A\"]}]");
+
+    new QueryServlet().init(fakeConfig(context));
+  }
+
+  @Test
+  public void offHeapEventWithoutAttendeesIsRejected() throws IOException {
+    writeEvents("[{\"title\": \"Event 1\", \"when\": {\"start\": 0, \"duration\": 30}}]");
+
+    try {
+      new QueryServlet().init(fakeConfig(context));
+      Assert.fail("Expected the events file to be rejected");
+    } catch (ServletException e) {
+      Assert.assertTrue(e.getMessage().contains(eventsFile.getPath()));
+    }
+  }
+
+  @Test(expected = ServletException.class)
+  public void nullOffHeapEventIsRejected() throws Exception {
+    writeEvents("[null]");
+
+    new QueryServlet().init(fakeConfig(context));
+  }
+
+  private void writeEvents(String json) throws IOException {
+    Files.write(eventsFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ServletConfig fakeConfig(ServletContext context) {
+    return (ServletConfig) Proxy.newProxyInstance(ServletConfig.class.getClassLoader(),
+        new Class<?>[] {ServletConfig.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getServletContext")) {
+            return context;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}